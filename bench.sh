@@ -0,0 +1,40 @@
+#!/bin/bash
+
+# Times a program that recurses to a given depth and then looks up identifiers in a loop,
+# with dynamic scoping using shallow binding (default) and deep binding
+function dive {
+    program="{ def dive = lambda(n) { cond (equals?(n, 0) => { let k = 0; while lessThan?(k, 100000) { k = add(k, 1) }; k }) (true => dive(sub(n, 1))) }; dive($1) }"
+    for binding in shallow deep; do
+        args=('-d' '-np')
+        if [[ $binding == deep ]]; then
+            args+=('--deep-binding')
+        fi
+        start=$(date +%s%N)
+        echo "$program" | ./run.sh "${args[@]}"
+        code=$?
+        end=$(date +%s%N)
+        if [[ $code != 0 ]]; then
+            echo "ERROR: Interpreter returned error code at depth $1 with $binding binding"
+            exit $code
+        fi
+        printf "%-8s %-8s %8d ms\n" "$1" "$binding" $(( (end - start) / 1000000 ))
+    done
+}
+
+# Run benchmarks
+
+echo "Dynamic scoping lookups by recursion depth"
+printf "%-8s %-8s %11s\n" "depth" "binding" "time"
+for depth in 10 100 1000 5000; do
+    dive $depth
+done
+
+# Memory tokens take, lexing copies of the example program (lexing does not need a valid program)
+echo
+echo "Token memory"
+source_file=$(mktemp)
+for i in $(seq 200); do
+    cat example-program/interpreter.417
+done > "$source_file"
+java -cp bin main.TokenBenchmark "$source_file"
+rm -f "$source_file"
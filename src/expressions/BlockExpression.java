@@ -14,6 +14,10 @@ public class BlockExpression extends Expression {
      * List of expressions contained in the block
      */
     private List<Expression> block;
+    /**
+     * Identifiers of the defs directly in the block, null until found
+     */
+    private List<IdentifierExpression> definitions;
 
     /**
      * Constructor for block expression. Creates a new empty block expression.
@@ -44,6 +48,7 @@ public class BlockExpression extends Expression {
             throw new IllegalArgumentException("Block cannot be null.");
         }
         this.block = block;
+        this.definitions = null;
     }
 
     /**
@@ -57,6 +62,44 @@ public class BlockExpression extends Expression {
 
     public void addToBlock(Expression expression) {
         block.add(expression);
+        definitions = null;
+    }
+
+    /**
+     * Finds the identifiers of the defs directly in the block, each identifier once, in
+     * the order of the frame slots the block binds them in. Desugar calls this once the
+     * block has its final contents, so evaluation does not scan the block again.
+     */
+    public void findDefinitions() {
+        List<IdentifierExpression> found = new ArrayList<>();
+        for (Expression exp : block) {
+            if (exp.getType() == ExpressionType.DEFINITION && !found.contains(((DefinitionExpression) exp).getIdentifier())) {
+                found.add(((DefinitionExpression) exp).getIdentifier());
+            }
+        }
+        this.definitions = List.copyOf(found);
+    }
+
+    /**
+     * Gets the identifiers of the defs directly in the block, finding them if they were not found yet
+     *
+     * @return Returns def identifiers in slot order
+     */
+    public List<IdentifierExpression> getDefinitions() {
+        if (definitions == null) {
+            findDefinitions();
+        }
+        return definitions;
+    }
+
+    /**
+     * Checks block needs its own environment frame. Blocks without defs bind nothing, so
+     * they are evaluated in the environment around them.
+     *
+     * @return Returns true if the block has defs
+     */
+    public boolean needsFrame() {
+        return !getDefinitions().isEmpty();
     }
 
     @Override
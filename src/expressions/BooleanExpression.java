@@ -11,20 +11,50 @@ import java.util.Objects;
  *
  */
 public class BooleanExpression extends Expression {
+    /** Shared true value, cannot be changed */
+    public static final BooleanExpression TRUE = new BooleanExpression(true, true);
+    /** Shared false value, cannot be changed */
+    public static final BooleanExpression FALSE = new BooleanExpression(false, true);
+
     /** Value of boolean expression */
     private boolean value;
+    /** True if the boolean is shared and its value cannot change */
+    private final boolean shared;
 
     /** Constructs new boolean expression with given value */
     public BooleanExpression(boolean value) {
+        this(value, false);
+    }
+
+    /**
+     * Constructs new boolean expression
+     * @param value  Value of boolean expression
+     * @param shared True if the boolean is TRUE or FALSE
+     */
+    private BooleanExpression(boolean value, boolean shared) {
         super(ExpressionType.BOOLEAN);
         setValue(value);
+        this.shared = shared;
+    }
+
+    /**
+     * Gets shared boolean expression with the given value
+     * @param value Value of boolean expression
+     * @return Returns TRUE or FALSE
+     */
+    public static BooleanExpression valueOf(boolean value) {
+        return value ? TRUE : FALSE;
     }
 
     /**
      * Sets value of the boolean
      * @param value Value to set boolean
+     * @throws IllegalStateException Throws if the boolean is TRUE or FALSE
      */
     public void setValue(boolean value) {
+        if (shared) {
+            throw new IllegalStateException("Cannot change value of shared boolean " + this.value + ".");
+        }
         this.value = value;
     }
 
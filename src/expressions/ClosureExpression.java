@@ -0,0 +1,47 @@
+package expressions;
+
+import interpreter.Environment;
+
+/**
+ * Closure value made at run time when a lambda is bound with lexical scoping enabled.
+ * Pairs the lambda it was made from with the environment frame it captured, so the
+ * lambda in the parsed program is never changed and can be evaluated again.
+ *
+ * @author Heath Dyer
+ */
+public class ClosureExpression extends LambdaExpression {
+    /**
+     * Lambda of the program the closure was made from
+     */
+    private final LambdaExpression lambda;
+    /**
+     * Environment captured by the closure
+     */
+    private final Environment environment;
+
+    /**
+     * Constructs new closure of a lambda over an environment
+     *
+     * @param lambda      Lambda of the program to close
+     * @param environment Environment to capture
+     * @throws IllegalArgumentException Throws if lambda or environment is null
+     */
+    public ClosureExpression(LambdaExpression lambda, Environment environment) {
+        super(lambda.getParameters(), lambda.getBlock());
+        if (environment == null) {
+            throw new IllegalArgumentException("Closure environment cannot be null.");
+        }
+        this.lambda = lambda.getCode();
+        this.environment = environment;
+    }
+
+    @Override
+    public LambdaExpression getCode() {
+        return lambda;
+    }
+
+    @Override
+    public Environment getEnvironment() {
+        return environment;
+    }
+}
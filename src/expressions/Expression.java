@@ -37,6 +37,10 @@ public abstract class Expression {
     public static final String APPLICATION_KEYWORD = "Application";
     /** Keyword for Block type */
     public static final String BLOCK_KEYWORD = "Block";
+    /** Keyword for While type */
+    public static final String WHILE_KEYWORD = "While";
+    /** Keyword for For type */
+    public static final String FOR_KEYWORD = "For";
 
     //OTHER KEYWORDS
     /** Keyword for lambda function parameters */
@@ -51,7 +55,7 @@ public abstract class Expression {
     public static final String LIST_KEYWORD = "List";
 
     /** Array of reserved keywords for identifiers */
-    public static final String[] RESERVED_KEYWORDS = {"lambda", "λ", "cond", "def", "let", "=>"};
+    public static final String[] RESERVED_KEYWORDS = {"lambda", "λ", "cond", "def", "let", "while", "for", "=>"};
 
     /** Type of token */
     private ExpressionType expressionType;
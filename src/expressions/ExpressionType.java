@@ -17,6 +17,8 @@ public enum ExpressionType {
     BLOCK, //function block
     LET, //identifier declaration statement
     DEFINITION, //function declaration
+    WHILE, //while loop
+    FOR, //counted for loop, desugared into let and while
     // atom types
     IDENTIFIER, //identifier expression
     STRING, //string expression
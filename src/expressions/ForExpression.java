@@ -0,0 +1,146 @@
+package expressions;
+
+import java.util.Objects;
+
+/**
+ * Counted for loop expression. Binds an identifier to a start value and evaluates the block
+ * while the identifier is less than the end, adding one to it after every evaluation. The
+ * end is evaluated again before every evaluation of the block. For loops are syntactic
+ * sugar and are desugared into a let expression around a while loop.
+ *
+ * @author Heath Dyer
+ */
+public class ForExpression extends Expression {
+    /**
+     * Identifier counting the loop
+     */
+    private IdentifierExpression identifier;
+    /**
+     * Expression the counter starts at
+     */
+    private Expression start;
+    /**
+     * Expression the counter stops at
+     */
+    private Expression end;
+    /**
+     * Block evaluated for every count
+     */
+    private BlockExpression block;
+
+    /**
+     * Constructs new for loop given its counter, start, end, and block
+     *
+     * @param identifier Identifier counting the loop
+     * @param start      Expression the counter starts at
+     * @param end        Expression the counter stops at
+     * @param block      Block to evaluate for every count
+     */
+    public ForExpression(IdentifierExpression identifier, Expression start, Expression end, BlockExpression block) {
+        super(ExpressionType.FOR);
+        setIdentifier(identifier);
+        setStart(start);
+        setEnd(end);
+        setBlock(block);
+    }
+
+    /**
+     * Sets identifier counting the loop
+     *
+     * @param identifier Identifier to set
+     */
+    public void setIdentifier(IdentifierExpression identifier) {
+        if (identifier == null) {
+            throw new IllegalArgumentException("For expression identifier cannot be null.");
+        }
+        this.identifier = identifier;
+    }
+
+    /**
+     * Gets identifier counting the loop
+     *
+     * @return Returns identifier of the counter
+     */
+    public IdentifierExpression getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Sets expression the counter starts at
+     *
+     * @param start Expression to set as start
+     */
+    public void setStart(Expression start) {
+        if (start == null) {
+            throw new IllegalArgumentException("For expression start cannot be null.");
+        }
+        this.start = start;
+    }
+
+    /**
+     * Gets expression the counter starts at
+     *
+     * @return Returns start expression
+     */
+    public Expression getStart() {
+        return start;
+    }
+
+    /**
+     * Sets expression the counter stops at
+     *
+     * @param end Expression to set as end
+     */
+    public void setEnd(Expression end) {
+        if (end == null) {
+            throw new IllegalArgumentException("For expression end cannot be null.");
+        }
+        this.end = end;
+    }
+
+    /**
+     * Gets expression the counter stops at
+     *
+     * @return Returns end expression
+     */
+    public Expression getEnd() {
+        return end;
+    }
+
+    /**
+     * Sets block of the for loop
+     *
+     * @param block BlockExpression to set as block
+     */
+    public void setBlock(BlockExpression block) {
+        if (block == null) {
+            throw new IllegalArgumentException("For expression block cannot be null.");
+        }
+        this.block = block;
+    }
+
+    /**
+     * Gets block of the for loop
+     *
+     * @return Returns BlockExpression evaluated for every count
+     */
+    public BlockExpression getBlock() {
+        return block;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(block, end, identifier, start);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"" + FOR_KEYWORD + "\":[" + identifier.toString() + "," + start.toString() + ","
+                + end.toString() + "," + block.toString() + "]}";
+    }
+}
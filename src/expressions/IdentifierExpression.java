@@ -8,10 +8,22 @@ import java.util.Objects;
  * @author Heath Dyer
  */
 public class IdentifierExpression extends Expression {
+    /**
+     * Depth of references addressed straight to a slot of the initial environment
+     */
+    public static final int GLOBAL = -1;
     /**
      * Name of the identifier
      */
     private String name;
+    /**
+     * Number of environment frames to skip before looking this identifier up, or GLOBAL
+     */
+    private int depth;
+    /**
+     * Slot of the binding in the frame reached after skipping, -1 to look it up by name from there
+     */
+    private int slot = -1;
 
     /**
      * Constructs new Indentifier with given name
@@ -23,6 +35,20 @@ public class IdentifierExpression extends Expression {
         setName(name);
     }
 
+    /**
+     * Constructs new identifier with the name of another, which was already checked
+     * against the reserved keywords when it was set. Its address is not copied.
+     *
+     * @param other Identifier to take the name of
+     */
+    public IdentifierExpression(IdentifierExpression other) {
+        super(ExpressionType.IDENTIFIER);
+        if (other == null) {
+            throw new IllegalArgumentException("Identifier cannot be null");
+        }
+        this.name = other.name;
+    }
+
     /**
      * Sets the name of the identifier
      *
@@ -49,6 +75,39 @@ public class IdentifierExpression extends Expression {
         return this.name;
     }
 
+    /**
+     * Sets the lexical address found by the resolver for this reference
+     *
+     * @param depth Number of environment frames to skip, or GLOBAL for the initial environment
+     * @param slot  Slot of the binding in the frame reached, -1 to look it up by name from there
+     * @throws IllegalArgumentException Throws if the address is not a valid one
+     */
+    public void setAddress(int depth, int slot) {
+        if (depth < GLOBAL || slot < -1 || (depth == GLOBAL && slot < 0)) {
+            throw new IllegalArgumentException("Identifier address cannot have negative depth or slot.");
+        }
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    /**
+     * Gets number of environment frames to skip before looking this identifier up
+     *
+     * @return Returns depth of the binding, 0 if not resolved, GLOBAL for the initial environment
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets slot of the binding in the frame reached after skipping
+     *
+     * @return Returns slot of the binding, -1 if it is looked up by name
+     */
+    public int getSlot() {
+        return slot;
+    }
+
     @Override
     public String toString() {
         return "{\"" + IDENTIFIER_KEYWORD + "\": \"" + name + "\"}";
@@ -56,7 +115,7 @@ public class IdentifierExpression extends Expression {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return name.hashCode();
     }
 
     @Override
@@ -8,10 +8,33 @@ import java.util.Objects;
  * @author Heath Dyer
  */
 public class IntegerExpression extends Expression {
+    /**
+     * Smallest value of the shared integer cache
+     */
+    public static final long CACHE_LOW = -128;
+    /**
+     * Largest value of the shared integer cache
+     */
+    public static final long CACHE_HIGH = 1024;
+    /**
+     * Shared integers from CACHE_LOW to CACHE_HIGH, returned by valueOf()
+     */
+    private static final IntegerExpression[] CACHE = new IntegerExpression[(int) (CACHE_HIGH - CACHE_LOW + 1)];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new IntegerExpression(CACHE_LOW + i, true);
+        }
+    }
+
     /**
      * Value of integer
      */
     private long value;
+    /**
+     * True if the integer is shared and its value cannot change
+     */
+    private final boolean shared;
 
     /**
      * Constructs new integer expression
@@ -19,15 +42,44 @@ public class IntegerExpression extends Expression {
      * @param value value of integer expression
      */
     public IntegerExpression(long value) {
+        this(value, false);
+    }
+
+    /**
+     * Constructs new integer expression
+     *
+     * @param value  value of integer expression
+     * @param shared True if the integer is shared by the cache
+     */
+    private IntegerExpression(long value, boolean shared) {
         super(ExpressionType.INTEGER);
         setValue(value);
+        this.shared = shared;
+    }
+
+    /**
+     * Gets integer expression with the given value, shared for small values so results of
+     * integer procedures do not allocate. Shared integers cannot be changed with setValue().
+     *
+     * @param value value of integer expression
+     * @return Returns integer expression
+     */
+    public static IntegerExpression valueOf(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[(int) (value - CACHE_LOW)];
+        }
+        return new IntegerExpression(value);
     }
 
     /**
      * Sets the value of the integer
      * @param value Value of integer to set
+     * @throws IllegalStateException Throws if the integer is shared by the cache
      */
     public void setValue(long value) {
+        if (shared) {
+            throw new IllegalStateException("Cannot change value of shared integer " + this.value + ".");
+        }
         this.value = value;
     }
 
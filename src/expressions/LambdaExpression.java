@@ -19,10 +19,6 @@ public class LambdaExpression extends Expression {
      * Function block for lambda expression
      */
     private BlockExpression block;
-    /**
-     * Environment to evaluate in
-     */
-    private Environment currentEnv;
 
     /**
      * Constructs new Lambda expression given the Parameters and Block
@@ -35,7 +31,6 @@ public class LambdaExpression extends Expression {
         super(ExpressionType.LAMBDA);
         setParameters(parameters);
         setBlock(block);
-        setEnvironment(null);
     }
 
     /**
@@ -72,21 +67,23 @@ public class LambdaExpression extends Expression {
     }
 
     /**
-     * Gets environment to evaluate lambda function in
+     * Gets environment to evaluate lambda function in. Only closures made when the lambda
+     * was bound have one, other lambdas are evaluated in the environment of their call.
      *
-     * @return environment to evaluate lambda function in
+     * @return environment to evaluate lambda function in, null if the lambda is not a closure
      */
     public Environment getEnvironment() {
-        return currentEnv;
+        return null;
     }
 
     /**
-     * Sets environment to evaluate the lambda function in
+     * Gets lambda of the program this lambda was made from, used to share compiled
+     * function blocks between closures of the same lambda
      *
-     * @param environment Environment to evaluate lambda function in
+     * @return Returns lambda of the program
      */
-    public void setEnvironment(Environment environment) {
-        this.currentEnv = environment;
+    public LambdaExpression getCode() {
+        return this;
     }
 
     /**
@@ -1,13 +1,24 @@
 package expressions;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
- * Let expression to bind new identifiers within corresponding block
+ * Let expression to bind new identifiers within corresponding block. A let makes a new
+ * environment frame for its identifier unless the LetFlattener gave a chain of lets one
+ * frame, in which case the first let of the chain makes a frame with a slot for every
+ * identifier of the chain and the rest bind their slot of it.
  *
  * @author Heath Dyer
  */
 public class LetExpression extends Expression {
+    /**
+     * Fewest slots a frame made by a let needs before its identifiers are indexed
+     */
+    private static final int INDEXED_FRAME_SIZE = 8;
+
     /**
      * Identifier to bind
      */
@@ -20,6 +31,19 @@ public class LetExpression extends Expression {
      * Code block where new variable is valid
      */
     private BlockExpression block;
+    /**
+     * Identifiers of the slots of the frame the let makes, null if it binds a slot of the
+     * frame made by the let before it
+     */
+    private List<IdentifierExpression> frame;
+    /**
+     * Slot of every identifier of the frame the let makes, null to search its identifiers in order
+     */
+    private Map<IdentifierExpression, Integer> index;
+    /**
+     * Slot of the identifier in its frame
+     */
+    private int slot;
 
     /**
      * Constructs new LetExpression given identifier, expression, and block.
@@ -33,6 +57,7 @@ public class LetExpression extends Expression {
         setIdentifier(identifier);
         setExpression(expression);
         setBlock(block);
+        setFrame(List.of(identifier), 0);
     }
 
     /**
@@ -95,6 +120,56 @@ public class LetExpression extends Expression {
         return this.block;
     }
 
+    /**
+     * Sets frame the let binds its identifier in
+     *
+     * @param frame Identifiers of the slots of the frame the let makes, null to bind a slot
+     *              of the frame the let is evaluated in
+     * @param slot  Slot of the identifier in the frame
+     * @throws IllegalArgumentException Throws if the slot is not the identifier's slot of the frame made
+     */
+    public void setFrame(List<IdentifierExpression> frame, int slot) {
+        if (slot < 0 || frame != null && (slot >= frame.size() || !frame.get(slot).equals(identifier))) {
+            throw new IllegalArgumentException("Let expression slot must hold its identifier.");
+        }
+        this.frame = frame;
+        this.slot = slot;
+        this.index = null;
+        if (frame != null && frame.size() >= INDEXED_FRAME_SIZE) {
+            index = new HashMap<>();
+            for (int i = 0; i < frame.size(); i++) {
+                index.put(frame.get(i), i);
+            }
+        }
+    }
+
+    /**
+     * Gets identifiers of the slots of the frame the let makes
+     *
+     * @return Returns identifiers of the new frame, null if the let binds a slot of the frame it is evaluated in
+     */
+    public List<IdentifierExpression> getFrame() {
+        return frame;
+    }
+
+    /**
+     * Gets slot of every identifier of the frame the let makes, so large frames are not searched in order
+     *
+     * @return Returns index of the new frame, null if its identifiers are searched in order
+     */
+    public Map<IdentifierExpression, Integer> getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets slot of the identifier in its frame
+     *
+     * @return Returns slot index
+     */
+    public int getSlot() {
+        return slot;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(block, expression, identifier);
@@ -2,7 +2,6 @@ package expressions;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * List expression type to be used with build in list functions
@@ -58,12 +57,16 @@ public class ListExpression extends Expression {
 
     @Override
     public int hashCode() {
-        return Objects.hash(expressions);
+        return expressions.hashCode();
     }
 
     @Override
     public boolean equals(Object obj) {
-        return this == obj;
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ListExpression other))
+            return false;
+        return expressions.equals(other.expressions);
     }
 
 
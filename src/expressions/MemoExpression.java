@@ -0,0 +1,189 @@
+package expressions;
+
+import interpreter.Environment;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memoized lambda value made by the memo procedure. Calls of the lambda are looked up in a
+ * cache by the value of their arguments first, and the lambda is only called on a miss.
+ * The cache holds at most a fixed number of results, evicting the least recently used one
+ * when it is full. Only calls whose arguments are all integers, strings, booleans, or lists
+ * of those are cached, so the lambda must be pure for memoizing it to be correct.
+ *
+ * @author Heath Dyer
+ */
+public class MemoExpression extends LambdaExpression {
+    /**
+     * Number of results cached when no capacity is given
+     */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * Lambda being memoized
+     */
+    private final LambdaExpression lambda;
+    /**
+     * Most results the cache holds
+     */
+    private final int capacity;
+    /**
+     * Cached results by arguments, in least recently used order
+     */
+    private final Map<List<Expression>, Expression> cache;
+
+    /**
+     * Constructs new memoized lambda with an empty cache
+     *
+     * @param lambda   Lambda to memoize
+     * @param capacity Most results to cache
+     * @throws IllegalArgumentException Throws if capacity is not positive
+     */
+    public MemoExpression(LambdaExpression lambda, int capacity) {
+        super(lambda.getParameters(), lambda.getBlock());
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Memo capacity must be positive.");
+        }
+        this.lambda = lambda;
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Expression>, Expression> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Constructs memoized lambda sharing the cache of another one
+     *
+     * @param lambda Lambda to memoize
+     * @param memo   Memoized lambda whose cache to share
+     */
+    private MemoExpression(LambdaExpression lambda, MemoExpression memo) {
+        super(lambda.getParameters(), lambda.getBlock());
+        this.lambda = lambda;
+        this.capacity = memo.capacity;
+        this.cache = memo.cache;
+    }
+
+    /**
+     * Gets lambda being memoized
+     *
+     * @return Returns memoized lambda
+     */
+    public LambdaExpression getLambda() {
+        return lambda;
+    }
+
+    /**
+     * Gets most results the cache holds
+     *
+     * @return Returns capacity of the cache
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets number of results cached
+     *
+     * @return Returns size of the cache
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Makes closure of the memoized lambda over the environment it is bound in, sharing
+     * this cache. Memoized lambdas that are already closures are returned as they are.
+     *
+     * @param environment Environment to capture
+     * @return Returns memoized closure
+     */
+    public MemoExpression close(Environment environment) {
+        if (lambda.getEnvironment() != null) {
+            return this;
+        }
+        return new MemoExpression(new ClosureExpression(lambda, environment), this);
+    }
+
+    /**
+     * Gets cached result of a call, marking it most recently used
+     *
+     * @param arguments Arguments of the call
+     * @return Returns cached result, null if the call is not cached
+     */
+    public Expression get(List<Expression> arguments) {
+        return cache.get(arguments);
+    }
+
+    /**
+     * Caches result of a call, evicting the least recently used result if the cache is full
+     *
+     * @param arguments Arguments of the call
+     * @param result    Result of the call
+     * @return Returns true if a result was evicted
+     */
+    public boolean put(List<Expression> arguments, Expression result) {
+        boolean evicting = cache.size() == capacity && !cache.containsKey(arguments);
+        cache.put(copy(arguments), result);
+        return evicting;
+    }
+
+    /**
+     * Copies arguments to use as a key of the cache, copying lists all the way down so a
+     * list changed after the call cannot change the key's hash
+     *
+     * @param arguments Arguments to copy
+     * @return Returns copy of the arguments
+     */
+    private static List<Expression> copy(List<Expression> arguments) {
+        List<Expression> copy = new ArrayList<>(arguments.size());
+        for (Expression argument : arguments) {
+            if (argument.getType() == ExpressionType.LIST) {
+                copy.add(new ListExpression(copy(((ListExpression) argument).getExpressions())));
+            } else {
+                copy.add(argument);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Checks a call can be cached, which needs every argument to be compared by value
+     *
+     * @param arguments Arguments of the call
+     * @return Returns true if every argument is an integer, string, boolean, or list of those
+     */
+    public static boolean isCacheable(List<Expression> arguments) {
+        for (Expression argument : arguments) {
+            switch (argument.getType()) {
+                case INTEGER, STRING, BOOLEAN -> {
+                }
+                case LIST -> {
+                    if (!isCacheable(((ListExpression) argument).getExpressions())) {
+                        return false;
+                    }
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public LambdaExpression getCode() {
+        return lambda.getCode();
+    }
+
+    @Override
+    public Environment getEnvironment() {
+        return lambda.getEnvironment();
+    }
+}
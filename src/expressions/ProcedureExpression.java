@@ -3,33 +3,129 @@
  */
 package expressions;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.function.Function;
 
 /**
- * Operator expression for interpreter. Used for storing built in application functions
+ * Operator expression for interpreter. Used for storing built in application functions.
+ * Every procedure takes its arguments as a list, and procedures with a fixed number of
+ * arguments may also take them directly so calls with that many arguments do not
+ * collect them first. Calls with any other number of arguments use the list form,
+ * which reports the wrong number of arguments.
  * @author Heath Dyer
  *
  */
 public class ProcedureExpression extends Expression {
+    /**
+     * Procedure taking no arguments
+     */
+    @FunctionalInterface
+    public interface Procedure0 {
+        /**
+         * Applies the procedure
+         * @return Returns the result of the procedure
+         */
+        Expression apply();
+    }
+
+    /**
+     * Procedure taking exactly one argument
+     */
+    @FunctionalInterface
+    public interface Procedure1 {
+        /**
+         * Applies the procedure
+         * @param argument Argument to apply the procedure to
+         * @return Returns the result of the procedure
+         */
+        Expression apply(Expression argument);
+    }
+
+    /**
+     * Procedure taking exactly two arguments
+     */
+    @FunctionalInterface
+    public interface Procedure2 {
+        /**
+         * Applies the procedure
+         * @param first  First argument to apply the procedure to
+         * @param second Second argument to apply the procedure to
+         * @return Returns the result of the procedure
+         */
+        Expression apply(Expression first, Expression second);
+    }
+
+    /**
+     * Procedure taking any number of arguments as a list
+     */
+    @FunctionalInterface
+    public interface ProcedureN {
+        /**
+         * Applies the procedure
+         * @param arguments Arguments to apply the procedure to
+         * @return Returns the result of the procedure
+         */
+        Expression apply(List<Expression> arguments);
+    }
+
     /** Function implementation as Java function (List of expressions as arguments, expression as output ) */
-    private Function<List<Expression>, Expression> function;
+    private ProcedureN function;
+    /** Function implementation taking no arguments, null if the procedure has none */
+    private Procedure0 nullary;
+    /** Function implementation taking one argument, null if the procedure has none */
+    private Procedure1 unary;
+    /** Function implementation taking two arguments, null if the procedure has none */
+    private Procedure2 binary;
 
     /**
      * Constructs new operation expressions
      * @param function Function to take as parameter
      */
-    public ProcedureExpression(Function<List<Expression>, Expression> function) {
+    public ProcedureExpression(ProcedureN function) {
         super(ExpressionType.PROCEDURE);
         setFunction(function);
     }
 
+    /**
+     * Constructs new operation expression taking no arguments
+     * @param function Function taking the arguments as a list
+     * @param nullary  Function taking no arguments
+     */
+    public ProcedureExpression(ProcedureN function, Procedure0 nullary) {
+        this(function);
+        this.nullary = nullary;
+    }
+
+    /**
+     * Constructs new operation expression taking one argument
+     * @param function Function taking the arguments as a list
+     * @param unary    Function taking the argument directly
+     */
+    public ProcedureExpression(ProcedureN function, Procedure1 unary) {
+        this(function);
+        this.unary = unary;
+    }
+
+    /**
+     * Constructs new operation expression taking two arguments
+     * @param function Function taking the arguments as a list
+     * @param binary   Function taking the arguments directly
+     */
+    public ProcedureExpression(ProcedureN function, Procedure2 binary) {
+        this(function);
+        this.binary = binary;
+    }
+
     /**
      * Sets the function of the operation expressions
      * @param function Function to set
+     * @throws IllegalArgumentException Throws if function is null
      */
-    public void setFunction(Function<List<Expression>, Expression> function) {
+    public void setFunction(ProcedureN function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Procedure function cannot be null.");
+        }
         this.function = function;
     }
 
@@ -37,10 +133,24 @@ public class ProcedureExpression extends Expression {
      * Returns operator function
      * @return function to return
      */
-    public Function<List<Expression>, Expression> getFunction() {
+    public ProcedureN getFunction() {
         return this.function;
     }
 
+    /**
+     * Gets number of arguments the procedure takes directly
+     * @return Returns 0, 1, or 2, or -1 if the procedure only takes a list of arguments
+     */
+    public int getArity() {
+        if (binary != null) {
+            return 2;
+        }
+        if (unary != null) {
+            return 1;
+        }
+        return nullary != null ? 0 : -1;
+    }
+
     /**
      * Applies the operator function to a list of arguments
      * @param arguments Arguments to apply the function to
@@ -50,6 +160,33 @@ public class ProcedureExpression extends Expression {
         return function.apply(arguments);
     }
 
+    /**
+     * Applies the operator function to no arguments
+     * @return Returns the result of the function application
+     */
+    public Expression apply() {
+        return nullary != null ? nullary.apply() : function.apply(new ArrayList<>());
+    }
+
+    /**
+     * Applies the operator function to one argument
+     * @param argument Argument to apply the function to
+     * @return Returns the result of the function application
+     */
+    public Expression apply(Expression argument) {
+        return unary != null ? unary.apply(argument) : function.apply(new ArrayList<>(List.of(argument)));
+    }
+
+    /**
+     * Applies the operator function to two arguments
+     * @param first  First argument to apply the function to
+     * @param second Second argument to apply the function to
+     * @return Returns the result of the function application
+     */
+    public Expression apply(Expression first, Expression second) {
+        return binary != null ? binary.apply(first, second) : function.apply(new ArrayList<>(List.of(first, second)));
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(function);
@@ -0,0 +1,90 @@
+package expressions;
+
+import java.util.Objects;
+
+/**
+ * While loop expression. Evaluates its block for as long as its test evaluates to true,
+ * then evaluates to false. The loop runs without recursion, and its block only gets a
+ * new environment frame each time around if it has defs.
+ *
+ * @author Heath Dyer
+ */
+public class WhileExpression extends Expression {
+    /**
+     * Expression tested before every evaluation of the block
+     */
+    private Expression test;
+    /**
+     * Block evaluated while the test is true
+     */
+    private BlockExpression block;
+
+    /**
+     * Constructs new while loop given its test and block
+     *
+     * @param test  Expression to test before every evaluation of the block
+     * @param block Block to evaluate while the test is true
+     */
+    public WhileExpression(Expression test, BlockExpression block) {
+        super(ExpressionType.WHILE);
+        setTest(test);
+        setBlock(block);
+    }
+
+    /**
+     * Sets test of the while loop
+     *
+     * @param test Expression to set as test
+     */
+    public void setTest(Expression test) {
+        if (test == null) {
+            throw new IllegalArgumentException("While expression test cannot be null.");
+        }
+        this.test = test;
+    }
+
+    /**
+     * Gets test of the while loop
+     *
+     * @return Returns expression tested before every evaluation of the block
+     */
+    public Expression getTest() {
+        return test;
+    }
+
+    /**
+     * Sets block of the while loop
+     *
+     * @param block BlockExpression to set as block
+     */
+    public void setBlock(BlockExpression block) {
+        if (block == null) {
+            throw new IllegalArgumentException("While expression block cannot be null.");
+        }
+        this.block = block;
+    }
+
+    /**
+     * Gets block of the while loop
+     *
+     * @return Returns BlockExpression evaluated while the test is true
+     */
+    public BlockExpression getBlock() {
+        return block;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(block, test);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"" + WHILE_KEYWORD + "\":[" + test.toString() + "," + block.toString() + "]}";
+    }
+}
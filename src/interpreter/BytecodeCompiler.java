@@ -0,0 +1,330 @@
+package interpreter;
+
+import expressions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles desugared expression trees into bytecode chunks for the virtual machine.
+ * The program gets one chunk and the function block of every lambda gets its own chunk,
+ * which the virtual machine switches to when the lambda is called.
+ *
+ * @author Heath Dyer
+ */
+public class BytecodeCompiler {
+    /**
+     * Interpreter whose tracing option and call sites are used
+     */
+    private final Interpreter interpreter;
+    /**
+     * Compiled function blocks of every lambda expression in the program
+     */
+    private final Map<LambdaExpression, Chunk> bodies;
+    /**
+     * Every compiled chunk in the order it was compiled
+     */
+    private final List<Chunk> chunks;
+
+    /**
+     * Constructs new bytecode compiler for the given interpreter
+     *
+     * @param interpreter Interpreter to take options from
+     */
+    public BytecodeCompiler(Interpreter interpreter) {
+        if (interpreter == null) {
+            throw new IllegalArgumentException("Bytecode compiler interpreter cannot be null.");
+        }
+        this.interpreter = interpreter;
+        this.bodies = new IdentityHashMap<>();
+        this.chunks = new ArrayList<>();
+    }
+
+    /**
+     * Compiles program into a chunk ending in RETURN
+     *
+     * @param program Desugared program to compile
+     * @return Returns chunk of the program
+     */
+    public Chunk compile(Expression program) {
+        return compileChunk("program", program);
+    }
+
+    /**
+     * Gets chunk of lambda function block, compiling it if it was not part of the program
+     *
+     * @param lambda Lambda to get function block of
+     * @return Returns chunk of the function block
+     */
+    public Chunk getBody(LambdaExpression lambda) {
+        if (!bodies.containsKey(lambda)) {
+            StringBuilder name = new StringBuilder("lambda#" + (bodies.size() + 1) + "(");
+            List<IdentifierExpression> parameters = lambda.getParameters().getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                name.append(i == 0 ? "" : ", ").append(parameters.get(i).getName());
+            }
+            //reserve lambda before compiling so recursive references find it
+            bodies.put(lambda, null);
+            bodies.put(lambda, compileChunk(name.append(")").toString(), lambda.getBlock()));
+        }
+        return bodies.get(lambda);
+    }
+
+    /**
+     * Gets every chunk compiled so far, program first
+     *
+     * @return Returns list of chunks
+     */
+    public List<Chunk> getChunks() {
+        return new ArrayList<>(chunks);
+    }
+
+    /**
+     * Compiles expression into a new chunk
+     *
+     * @param name Name of the chunk
+     * @param exp  Expression to compile
+     * @return Returns compiled chunk
+     */
+    private Chunk compileChunk(String name, Expression exp) {
+        //keep chunks in order of appearance, lambdas compiled inside come after
+        int index = chunks.size();
+        chunks.add(null);
+        ChunkBuilder builder = new ChunkBuilder();
+        builder.compile(exp);
+        builder.emit(Opcode.RETURN);
+        Chunk chunk = builder.build(name);
+        chunks.set(index, chunk);
+        return chunk;
+    }
+
+    /**
+     * Instruction stream and constant pool of a chunk being compiled
+     */
+    private class ChunkBuilder {
+        /**
+         * Instruction stream
+         */
+        private int[] code = new int[64];
+        /**
+         * Length of the instruction stream
+         */
+        private int size;
+        /**
+         * Constant pool
+         */
+        private final List<Object> constants = new ArrayList<>();
+        /**
+         * Index of each constant, by identity
+         */
+        private final Map<Object, Integer> indexes = new IdentityHashMap<>();
+        /**
+         * Index of each identifier constant, by name and lexical address, so each is stored once
+         */
+        private final Map<List<Object>, Integer> identifiers = new HashMap<>();
+
+        /**
+         * Compiles expression, leaving its value on the operand stack
+         *
+         * @param exp Expression to compile
+         */
+        private void compile(Expression exp) {
+            //tracing is decided at compile time so untraced code has no TRACE instructions
+            if (interpreter.isTracing()) {
+                emit(Opcode.TRACE, constant(exp));
+            }
+            switch (exp.getType()) {
+                //values evaluate to themselves
+                case INTEGER, STRING, BOOLEAN, LIST, PROCEDURE -> emit(Opcode.CONST, constant(exp));
+                case LAMBDA -> {
+                    getBody((LambdaExpression) exp);
+                    emit(Opcode.CONST, constant(exp));
+                }
+                case BLOCK -> compileBlock((BlockExpression) exp);
+                case COND -> compileConditional((ConditionalExpression) exp);
+                case WHILE -> compileWhile((WhileExpression) exp);
+                case LET -> {
+                    LetExpression let = (LetExpression) exp;
+                    compile(let.getExpression());
+                    emit(Opcode.LET, constant(let));
+                    compile(let.getBlock());
+                    emit(Opcode.LEAVE);
+                }
+                case DEFINITION -> {
+                    DefinitionExpression def = (DefinitionExpression) exp;
+                    compile(def.getExpression());
+                    emit(Opcode.DEFINE, constant(def.getIdentifier()));
+                }
+                case ASSIGNMENT -> {
+                    AssignmentExpression assign = (AssignmentExpression) exp;
+                    compile(assign.getExpression());
+                    emit(Opcode.ASSIGN, constant(assign.getIdentifier()));
+                }
+                case APPLICATION -> compileApplication((ApplicationExpression) exp);
+                case IDENTIFIER -> emit(Opcode.LOOKUP, constant(exp));
+                //errors are raised when the instruction runs, same as the tree walker
+                case DUMMY -> emit(Opcode.FAIL, constant("Interpreter tried evaluating dummy value bound during def expression."));
+                default -> emit(Opcode.FAIL, constant("Expression " + exp.getType().toString() + " is supported by the JSON deserializer but not the interpreter."));
+            }
+        }
+
+        /**
+         * Compiles block. Def identifiers are collected ahead of time for ENTER, and blocks
+         * without defs do not enter a frame at all.
+         *
+         * @param block Block expression to compile
+         */
+        private void compileBlock(BlockExpression block) {
+            if (block.needsFrame()) {
+                emit(Opcode.ENTER, constant(block.getDefinitions()));
+            }
+            //return false if empty
+            if (block.getBlock().isEmpty()) {
+                emit(Opcode.CONST, constant(BooleanExpression.FALSE));
+            }
+            for (int i = 0; i < block.getBlock().size(); i++) {
+                if (i > 0) {
+                    emit(Opcode.POP);
+                }
+                compile(block.getBlock().get(i));
+            }
+            if (block.needsFrame()) {
+                emit(Opcode.LEAVE);
+            }
+        }
+
+        /**
+         * Compiles conditional into a chain of tests jumping to the next clause when false
+         *
+         * @param cond Conditional expression to compile
+         */
+        private void compileConditional(ConditionalExpression cond) {
+            List<Integer> exits = new ArrayList<>();
+            for (ClauseExpression clause : cond.getClauses()) {
+                compile(clause.getTest());
+                int next = emitJump(Opcode.JUMP_IF_FALSE);
+                compile(clause.getConsequent());
+                exits.add(emitJump(Opcode.JUMP));
+                patch(next);
+            }
+            //return false if no test returns true
+            emit(Opcode.CONST, constant(BooleanExpression.FALSE));
+            for (int exit : exits) {
+                patch(exit);
+            }
+        }
+
+        /**
+         * Compiles while loop into a test jumping out of the loop when false, followed by
+         * the block and a jump back to the test
+         *
+         * @param loop While expression to compile
+         */
+        private void compileWhile(WhileExpression loop) {
+            int start = size;
+            compile(loop.getTest());
+            int exit = emitJump(Opcode.JUMP_IF_FALSE);
+            compile(loop.getBlock());
+            emit(Opcode.POP);
+            emit(Opcode.JUMP, start);
+            patch(exit);
+            emit(Opcode.CONST, constant(BooleanExpression.FALSE));
+        }
+
+        /**
+         * Compiles function application. If the call site can cache its operator lookup,
+         * the operator code is skipped while the cached operator is valid.
+         *
+         * @param exp Application expression to compile
+         */
+        private void compileApplication(ApplicationExpression exp) {
+            CallSite callSite = interpreter.callSite(exp);
+            int site = constant(callSite);
+            if (callSite.isStable()) {
+                int skip = emitJump(Opcode.CACHED, site);
+                compile(exp.getArguments().get(0));
+                emit(Opcode.RESOLVE, site);
+                patch(skip);
+            } else {
+                compile(exp.getArguments().get(0));
+            }
+            List<Expression> operands = exp.getArguments().subList(1, exp.getArguments().size());
+            for (Expression operand : operands) {
+                compile(operand);
+            }
+            emit(Opcode.CALL, site, operands.size());
+        }
+
+        /**
+         * Emits jump with a target to be patched. The target is the last operand.
+         *
+         * @param opcode   Jump opcode
+         * @param operands Operands before the target
+         * @return Returns address of the target operand
+         */
+        private int emitJump(int opcode, int... operands) {
+            emit(opcode);
+            emit(operands);
+            emit(0);
+            return size - 1;
+        }
+
+        /**
+         * Sets target operand at the given address to the current end of the code
+         *
+         * @param address Address of the target operand
+         */
+        private void patch(int address) {
+            code[address] = size;
+        }
+
+        /**
+         * Appends instruction to the instruction stream
+         *
+         * @param instruction Opcode followed by its operands
+         */
+        private void emit(int... instruction) {
+            if (size + instruction.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+            }
+            System.arraycopy(instruction, 0, code, size, instruction.length);
+            size += instruction.length;
+        }
+
+        /**
+         * Gets index of constant, adding it to the pool if needed
+         *
+         * @param constant Constant to add
+         * @return Returns index of the constant
+         */
+        private int constant(Object constant) {
+            List<Object> key = constant instanceof IdentifierExpression identifier
+                    ? List.of(identifier, identifier.getDepth(), identifier.getSlot()) : null;
+            Integer index = key != null ? identifiers.get(key) : indexes.get(constant);
+            if (index == null) {
+                index = constants.size();
+                constants.add(constant);
+                if (key != null) {
+                    identifiers.put(key, index);
+                } else {
+                    indexes.put(constant, index);
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Builds chunk from the compiled code
+         *
+         * @param name Name of the chunk
+         * @return Returns chunk
+         */
+        private Chunk build(String name) {
+            return new Chunk(name, Arrays.copyOf(code, size), constants.toArray());
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package interpreter;
+
+import expressions.ApplicationExpression;
+import expressions.Expression;
+import expressions.ExpressionType;
+import expressions.IdentifierExpression;
+import expressions.IntegerExpression;
+import expressions.ProcedureExpression;
+
+/**
+ * Inline cache of a single function application. Remembers the callees seen at the
+ * call site along with their kind, up to MAX_CALLEES of them, after which the site is
+ * megamorphic and stops caching. Sites whose operator is a prelude identifier that the
+ * program never rebinds also cache the looked up operator so the environment chain is
+ * not walked again until an assignment changes the interpreter's binding epoch.
+ * <p>
+ * Sites calling a built in integer procedure with two operands also record the operand
+ * types. Once SPECULATION_THRESHOLD calls in a row saw the same procedure and integer
+ * operands, the site speculates that it always will and computes the result from the
+ * unboxed values. A call breaking the speculation deoptimizes the site back to the
+ * generic procedure for good.
+ *
+ * @author Heath Dyer
+ */
+public class CallSite {
+    /**
+     * Maximum number of callees cached before the site becomes megamorphic
+     */
+    public static final int MAX_CALLEES = 4;
+    /**
+     * Number of calls in a row with integer operands before the site speculates
+     */
+    public static final int SPECULATION_THRESHOLD = 8;
+    /**
+     * Application expression of the call site
+     */
+    private final ApplicationExpression expression;
+    /**
+     * True if the operator lookup can be cached
+     */
+    private final boolean stable;
+    /**
+     * Operator found by the last cached lookup, null if none
+     */
+    private Expression resolved;
+    /**
+     * Binding epoch the cached lookup was made in
+     */
+    private int epoch;
+    /**
+     * Callees seen at the call site
+     */
+    private final Expression[] callees;
+    /**
+     * Kinds of the callees seen at the call site
+     */
+    private final ExpressionType[] kinds;
+    /**
+     * Number of cached callees
+     */
+    private int size;
+    /**
+     * True once more than MAX_CALLEES callees have been seen
+     */
+    private boolean megamorphic;
+    /**
+     * Number of calls whose callee was cached
+     */
+    private long hits;
+    /**
+     * Number of calls whose callee was not cached
+     */
+    private long misses;
+    /**
+     * Integer operation the site speculates on, null if it does not speculate
+     */
+    private IntegerOperation speculation;
+    /**
+     * Procedure the recorded calls called
+     */
+    private ProcedureExpression speculated;
+    /**
+     * Number of calls in a row with integer operands to the recorded procedure
+     */
+    private int integerCalls;
+    /**
+     * True while calls are recorded to decide whether to speculate
+     */
+    private boolean recording;
+    /**
+     * True once the site has speculated
+     */
+    private boolean specialized;
+    /**
+     * True once a call has broken the speculation
+     */
+    private boolean deoptimized;
+
+    /**
+     * Constructs new call site
+     *
+     * @param expression Application expression of the call site
+     * @param stable     True if the operator is an identifier whose lookup can be cached
+     */
+    public CallSite(ApplicationExpression expression, boolean stable) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Call site expression cannot be null.");
+        }
+        this.expression = expression;
+        this.stable = stable && !expression.getArguments().isEmpty()
+                && expression.getArguments().get(0).getType() == ExpressionType.IDENTIFIER;
+        this.callees = new Expression[MAX_CALLEES];
+        this.kinds = new ExpressionType[MAX_CALLEES];
+        this.recording = true;
+    }
+
+    /**
+     * Gets operator from the last cached lookup if it was made in the given epoch
+     *
+     * @param epoch Current binding epoch
+     * @return Returns cached operator, or null if the operator must be evaluated
+     */
+    public Expression getOperator(int epoch) {
+        return resolved != null && this.epoch == epoch ? resolved : null;
+    }
+
+    /**
+     * Caches operator found by evaluating the operator of the call site
+     *
+     * @param operator Evaluated operator
+     * @param epoch    Binding epoch the operator was evaluated in
+     */
+    public void setOperator(Expression operator, int epoch) {
+        if (stable) {
+            this.resolved = operator;
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * Records a call of the given callee and returns its kind, from the cache if the
+     * callee has been seen here before.
+     *
+     * @param callee Evaluated operator being called
+     * @return Returns kind of the callee
+     */
+    public ExpressionType getKind(Expression callee) {
+        for (int i = 0; i < size; i++) {
+            if (callees[i] == callee) {
+                hits++;
+                return kinds[i];
+            }
+        }
+        misses++;
+        ExpressionType kind = callee.getType();
+        if (size < MAX_CALLEES) {
+            callees[size] = callee;
+            kinds[size] = kind;
+            size++;
+        } else {
+            megamorphic = true;
+        }
+        return kind;
+    }
+
+    /**
+     * Applies procedure to two operands, computing integer operations from the unboxed
+     * values while the site's speculation holds and recording the operand types otherwise.
+     *
+     * @param procedure Procedure being called
+     * @param first     First operand
+     * @param second    Second operand
+     * @return Returns result of the procedure
+     */
+    public Expression apply(ProcedureExpression procedure, Expression first, Expression second) {
+        if (speculation != null) {
+            //guard the speculation
+            if (procedure == speculated && first.getType() == ExpressionType.INTEGER && second.getType() == ExpressionType.INTEGER) {
+                Expression result = speculation.apply(((IntegerExpression) first).getValue(), ((IntegerExpression) second).getValue());
+                //overflow is reported by the procedure
+                if (result != null) {
+                    return result;
+                }
+            } else {
+                speculation = null;
+                deoptimized = true;
+            }
+        } else if (recording) {
+            record(procedure, first, second);
+        }
+        return procedure.apply(first, second);
+    }
+
+    /**
+     * Records the procedure and operand types of a call, speculating once enough calls in
+     * a row had integer operands
+     *
+     * @param procedure Procedure being called
+     * @param first     First operand
+     * @param second    Second operand
+     */
+    private void record(ProcedureExpression procedure, Expression first, Expression second) {
+        if (first.getType() != ExpressionType.INTEGER || second.getType() != ExpressionType.INTEGER) {
+            integerCalls = 0;
+            return;
+        }
+        if (procedure != speculated) {
+            speculated = procedure;
+            integerCalls = 0;
+        }
+        integerCalls++;
+        if (integerCalls >= SPECULATION_THRESHOLD) {
+            speculation = IntegerOperation.of(procedure);
+            specialized = speculation != null;
+            recording = false;
+        }
+    }
+
+    /**
+     * Returns true if the site has specialized to an integer operation
+     *
+     * @return True if the site speculated on integer operands
+     */
+    public boolean isSpecialized() {
+        return specialized;
+    }
+
+    /**
+     * Returns true if a call broke the site's speculation on integer operands
+     *
+     * @return True if the site was deoptimized
+     */
+    public boolean isDeoptimized() {
+        return deoptimized;
+    }
+
+    /**
+     * Returns true if the operator lookup of the call site can be cached
+     *
+     * @return True if operator lookup can be cached
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    /**
+     * Gets application expression of the call site
+     *
+     * @return Returns application expression
+     */
+    public ApplicationExpression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Gets number of distinct callees cached
+     *
+     * @return Returns number of cached callees
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns true if the site has seen more callees than it can cache
+     *
+     * @return True if megamorphic
+     */
+    public boolean isMegamorphic() {
+        return megamorphic;
+    }
+
+    /**
+     * Gets number of calls whose callee was cached
+     *
+     * @return Returns number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets number of calls whose callee was not cached
+     *
+     * @return Returns number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public String toString() {
+        Expression operator = expression.getArguments().isEmpty() ? expression : expression.getArguments().get(0);
+        String name = operator.getType() == ExpressionType.IDENTIFIER
+                ? ((IdentifierExpression) operator).getName() : operator.getType().toString();
+        return name + ": hits " + hits + ", misses " + misses + ", callees " + size + (megamorphic ? " (megamorphic)" : "");
+    }
+}
@@ -0,0 +1,70 @@
+package interpreter;
+
+/**
+ * Unit of compiled bytecode: the instruction stream of the program or of one lambda's
+ * function block, with the constant pool its instructions index into.
+ *
+ * @author Heath Dyer
+ */
+public class Chunk {
+    /**
+     * Name of the chunk shown by the disassembler
+     */
+    private final String name;
+    /**
+     * Instruction stream
+     */
+    private final int[] code;
+    /**
+     * Constant pool
+     */
+    private final Object[] constants;
+
+    /**
+     * Constructs new chunk
+     *
+     * @param name      Name of the chunk
+     * @param code      Instruction stream
+     * @param constants Constant pool
+     */
+    public Chunk(String name, int[] code, Object[] constants) {
+        if (name == null || code == null || constants == null) {
+            throw new IllegalArgumentException("Chunk cannot have null name, code, or constants.");
+        }
+        this.name = name;
+        this.code = code;
+        this.constants = constants;
+    }
+
+    /**
+     * Gets name of the chunk
+     *
+     * @return Returns name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets instruction stream
+     *
+     * @return Returns instruction stream
+     */
+    public int[] getCode() {
+        return code;
+    }
+
+    /**
+     * Gets constant pool
+     *
+     * @return Returns constant pool
+     */
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    @Override
+    public String toString() {
+        return Disassembler.disassemble(this);
+    }
+}
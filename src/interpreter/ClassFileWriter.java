@@ -0,0 +1,651 @@
+package interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal class file writer used by the JIT tier. Only supports what compiled lambdas
+ * need: reference typed fields, methods with a single code attribute, and the handful
+ * of instructions the JIT emits. Classes are written with major version 50 so they can
+ * be verified without stack map frames.
+ *
+ * @author Heath Dyer
+ */
+class ClassFileWriter {
+    /** Public access flag */
+    static final int ACC_PUBLIC = 0x0001;
+    /** Private access flag */
+    static final int ACC_PRIVATE = 0x0002;
+    /** Final access flag */
+    static final int ACC_FINAL = 0x0010;
+    /** Super access flag, required on classes */
+    static final int ACC_SUPER = 0x0020;
+
+    /** Class file major version (Java 6) */
+    private static final int MAJOR_VERSION = 50;
+
+    /** Constant pool contents */
+    private final ByteArrayOutputStream pool;
+    /** Constant pool index of each added entry */
+    private final Map<String, Integer> poolIndex;
+    /** Next constant pool index */
+    private int poolSize;
+    /** Index of this class */
+    private final int thisClass;
+    /** Index of super class */
+    private final int superClass;
+    /** Indices of implemented interfaces */
+    private final int[] interfaces;
+    /** Written fields as access flags, name index and descriptor index */
+    private final List<int[]> fields;
+    /** Written methods */
+    private final List<MethodWriter> methods;
+
+    /**
+     * Constructs new class file writer
+     *
+     * @param name       Internal name of class
+     * @param superName  Internal name of super class
+     * @param interfaces Internal names of implemented interfaces
+     */
+    ClassFileWriter(String name, String superName, String... interfaces) {
+        this.pool = new ByteArrayOutputStream();
+        this.poolIndex = new HashMap<>();
+        this.poolSize = 1;
+        this.fields = new ArrayList<>();
+        this.methods = new ArrayList<>();
+        this.thisClass = classRef(name);
+        this.superClass = classRef(superName);
+        this.interfaces = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            this.interfaces[i] = classRef(interfaces[i]);
+        }
+    }
+
+    /**
+     * Adds entry to the constant pool unless an equal entry was already added
+     *
+     * @param key   Unique key of the entry
+     * @param bytes Encoded entry
+     * @return Returns index of the entry
+     */
+    private int entry(String key, byte[] bytes) {
+        Integer index = poolIndex.get(key);
+        if (index == null) {
+            index = poolSize++;
+            pool.writeBytes(bytes);
+            poolIndex.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Encodes constant pool entry of a tag followed by unsigned shorts
+     *
+     * @param tag    Tag of entry
+     * @param values Unsigned short values
+     * @return Returns encoded entry
+     */
+    private static byte[] encode(int tag, int... values) {
+        byte[] bytes = new byte[1 + 2 * values.length];
+        bytes[0] = (byte) tag;
+        for (int i = 0; i < values.length; i++) {
+            bytes[1 + 2 * i] = (byte) (values[i] >> 8);
+            bytes[2 + 2 * i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    /**
+     * Adds UTF8 constant
+     *
+     * @param value String value
+     * @return Returns constant pool index
+     */
+    int utf8(String value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(1);
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not encode class file constant " + value + ".");
+        }
+        return entry("Utf8:" + value, bytes.toByteArray());
+    }
+
+    /**
+     * Adds class constant
+     *
+     * @param name Internal name of class
+     * @return Returns constant pool index
+     */
+    int classRef(String name) {
+        int nameIndex = utf8(name);
+        return entry("Class:" + name, encode(7, nameIndex));
+    }
+
+    /**
+     * Adds name and type constant
+     *
+     * @param name       Member name
+     * @param descriptor Member descriptor
+     * @return Returns constant pool index
+     */
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return entry("NameAndType:" + name + ":" + descriptor, encode(12, nameIndex, descriptorIndex));
+    }
+
+    /**
+     * Adds field, method or interface method reference constant
+     *
+     * @param tag        Tag of reference
+     * @param owner      Internal name of owner class
+     * @param name       Member name
+     * @param descriptor Member descriptor
+     * @return Returns constant pool index
+     */
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int classIndex = classRef(owner);
+        int nameAndTypeIndex = nameAndType(name, descriptor);
+        return entry(tag + ":" + owner + "." + name + ":" + descriptor, encode(tag, classIndex, nameAndTypeIndex));
+    }
+
+    /**
+     * Adds field to the class
+     *
+     * @param access     Access flags
+     * @param name       Field name
+     * @param descriptor Field descriptor
+     */
+    void addField(int access, String name, String descriptor) {
+        fields.add(new int[]{access, utf8(name), utf8(descriptor)});
+    }
+
+    /**
+     * Adds method to the class and returns writer for its code
+     *
+     * @param access     Access flags
+     * @param name       Method name
+     * @param descriptor Method descriptor
+     * @return Returns writer for the method code
+     */
+    MethodWriter addMethod(int access, String name, String descriptor) {
+        MethodWriter method = new MethodWriter(access, utf8(name), utf8(descriptor), descriptor);
+        methods.add(method);
+        return method;
+    }
+
+    /**
+     * Writes the class file
+     *
+     * @return Returns bytes of class file
+     */
+    byte[] toByteArray() {
+        int codeIndex = utf8("Code");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(poolSize);
+            pool.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int index : interfaces) {
+                out.writeShort(index);
+            }
+            out.writeShort(fields.size());
+            for (int[] field : fields) {
+                out.writeShort(field[0]);
+                out.writeShort(field[1]);
+                out.writeShort(field[2]);
+                out.writeShort(0);
+            }
+            out.writeShort(methods.size());
+            for (MethodWriter method : methods) {
+                method.writeTo(out, codeIndex);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write class file.");
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Branch target inside a method. Branches to a label before it is placed are patched
+     * when the label is placed.
+     */
+    static class Label {
+        /** Position of the label, -1 until placed */
+        private int position = -1;
+        /** Positions of branch instructions waiting for this label */
+        private final List<Integer> branches = new ArrayList<>();
+    }
+
+    /**
+     * Writes the code of a single method while tracking the operand stack depth
+     * and number of local variables.
+     */
+    class MethodWriter {
+        /** Access flags */
+        private final int access;
+        /** Index of method name */
+        private final int nameIndex;
+        /** Index of method descriptor */
+        private final int descriptorIndex;
+        /** Bytecode of the method */
+        private byte[] code;
+        /** Length of the bytecode */
+        private int length;
+        /** Current operand stack depth */
+        private int stack;
+        /** Max operand stack depth */
+        private int maxStack;
+        /** Number of local variable slots */
+        private int maxLocals;
+
+        /**
+         * Constructs new method writer
+         *
+         * @param access          Access flags
+         * @param nameIndex       Index of method name
+         * @param descriptorIndex Index of method descriptor
+         * @param descriptor      Method descriptor
+         */
+        private MethodWriter(int access, int nameIndex, int descriptorIndex, String descriptor) {
+            this.access = access;
+            this.nameIndex = nameIndex;
+            this.descriptorIndex = descriptorIndex;
+            this.code = new byte[64];
+            this.maxLocals = 1 + argumentCount(descriptor);
+        }
+
+        /**
+         * Counts arguments of a method descriptor. Every argument takes one slot since
+         * compiled code never passes long or double values.
+         *
+         * @param descriptor Method descriptor
+         * @return Returns number of arguments
+         */
+        private static int argumentCount(String descriptor) {
+            int count = 0;
+            int i = 1;
+            while (descriptor.charAt(i) != ')') {
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                if (descriptor.charAt(i) == 'L') {
+                    i = descriptor.indexOf(';', i);
+                }
+                i++;
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Adjusts tracked operand stack depth
+         *
+         * @param delta Change in depth
+         */
+        private void push(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        /**
+         * Gets current operand stack depth
+         *
+         * @return Current depth
+         */
+        int getStack() {
+            return stack;
+        }
+
+        /**
+         * Resets tracked operand stack depth, used after unconditional branches
+         *
+         * @param stack Depth at the next instruction
+         */
+        void setStack(int stack) {
+            this.stack = stack;
+        }
+
+        /**
+         * Reserves a new local variable slot
+         *
+         * @return Returns index of the slot
+         */
+        int newLocal() {
+            return maxLocals++;
+        }
+
+        /**
+         * Gets current length of the code
+         *
+         * @return Length of code in bytes
+         */
+        int size() {
+            return length;
+        }
+
+        /**
+         * Appends one byte to the code
+         *
+         * @param value Byte to append
+         */
+        private void put(int value) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+
+        /**
+         * Writes opcode with a one byte or two byte operand
+         *
+         * @param opcode  Opcode to write
+         * @param operand Operand of instruction
+         * @param wide    True if operand is two bytes
+         */
+        private void write(int opcode, int operand, boolean wide) {
+            put(opcode);
+            if (wide) {
+                put(operand >> 8);
+            }
+            put(operand);
+        }
+
+        /**
+         * Loads reference from local variable
+         *
+         * @param local Local variable slot
+         */
+        void aload(int local) {
+            if (local <= 3) {
+                put(0x2A + local);
+            } else {
+                write(0x19, local, false);
+            }
+            push(1);
+        }
+
+        /**
+         * Stores reference into local variable
+         *
+         * @param local Local variable slot
+         */
+        void astore(int local) {
+            if (local <= 3) {
+                put(0x4B + local);
+            } else {
+                write(0x3A, local, false);
+            }
+            push(-1);
+        }
+
+        /**
+         * Pushes null reference
+         */
+        void aconstNull() {
+            put(0x01);
+            push(1);
+        }
+
+        /**
+         * Pushes int constant
+         *
+         * @param value Value to push
+         */
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                put(0x03 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                write(0x10, value, false);
+            } else {
+                write(0x11, value, true);
+            }
+            push(1);
+        }
+
+        /**
+         * Loads element of reference array
+         */
+        void aaload() {
+            put(0x32);
+            push(-1);
+        }
+
+        /**
+         * Pops top of operand stack
+         */
+        void pop() {
+            put(0x57);
+            push(-1);
+        }
+
+        /**
+         * Duplicates top of operand stack
+         */
+        void dup() {
+            put(0x59);
+            push(1);
+        }
+
+        /**
+         * Creates new uninitialized object
+         *
+         * @param type Internal name of class
+         */
+        void newObject(String type) {
+            write(0xBB, classRef(type), true);
+            push(1);
+        }
+
+        /**
+         * Casts reference on top of the stack
+         *
+         * @param type Internal name of class
+         */
+        void checkcast(String type) {
+            write(0xC0, classRef(type), true);
+        }
+
+        /**
+         * Reads instance field
+         *
+         * @param owner      Internal name of owner
+         * @param name       Field name
+         * @param descriptor Field descriptor
+         */
+        void getfield(String owner, String name, String descriptor) {
+            write(0xB4, memberRef(9, owner, name, descriptor), true);
+        }
+
+        /**
+         * Writes instance field
+         *
+         * @param owner      Internal name of owner
+         * @param name       Field name
+         * @param descriptor Field descriptor
+         */
+        void putfield(String owner, String name, String descriptor) {
+            write(0xB5, memberRef(9, owner, name, descriptor), true);
+            push(-2);
+        }
+
+        /**
+         * Invokes static method
+         *
+         * @param owner      Internal name of owner
+         * @param name       Method name
+         * @param descriptor Method descriptor
+         */
+        void invokestatic(String owner, String name, String descriptor) {
+            write(0xB8, memberRef(10, owner, name, descriptor), true);
+            push(-argumentCount(descriptor) + returnSize(descriptor));
+        }
+
+        /**
+         * Invokes virtual method
+         *
+         * @param owner      Internal name of owner
+         * @param name       Method name
+         * @param descriptor Method descriptor
+         */
+        void invokevirtual(String owner, String name, String descriptor) {
+            write(0xB6, memberRef(10, owner, name, descriptor), true);
+            push(-1 - argumentCount(descriptor) + returnSize(descriptor));
+        }
+
+        /**
+         * Invokes constructor or super method
+         *
+         * @param owner      Internal name of owner
+         * @param name       Method name
+         * @param descriptor Method descriptor
+         */
+        void invokespecial(String owner, String name, String descriptor) {
+            write(0xB7, memberRef(10, owner, name, descriptor), true);
+            push(-1 - argumentCount(descriptor) + returnSize(descriptor));
+        }
+
+        /**
+         * Invokes interface method
+         *
+         * @param owner      Internal name of owner
+         * @param name       Method name
+         * @param descriptor Method descriptor
+         */
+        void invokeinterface(String owner, String name, String descriptor) {
+            int count = argumentCount(descriptor);
+            write(0xB9, memberRef(11, owner, name, descriptor), true);
+            put(count + 1);
+            put(0);
+            push(-1 - count + returnSize(descriptor));
+        }
+
+        /**
+         * Gets stack size of return value of a method descriptor
+         *
+         * @param descriptor Method descriptor
+         * @return Returns 0 for void, otherwise 1
+         */
+        private static int returnSize(String descriptor) {
+            return descriptor.endsWith(")V") ? 0 : 1;
+        }
+
+        /**
+         * Branches to label if int on top of the stack is zero
+         *
+         * @param label Label to branch to
+         */
+        void ifeq(Label label) {
+            branch(0x99, label);
+            push(-1);
+        }
+
+        /**
+         * Branches to label unconditionally
+         *
+         * @param label Label to branch to
+         */
+        void goTo(Label label) {
+            branch(0xA7, label);
+        }
+
+        /**
+         * Writes branch instruction to label
+         *
+         * @param opcode Branch opcode
+         * @param label  Label to branch to
+         */
+        private void branch(int opcode, Label label) {
+            int position = length;
+            put(opcode);
+            put(0);
+            put(0);
+            if (label.position >= 0) {
+                patch(position, label.position);
+            } else {
+                label.branches.add(position);
+            }
+        }
+
+        /**
+         * Places label at the current position, patching branches already written to it
+         *
+         * @param label Label to place
+         */
+        void place(Label label) {
+            label.position = length;
+            for (int position : label.branches) {
+                patch(position, label.position);
+            }
+            label.branches.clear();
+        }
+
+        /**
+         * Writes offset of a branch instruction
+         *
+         * @param position Position of branch instruction
+         * @param target   Position of branch target
+         */
+        private void patch(int position, int target) {
+            int offset = target - position;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new IllegalStateException("Branch offset too large for compiled method.");
+            }
+            code[position + 1] = (byte) (offset >> 8);
+            code[position + 2] = (byte) offset;
+        }
+
+        /**
+         * Returns reference on top of the stack
+         */
+        void areturn() {
+            put(0xB0);
+            push(-1);
+        }
+
+        /**
+         * Returns from void method
+         */
+        void vreturn() {
+            put(0xB1);
+        }
+
+        /**
+         * Writes method with its code attribute
+         *
+         * @param out       Stream to write to
+         * @param codeIndex Index of "Code" constant
+         * @throws IOException Throws if writing fails
+         */
+        private void writeTo(DataOutputStream out, int codeIndex) throws IOException {
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1);
+            out.writeShort(codeIndex);
+            out.writeInt(12 + length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+    }
+}
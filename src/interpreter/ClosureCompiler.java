@@ -0,0 +1,354 @@
+package interpreter;
+
+import expressions.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static interpreter.Interpreter.*;
+
+/**
+ * Closure compiler for the interpreter. Turns a desugared expression tree into a tree
+ * of executable nodes once, so that each node is linked directly to its children and
+ * no longer dispatches on expression type when it runs. Evaluation results match
+ * Interpreter.evaluate().
+ *
+ * @author Heath Dyer
+ */
+public class ClosureCompiler {
+    /**
+     * Interpreter whose scoping rules and tracing options are used
+     */
+    private final Interpreter interpreter;
+    /**
+     * Compiled function blocks of every lambda expression in the program
+     */
+    private final Map<LambdaExpression, Node> bodies;
+
+    /**
+     * Constructs new closure compiler for the given interpreter
+     *
+     * @param interpreter Interpreter to take options from
+     */
+    public ClosureCompiler(Interpreter interpreter) {
+        if (interpreter == null) {
+            throw new IllegalArgumentException("Closure compiler interpreter cannot be null.");
+        }
+        this.interpreter = interpreter;
+        this.bodies = new IdentityHashMap<>();
+    }
+
+    /**
+     * Compiles expression into an executable node.
+     *
+     * @param exp Desugared expression to compile
+     * @return Returns executable node
+     */
+    public Node compile(Expression exp) {
+        Node node = switch (exp.getType()) {
+            //values evaluate to themselves
+            case INTEGER, STRING, BOOLEAN, LIST, PROCEDURE -> env -> exp;
+            case LAMBDA -> compileLambda((LambdaExpression) exp);
+            case BLOCK -> compileBlock((BlockExpression) exp);
+            case COND -> compileConditional((ConditionalExpression) exp);
+            case LET -> compileLet((LetExpression) exp);
+            case WHILE -> compileWhile((WhileExpression) exp);
+            case DEFINITION -> compileDefinition((DefinitionExpression) exp);
+            case ASSIGNMENT -> compileAssignment((AssignmentExpression) exp);
+            case APPLICATION -> compileApplication((ApplicationExpression) exp);
+            case IDENTIFIER -> compileIdentifier((IdentifierExpression) exp);
+            //errors are raised when the node runs, same as the tree walker
+            case DUMMY -> env -> {
+                throw new RuntimeException("Interpreter tried evaluating dummy value bound during def expression.");
+            };
+            default -> env -> {
+                throw new RuntimeException("Expression " + exp.getType().toString() + " is supported by the JSON deserializer but not the interpreter.");
+            };
+        };
+        //tracing is decided at compile time so untraced nodes pay nothing for it
+        if (interpreter.isTracing()) {
+            Node traced = node;
+            return env -> {
+                System.out.println("Evaluating " + exp.getType().toString() + " expression: " + exp);
+                return traced.execute(env);
+            };
+        }
+        return node;
+    }
+
+    /**
+     * Compiles lambda by compiling its function block. The lambda evaluates to itself.
+     *
+     * @param lambda Lambda expression to compile
+     * @return Returns node returning the lambda
+     */
+    private Node compileLambda(LambdaExpression lambda) {
+        if (!bodies.containsKey(lambda)) {
+            bodies.put(lambda, compile(lambda.getBlock()));
+        }
+        return env -> lambda;
+    }
+
+    /**
+     * Compiles block. Def identifiers are collected ahead of time so they can be
+     * bound to dummy values without scanning the block at run time. Blocks without defs
+     * run in the environment around them.
+     *
+     * @param block Block expression to compile
+     * @return Returns node executing the block
+     */
+    private Node compileBlock(BlockExpression block) {
+        List<IdentifierExpression> defs = block.getDefinitions();
+        Node[] nodes = compileAll(block.getBlock());
+        boolean needsFrame = block.needsFrame();
+        return env -> {
+            Environment newEnv = needsFrame ? extend(defs, env) : env;
+            //return false if empty
+            if (nodes.length == 0) {
+                return BooleanExpression.FALSE;
+            }
+            for (int i = 0; i < nodes.length - 1; i++) {
+                nodes[i].execute(newEnv);
+            }
+            return nodes[nodes.length - 1].execute(newEnv);
+        };
+    }
+
+    /**
+     * Compiles conditional into parallel arrays of test and consequent nodes.
+     *
+     * @param cond Conditional expression to compile
+     * @return Returns node executing the conditional
+     */
+    private Node compileConditional(ConditionalExpression cond) {
+        List<ClauseExpression> clauses = cond.getClauses();
+        Node[] tests = new Node[clauses.size()];
+        Node[] consequents = new Node[clauses.size()];
+        for (int i = 0; i < clauses.size(); i++) {
+            tests[i] = compile(clauses.get(i).getTest());
+            consequents[i] = compile(clauses.get(i).getConsequent());
+        }
+        return env -> {
+            for (int i = 0; i < tests.length; i++) {
+                if (test(tests[i].execute(env))) {
+                    return consequents[i].execute(env);
+                }
+            }
+            //return false if no test returns true
+            return BooleanExpression.FALSE;
+        };
+    }
+
+    /**
+     * Compiles while loop into a Java loop over its test and block nodes.
+     *
+     * @param loop While expression to compile
+     * @return Returns node executing the loop
+     */
+    private Node compileWhile(WhileExpression loop) {
+        Node test = compile(loop.getTest());
+        Node block = compile(loop.getBlock());
+        return env -> {
+            while (test(test.execute(env))) {
+                interpreter.countStep();
+                block.execute(env);
+            }
+            return BooleanExpression.FALSE;
+        };
+    }
+
+    /**
+     * Compiles let expression.
+     *
+     * @param let Let expression to compile
+     * @return Returns node executing the let expression
+     */
+    private Node compileLet(LetExpression let) {
+        Node value = compile(let.getExpression());
+        Node block = compile(let.getBlock());
+        return env -> block.execute(interpreter.extendLet(let, value.execute(env), env));
+    }
+
+    /**
+     * Compiles definition expression.
+     *
+     * @param def Definition expression to compile
+     * @return Returns node executing the definition
+     */
+    private Node compileDefinition(DefinitionExpression def) {
+        IdentifierExpression identifier = def.getIdentifier();
+        Node value = compile(def.getExpression());
+        return env -> interpreter.define(identifier, value.execute(env), env);
+    }
+
+    /**
+     * Compiles assignment expression.
+     *
+     * @param exp Assignment expression to compile
+     * @return Returns node executing the assignment
+     */
+    private Node compileAssignment(AssignmentExpression exp) {
+        IdentifierExpression identifier = exp.getIdentifier();
+        Node value = compile(exp.getExpression());
+        return env -> interpreter.assign(identifier, value.execute(env), env);
+    }
+
+    /**
+     * Compiles function application. The operator and operands are linked as nodes and
+     * lambda operators run their compiled function block directly. Calls with at most two
+     * operands are linked to the procedure form taking that many arguments, so their
+     * operands are not collected. The call site's inline cache is shared with the tree walker.
+     *
+     * @param exp Application expression to compile
+     * @return Returns node executing the application
+     */
+    private Node compileApplication(ApplicationExpression exp) {
+        Node operatorNode = compile(exp.getArguments().get(0));
+        Node[] operandNodes = compileAll(exp.getArguments().subList(1, exp.getArguments().size()));
+        CallSite site = interpreter.callSite(exp);
+        switch (operandNodes.length) {
+            case 0 -> {
+                return env -> {
+                    Expression operator = operator(site, operatorNode, env);
+                    ExpressionType kind = site.getKind(operator);
+                    if (kind == ExpressionType.PROCEDURE) {
+                        return ((ProcedureExpression) operator).apply();
+                    }
+                    return call(exp, operator, kind, operands(0, null, null), env);
+                };
+            }
+            case 1 -> {
+                Node firstNode = operandNodes[0];
+                return env -> {
+                    Expression operator = operator(site, operatorNode, env);
+                    Expression first = firstNode.execute(env);
+                    ExpressionType kind = site.getKind(operator);
+                    if (kind == ExpressionType.PROCEDURE) {
+                        return ((ProcedureExpression) operator).apply(first);
+                    }
+                    return call(exp, operator, kind, operands(1, first, null), env);
+                };
+            }
+            case 2 -> {
+                Node firstNode = operandNodes[0];
+                Node secondNode = operandNodes[1];
+                return env -> {
+                    Expression operator = operator(site, operatorNode, env);
+                    Expression first = firstNode.execute(env);
+                    Expression second = secondNode.execute(env);
+                    ExpressionType kind = site.getKind(operator);
+                    if (kind == ExpressionType.PROCEDURE) {
+                        return site.apply((ProcedureExpression) operator, first, second);
+                    }
+                    return call(exp, operator, kind, operands(2, first, second), env);
+                };
+            }
+            default -> {
+                return env -> {
+                    Expression operator = operator(site, operatorNode, env);
+                    List<Expression> operands = new ArrayList<>(operandNodes.length);
+                    for (Node operand : operandNodes) {
+                        operands.add(operand.execute(env));
+                    }
+                    return call(exp, operator, site.getKind(operator), operands, env);
+                };
+            }
+        }
+    }
+
+    /**
+     * Gets operator of a function application, from the call site's inline cache if its
+     * lookup is still valid
+     *
+     * @param site         Call site of the application
+     * @param operatorNode Node evaluating the operator
+     * @param env          Environment of the application
+     * @return Returns evaluated operator
+     */
+    private Expression operator(CallSite site, Node operatorNode, Environment env) {
+        Expression operator = site.getOperator(interpreter.getEpoch());
+        if (operator == null) {
+            operator = operatorNode.execute(env);
+            site.setOperator(operator, interpreter.getEpoch());
+        }
+        return operator;
+    }
+
+    /**
+     * Calls an evaluated operator with a list of evaluated operands
+     *
+     * @param exp      Application expression being applied
+     * @param operator Evaluated operator
+     * @param kind     Expression type of the operator
+     * @param operands Evaluated operands
+     * @param env      Environment of the application
+     * @return Returns result of function application
+     */
+    private Expression call(ApplicationExpression exp, Expression operator, ExpressionType kind, List<Expression> operands, Environment env) {
+        //is build in procedure application?
+        if (kind == ExpressionType.PROCEDURE) {
+            return ((ProcedureExpression) operator).apply(operands);
+        }
+        //is lambda function application?
+        if (kind == ExpressionType.LAMBDA) {
+            //memoized lambdas are looked up in their cache first
+            if (operator instanceof MemoExpression memo && MemoExpression.isCacheable(operands)) {
+                Expression result = interpreter.recall(memo, operands);
+                if (result == null) {
+                    result = call(exp, memo.getLambda(), kind, operands, env);
+                    interpreter.remember(memo, operands, result);
+                }
+                return result;
+            }
+            LambdaExpression lambda = (LambdaExpression) operator;
+            Environment extendedEnv = extend(lambda.getParameters().getParameters(), operands,
+                    interpreter.isLexicalScope() && lambda.getEnvironment() != null ? lambda.getEnvironment() : env);
+            interpreter.enterCall();
+            Expression result = body(lambda.getCode()).execute(extendedEnv);
+            interpreter.leaveCall();
+            return result;
+        }
+        throw new RuntimeException("Not a built in procedure " + exp);
+    }
+
+    /**
+     * Compiles identifier lookup.
+     *
+     * @param identifier Identifier to compile
+     * @return Returns node looking up the identifier
+     */
+    private Node compileIdentifier(IdentifierExpression identifier) {
+        return env -> lookup(identifier, env);
+    }
+
+    /**
+     * Compiles list of expressions into an array of nodes
+     *
+     * @param exps Expressions to compile
+     * @return Returns array of compiled nodes
+     */
+    private Node[] compileAll(List<Expression> exps) {
+        Node[] nodes = new Node[exps.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = compile(exps.get(i));
+        }
+        return nodes;
+    }
+
+    /**
+     * Gets compiled function block of lambda, compiling it if it was not part of the program
+     *
+     * @param lambda Lambda to get function block of
+     * @return Returns compiled function block
+     */
+    private Node body(LambdaExpression lambda) {
+        Node body = bodies.get(lambda);
+        if (body == null) {
+            compileLambda(lambda);
+            body = bodies.get(lambda);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,102 @@
+package interpreter;
+
+import expressions.Expression;
+import expressions.ExpressionType;
+import expressions.IdentifierExpression;
+import expressions.LambdaExpression;
+import expressions.LetExpression;
+
+import java.util.List;
+
+/**
+ * Disassembler for bytecode chunks. Prints one instruction per line with its address,
+ * mnemonic, operands, and a comment describing any constant it uses.
+ *
+ * @author Heath Dyer
+ */
+public abstract class Disassembler {
+
+    /**
+     * Disassembles every chunk of a program
+     *
+     * @param chunks Chunks to disassemble
+     * @return Returns disassembly of all chunks
+     */
+    public static String disassemble(List<Chunk> chunks) {
+        StringBuilder out = new StringBuilder();
+        for (Chunk chunk : chunks) {
+            out.append(disassemble(chunk)).append("\n");
+        }
+        return out.toString();
+    }
+
+    /**
+     * Disassembles chunk
+     *
+     * @param chunk Chunk to disassemble
+     * @return Returns disassembly of the chunk
+     */
+    public static String disassemble(Chunk chunk) {
+        StringBuilder out = new StringBuilder("== " + chunk.getName() + " ==\n");
+        int[] code = chunk.getCode();
+        Object[] constants = chunk.getConstants();
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            out.append(String.format("%04d  %-13s", pc, Opcode.getName(opcode)));
+            for (int i = 1; i <= Opcode.getOperands(opcode); i++) {
+                out.append(String.format(" %4d", code[pc + i]));
+            }
+            //constant is always the first operand of instructions that use one
+            switch (opcode) {
+                case Opcode.CONST, Opcode.LOOKUP, Opcode.TRACE, Opcode.ENTER, Opcode.LET, Opcode.DEFINE,
+                     Opcode.ASSIGN, Opcode.CACHED, Opcode.RESOLVE, Opcode.CALL, Opcode.FAIL ->
+                        out.append("    ; ").append(describe(constants[code[pc + 1]]));
+                default -> {
+                }
+            }
+            //no trailing spaces after instructions without operands
+            while (out.charAt(out.length() - 1) == ' ') {
+                out.setLength(out.length() - 1);
+            }
+            out.append("\n");
+            pc += 1 + Opcode.getOperands(opcode);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Describes constant in a single short line
+     *
+     * @param constant Constant to describe
+     * @return Returns description
+     */
+    private static String describe(Object constant) {
+        if (constant instanceof IdentifierExpression identifier) {
+            return identifier.getName();
+        }
+        if (constant instanceof List<?> identifiers) {
+            StringBuilder names = new StringBuilder("defs [");
+            for (int i = 0; i < identifiers.size(); i++) {
+                names.append(i == 0 ? "" : ", ").append(((IdentifierExpression) identifiers.get(i)).getName());
+            }
+            return names.append("]").toString();
+        }
+        if (constant instanceof LetExpression let) {
+            return let.getIdentifier().getName() + (let.getFrame() == null ? " in slot " + let.getSlot() : "");
+        }
+        if (constant instanceof CallSite site) {
+            return "call " + describe(site.getExpression().getArguments().get(0));
+        }
+        if (constant instanceof LambdaExpression lambda) {
+            return "lambda with " + lambda.getParameters().getParameters().size() + " parameters";
+        }
+        if (constant instanceof Expression exp) {
+            return switch (exp.getType()) {
+                case INTEGER, STRING, BOOLEAN, IDENTIFIER -> exp.toString();
+                default -> exp.getType().toString();
+            };
+        }
+        return "\"" + constant + "\"";
+    }
+}
@@ -0,0 +1,37 @@
+package interpreter;
+
+/**
+ * Engines the interpreter can use to run a program.
+ *
+ * @author Heath Dyer
+ */
+public enum Engine {
+    /**
+     * Walks the expression tree, dispatching on expression type at every node
+     */
+    TREE,
+    /**
+     * Compiles the expression tree once into pre-linked executable nodes
+     */
+    CLOSURE,
+    /**
+     * Compiles the expression tree into bytecode run by a stack based virtual machine
+     */
+    VM;
+
+    /**
+     * Gets the engine with the given name, ignoring case
+     *
+     * @param name Name of engine
+     * @return Returns matching engine
+     * @throws IllegalArgumentException Throws if no engine has the given name
+     */
+    public static Engine fromName(String name) {
+        for (Engine engine : values()) {
+            if (engine.name().equalsIgnoreCase(name)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown engine \"" + name + "\".");
+    }
+}
@@ -3,30 +3,106 @@ package interpreter;
 import expressions.Expression;
 import expressions.IdentifierExpression;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 /**
- * Environment class that acts as linked list of maps of bindings
+ * Environment class that acts as linked list of frames of bindings. The identifiers of a
+ * frame are known when it is created, so identifiers the Resolver addressed are read by
+ * slot index. The initial environment frame shares its slots with the Prelude until the
+ * program first changes one of them. With dynamic scoping the initial environment may keep
+ * a shallow binding table that looks identifiers up for every frame below it.
  *
  * @author Heath Dyer
  */
 public class Environment {
     /**
-     * The map of identifiers to expressions
+     * Identifier of every slot
      */
-    private Map<IdentifierExpression, Expression> env;
+    private List<IdentifierExpression> names;
+    /**
+     * Value bound in every slot
+     */
+    private Expression[] slots;
+    /**
+     * True while the slots are shared and must be copied before writing
+     */
+    private boolean shared;
+    /**
+     * Slot of every identifier, null to search the identifiers in order
+     */
+    private Map<IdentifierExpression, Integer> index;
     /**
      * The parent environment
      */
     private Environment parent;
+    /**
+     * The initial environment at the end of the parent chain
+     */
+    private Environment root;
+    /**
+     * Number of frames above this one
+     */
+    private int depth;
+    /**
+     * Shallow binding table of the environments below this initial environment, null if
+     * identifiers are looked up by searching the frames
+     */
+    private ShallowBindings shallowBindings;
 
     /**
-     * Creates a new environment node with null parent
+     * Creates a new empty environment frame with null parent
      */
     public Environment() {
-        setEnvironment(new HashMap<IdentifierExpression, Expression>());
-        setParent(null);
+        this(List.of(), new Expression[0], (Environment) null);
+    }
+
+    /**
+     * Creates a new frame binding each identifier to the value at the same index
+     *
+     * @param names  Identifiers of the slots, not copied so it must not change
+     * @param slots  Values of the slots, not copied
+     * @param parent Parent node
+     * @throws IllegalArgumentException Throws if names or slots are null or differ in size
+     */
+    public Environment(List<IdentifierExpression> names, Expression[] slots, Environment parent) {
+        if (names == null || slots == null || names.size() != slots.length) {
+            throw new IllegalArgumentException("Environment frame must have one value for each identifier.");
+        }
+        this.names = names;
+        this.slots = slots;
+        setParent(parent);
+    }
+
+    /**
+     * Creates a new frame binding each identifier to the value at the same index, finding
+     * the slots of identifiers by an index instead of searching them in order
+     *
+     * @param names  Identifiers of the slots, not copied so it must not change
+     * @param slots  Values of the slots, not copied
+     * @param index  Slot of every identifier, not copied, null to search the identifiers in order
+     * @param parent Parent node
+     * @throws IllegalArgumentException Throws if names or slots are null or differ in size
+     */
+    public Environment(List<IdentifierExpression> names, Expression[] slots, Map<IdentifierExpression, Integer> index,
+                       Environment parent) {
+        this(names, slots, parent);
+        this.index = index;
+    }
+
+    /**
+     * Creates a new initial environment frame over shared slots, copied on first write
+     *
+     * @param names Identifiers of the slots
+     * @param slots Shared values of the slots
+     * @param index Slot of every identifier
+     */
+    Environment(List<IdentifierExpression> names, Expression[] slots, Map<IdentifierExpression, Integer> index) {
+        this(names, slots, (Environment) null);
+        this.shared = true;
+        this.index = index;
     }
 
     /**
@@ -36,6 +112,8 @@ public class Environment {
      */
     public void setParent(Environment parent) {
         this.parent = parent;
+        this.root = parent == null ? this : parent.root;
+        this.depth = parent == null ? 0 : parent.depth + 1;
     }
 
     /**
@@ -48,23 +126,125 @@ public class Environment {
     }
 
     /**
-     * Sets environment map
+     * Gets the initial environment at the end of the parent chain
      *
-     * @param env Environment map to set
+     * @return Returns root node
      */
-    public void setEnvironment(Map<IdentifierExpression, Expression> env) {
-        if (env == null) {
-            throw new IllegalArgumentException("Environment node cannot have null environment map.");
+    public Environment getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Gets number of frames above this one
+     *
+     * @return Returns depth of the frame
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets identifier of every slot of this frame
+     *
+     * @return Returns identifiers in slot order
+     */
+    public List<IdentifierExpression> getNames() {
+        return names;
+    }
+
+    /**
+     * Gets shallow binding table of the environments below this initial environment
+     *
+     * @return Returns shallow binding table, null if there is none
+     */
+    ShallowBindings getShallowBindings() {
+        return shallowBindings;
+    }
+
+    /**
+     * Sets shallow binding table of the environments below this initial environment
+     *
+     * @param shallowBindings Shallow binding table, null to search the frames
+     */
+    void setShallowBindings(ShallowBindings shallowBindings) {
+        this.shallowBindings = shallowBindings;
+    }
+
+    /**
+     * Gets value bound to identifier in this node only
+     *
+     * @param identifier Identifier to look for
+     * @return Returns bound value, null if this node does not bind the identifier
+     */
+    public Expression get(IdentifierExpression identifier) {
+        int slot = indexOf(identifier);
+        return slot < 0 ? null : slots[slot];
+    }
+
+    /**
+     * Binds identifier in this node, replacing its value if it is already bound here.
+     * Frames grow by a slot for identifiers they did not have.
+     *
+     * @param identifier Identifier to bind
+     * @param value      Value to bind
+     */
+    public void put(IdentifierExpression identifier, Expression value) {
+        int slot = indexOf(identifier);
+        if (slot < 0) {
+            names = new ArrayList<>(names);
+            names.add(identifier);
+            slots = Arrays.copyOf(slots, slots.length + 1);
+            shared = false;
+            index = null;
+            slot = slots.length - 1;
+            //the table may have pushed this frame's bindings without the new one
+            if (root.shallowBindings != null) {
+                root.shallowBindings.reset();
+            }
         }
-        this.env = env;
+        setSlot(slot, value);
+    }
+
+    /**
+     * Gets value in a slot of this frame
+     *
+     * @param slot Index of the slot
+     * @return Returns value in the slot
+     */
+    public Expression getSlot(int slot) {
+        return slots[slot];
     }
 
     /**
-     * Gets the current environment map
+     * Sets value in a slot of this frame
      *
-     * @return Returns map of identifier to expressions
+     * @param slot  Index of the slot
+     * @param value Value to set
      */
-    public Map<IdentifierExpression, Expression> getEnvironment() {
-        return this.env;
+    public void setSlot(int slot, Expression value) {
+        if (shared) {
+            slots = slots.clone();
+            shared = false;
+        }
+        slots[slot] = value;
+    }
+
+    /**
+     * Finds slot of identifier in this frame. Later slots shadow earlier ones with the same identifier.
+     *
+     * @param identifier Identifier to look for
+     * @return Returns index of the slot, -1 if not found
+     */
+    private int indexOf(IdentifierExpression identifier) {
+        if (index != null) {
+            Integer slot = index.get(identifier);
+            return slot == null ? -1 : slot;
+        }
+        for (int i = slots.length - 1; i >= 0; i--) {
+            if (names.get(i).equals(identifier)) {
+                return i;
+            }
+        }
+        return -1;
     }
-}
\ No newline at end of file
+}
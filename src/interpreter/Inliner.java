@@ -0,0 +1,444 @@
+package interpreter;
+
+import expressions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inlining pass run by the optimizer. Calls of small lambdas bound by let or def are
+ * replaced by the lambda's function block, with each parameter bound by a let to its
+ * argument, so the call does not need an environment frame of operands or a trip through
+ * the trampoline.
+ * <p>
+ * A lambda is only inlined when inlining cannot change what the program does: it is bound
+ * once and never assigned, it is only ever called and never passed around, and its function
+ * block is small, only calls built in procedures, and makes no lambdas of its own, so it can
+ * not be recursive and nothing it calls can see its parameters. Parameters are renamed in the
+ * inlined copy so they cannot capture identifiers used by the arguments. With lexical scoping,
+ * every identifier the function block does not bind must also mean the same at the call site.
+ *
+ * @author Heath Dyer
+ */
+public class Inliner {
+    /**
+     * Most expressions a function block may have to be inlined
+     */
+    public static final int SIZE_BUDGET = 16;
+
+    /**
+     * If true, identifiers free in an inlined function block must refer to the same binding at the call site
+     */
+    private final boolean lexicalScope;
+    /**
+     * Number of times the program binds each identifier with a parameter, let, or def
+     */
+    private final Map<IdentifierExpression, Integer> bindings;
+    /**
+     * Identifiers the program assigns anywhere
+     */
+    private final Set<IdentifierExpression> assigned;
+    /**
+     * Number of references to each identifier
+     */
+    private final Map<IdentifierExpression, Integer> references;
+    /**
+     * Number of references to each identifier as the operator of an application
+     */
+    private final Map<IdentifierExpression, Integer> calls;
+    /**
+     * Number of parameters renamed so far, used to make each name unique
+     */
+    private int renamed;
+    /**
+     * Number of calls inlined
+     */
+    private int inlined;
+
+    /**
+     * Constructs new inliner
+     *
+     * @param lexicalScope True if the program is evaluated with lexical scoping
+     * @param bindings     Number of times the program binds each identifier
+     * @param assigned     Identifiers the program assigns anywhere
+     */
+    public Inliner(boolean lexicalScope, Map<IdentifierExpression, Integer> bindings, Set<IdentifierExpression> assigned) {
+        this.lexicalScope = lexicalScope;
+        this.bindings = bindings;
+        this.assigned = assigned;
+        this.references = new HashMap<>();
+        this.calls = new HashMap<>();
+    }
+
+    /**
+     * Inlines calls of small lambdas in a copy of a desugared program. Expansions are spliced
+     * into the blocks and applications of the copy, so the program itself is left unchanged.
+     *
+     * @param program Desugared program
+     * @return Returns copy of the program with calls inlined
+     */
+    public Expression inline(Expression program) {
+        program = copy(program);
+        countReferences(program);
+        return inline(program, new HashMap<>(), new HashSet<>());
+    }
+
+    /**
+     * Gets number of calls inlined
+     *
+     * @return Returns number of inlined calls
+     */
+    public int getInlined() {
+        return inlined;
+    }
+
+    /**
+     * Counts references to every identifier in an expression
+     *
+     * @param exp Expression to count in
+     */
+    private void countReferences(Expression exp) {
+        switch (exp.getType()) {
+            case IDENTIFIER -> references.merge((IdentifierExpression) exp, 1, Integer::sum);
+            case APPLICATION -> {
+                List<Expression> arguments = ((ApplicationExpression) exp).getArguments();
+                if (!arguments.isEmpty() && arguments.get(0) instanceof IdentifierExpression operator) {
+                    calls.merge(operator, 1, Integer::sum);
+                }
+                for (Expression argument : arguments) {
+                    countReferences(argument);
+                }
+            }
+            case LAMBDA -> countReferences(((LambdaExpression) exp).getBlock());
+            case BLOCK -> {
+                for (Expression child : ((BlockExpression) exp).getBlock()) {
+                    countReferences(child);
+                }
+            }
+            case COND -> {
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    countReferences(clause.getTest());
+                    countReferences(clause.getConsequent());
+                }
+            }
+            case LET -> {
+                countReferences(((LetExpression) exp).getExpression());
+                countReferences(((LetExpression) exp).getBlock());
+            }
+            case WHILE -> {
+                countReferences(((WhileExpression) exp).getTest());
+                countReferences(((WhileExpression) exp).getBlock());
+            }
+            case DEFINITION -> countReferences(((DefinitionExpression) exp).getExpression());
+            case ASSIGNMENT -> countReferences(((AssignmentExpression) exp).getExpression());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Recursively inlines calls in an expression
+     *
+     * @param exp     Expression to inline calls in
+     * @param lambdas Lambdas that may be inlined, by identifier, in scope of the expression
+     * @param scope   Identifiers bound in scope of the expression
+     * @return Returns expression with calls inlined
+     */
+    private Expression inline(Expression exp, Map<IdentifierExpression, LambdaExpression> lambdas,
+                              Set<IdentifierExpression> scope) {
+        switch (exp.getType()) {
+            case APPLICATION -> {
+                ApplicationExpression app = (ApplicationExpression) exp;
+                List<Expression> arguments = app.getArguments();
+                for (int i = 0; i < arguments.size(); i++) {
+                    arguments.set(i, inline(arguments.get(i), lambdas, scope));
+                }
+                LambdaExpression lambda = arguments.isEmpty() ? null : lambdas.get(arguments.get(0));
+                if (lambda != null && lambda.getParameters().getParameters().size() == arguments.size() - 1) {
+                    inlined++;
+                    return expand(lambda, arguments.subList(1, arguments.size()));
+                }
+                return app;
+            }
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                inline(lambda.getBlock(), lambdas, extend(scope, lambda.getParameters().getParameters()));
+                return lambda;
+            }
+            case BLOCK -> {
+                List<Expression> block = ((BlockExpression) exp).getBlock();
+                scope = extend(scope, ((BlockExpression) exp).getDefinitions());
+                for (int i = 0; i < block.size(); i++) {
+                    block.set(i, inline(block.get(i), lambdas, scope));
+                    //a def can only be inlined after it has been evaluated
+                    if (block.get(i) instanceof DefinitionExpression def && isInlinable(def.getIdentifier(), def.getExpression(), scope)) {
+                        lambdas = new HashMap<>(lambdas);
+                        lambdas.put(def.getIdentifier(), (LambdaExpression) def.getExpression());
+                    }
+                }
+                return exp;
+            }
+            case COND -> {
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    clause.setTest(inline(clause.getTest(), lambdas, scope));
+                    clause.setConsequent(inline(clause.getConsequent(), lambdas, scope));
+                }
+                return exp;
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                let.setExpression(inline(let.getExpression(), lambdas, scope));
+                Set<IdentifierExpression> letScope = extend(scope, List.of(let.getIdentifier()));
+                if (isInlinable(let.getIdentifier(), let.getExpression(), letScope)) {
+                    lambdas = new HashMap<>(lambdas);
+                    lambdas.put(let.getIdentifier(), (LambdaExpression) let.getExpression());
+                }
+                inline(let.getBlock(), lambdas, letScope);
+                return let;
+            }
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                loop.setTest(inline(loop.getTest(), lambdas, scope));
+                inline(loop.getBlock(), lambdas, scope);
+                return loop;
+            }
+            case DEFINITION -> {
+                DefinitionExpression def = (DefinitionExpression) exp;
+                def.setExpression(inline(def.getExpression(), lambdas, scope));
+                return def;
+            }
+            case ASSIGNMENT -> {
+                AssignmentExpression assign = (AssignmentExpression) exp;
+                assign.setExpression(inline(assign.getExpression(), lambdas, scope));
+                return assign;
+            }
+            default -> {
+                return exp;
+            }
+        }
+    }
+
+    /**
+     * Checks if calls of the lambda bound to an identifier may be inlined
+     *
+     * @param identifier Identifier bound by let or def
+     * @param value      Expression bound to the identifier
+     * @param scope      Identifiers bound in scope of the lambda
+     * @return Returns true if calls may be inlined
+     */
+    private boolean isInlinable(IdentifierExpression identifier, Expression value, Set<IdentifierExpression> scope) {
+        if (!(value instanceof LambdaExpression lambda) || bindings.get(identifier) != 1 || assigned.contains(identifier)
+                || !calls.getOrDefault(identifier, 0).equals(references.getOrDefault(identifier, 0))) {
+            return false;
+        }
+        List<IdentifierExpression> parameters = lambda.getParameters().getParameters();
+        if (new HashSet<>(parameters).size() != parameters.size()) {
+            return false;
+        }
+        int[] size = {0};
+        return isLeaf(lambda.getBlock(), extend(new HashSet<>(), parameters), scope, size) && size[0] <= SIZE_BUDGET;
+    }
+
+    /**
+     * Checks expression of a function block only calls built in procedures, makes no lambdas,
+     * and with lexical scoping only uses identifiers it binds itself or that are in scope of the lambda.
+     *
+     * @param exp    Expression to check
+     * @param local  Identifiers bound by the function block around the expression
+     * @param scope  Identifiers bound in scope of the lambda
+     * @param size   Number of expressions checked so far
+     * @return Returns true if the expression may be inlined
+     */
+    private boolean isLeaf(Expression exp, Set<IdentifierExpression> local, Set<IdentifierExpression> scope, int[] size) {
+        if (++size[0] > SIZE_BUDGET) {
+            return false;
+        }
+        switch (exp.getType()) {
+            case IDENTIFIER -> {
+                IdentifierExpression identifier = (IdentifierExpression) exp;
+                return !lexicalScope || local.contains(identifier) || !bindings.containsKey(identifier)
+                        || (scope.contains(identifier) && bindings.get(identifier) == 1);
+            }
+            case APPLICATION -> {
+                List<Expression> arguments = ((ApplicationExpression) exp).getArguments();
+                if (arguments.isEmpty() || !(arguments.get(0) instanceof IdentifierExpression operator)
+                        || bindings.containsKey(operator) || assigned.contains(operator) || Prelude.indexOf(operator) < 0) {
+                    return false;
+                }
+                for (Expression argument : arguments) {
+                    if (!isLeaf(argument, local, scope, size)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case BLOCK -> {
+                local = extend(local, ((BlockExpression) exp).getDefinitions());
+                for (Expression child : ((BlockExpression) exp).getBlock()) {
+                    if (!isLeaf(child, local, scope, size)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case COND -> {
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    if (!isLeaf(clause.getTest(), local, scope, size) || !isLeaf(clause.getConsequent(), local, scope, size)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                return isLeaf(let.getExpression(), local, scope, size)
+                        && isLeaf(let.getBlock(), extend(local, List.of(let.getIdentifier())), scope, size);
+            }
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                return isLeaf(loop.getTest(), local, scope, size) && isLeaf(loop.getBlock(), local, scope, size);
+            }
+            case DEFINITION -> {
+                return isLeaf(((DefinitionExpression) exp).getExpression(), local, scope, size);
+            }
+            case ASSIGNMENT -> {
+                AssignmentExpression assign = (AssignmentExpression) exp;
+                return isLeaf(assign.getIdentifier(), local, scope, size) && isLeaf(assign.getExpression(), local, scope, size);
+            }
+            case INTEGER, STRING, BOOLEAN -> {
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Expands call of a lambda into its function block, binding each renamed parameter with a let
+     *
+     * @param lambda    Lambda being called
+     * @param arguments Arguments of the call
+     * @return Returns expression evaluating the call
+     */
+    private Expression expand(LambdaExpression lambda, List<Expression> arguments) {
+        List<IdentifierExpression> parameters = lambda.getParameters().getParameters();
+        Map<IdentifierExpression, IdentifierExpression> renames = new HashMap<>();
+        for (IdentifierExpression parameter : parameters) {
+            renames.put(parameter, new IdentifierExpression(parameter.getName() + "#" + ++renamed));
+        }
+        Expression expansion = copy(lambda.getBlock(), renames);
+        //arguments are evaluated in order, each before the let binding the next
+        for (int i = parameters.size() - 1; i >= 0; i--) {
+            BlockExpression block = expansion instanceof BlockExpression body && i == parameters.size() - 1
+                    ? body : new BlockExpression(new ArrayList<>(List.of(expansion)));
+            expansion = new LetExpression(renames.get(parameters.get(i)), arguments.get(i), block);
+        }
+        return expansion;
+    }
+
+    /**
+     * Copies a desugared program, so it can be optimized and resolved for a run without
+     * changing the parsed program, which may be run again or by another thread.
+     *
+     * @param program Desugared program to copy
+     * @return Returns copy
+     */
+    static Expression copy(Expression program) {
+        return copy(program, Map.of());
+    }
+
+    /**
+     * Copies expression of a function block, renaming parameters. Every identifier is copied
+     * so the copy can be resolved separately from the original. Lambdas are only copied
+     * without renames, since function blocks making lambdas are never inlined.
+     *
+     * @param exp     Expression to copy
+     * @param renames New identifier of each parameter
+     * @return Returns copy
+     */
+    private static Expression copy(Expression exp, Map<IdentifierExpression, IdentifierExpression> renames) {
+        switch (exp.getType()) {
+            case IDENTIFIER -> {
+                IdentifierExpression rename = renames.get(exp);
+                return new IdentifierExpression(rename != null ? rename : (IdentifierExpression) exp);
+            }
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                List<IdentifierExpression> parameters = new ArrayList<>();
+                for (IdentifierExpression parameter : lambda.getParameters().getParameters()) {
+                    parameters.add((IdentifierExpression) copy(parameter, renames));
+                }
+                return new LambdaExpression(new ParametersExpression(parameters), (BlockExpression) copy(lambda.getBlock(), renames));
+            }
+            case APPLICATION -> {
+                return new ApplicationExpression(copyAll(((ApplicationExpression) exp).getArguments(), renames));
+            }
+            case BLOCK -> {
+                return new BlockExpression(copyAll(((BlockExpression) exp).getBlock(), renames));
+            }
+            case COND -> {
+                List<ClauseExpression> clauses = new ArrayList<>();
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    clauses.add(new ClauseExpression(copy(clause.getTest(), renames), copy(clause.getConsequent(), renames)));
+                }
+                return new ConditionalExpression(clauses);
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                return new LetExpression((IdentifierExpression) copy(let.getIdentifier(), renames),
+                        copy(let.getExpression(), renames), (BlockExpression) copy(let.getBlock(), renames));
+            }
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                return new WhileExpression(copy(loop.getTest(), renames), (BlockExpression) copy(loop.getBlock(), renames));
+            }
+            case DEFINITION -> {
+                DefinitionExpression def = (DefinitionExpression) exp;
+                return new DefinitionExpression((IdentifierExpression) copy(def.getIdentifier(), renames),
+                        copy(def.getExpression(), renames));
+            }
+            case ASSIGNMENT -> {
+                AssignmentExpression assign = (AssignmentExpression) exp;
+                return new AssignmentExpression((IdentifierExpression) copy(assign.getIdentifier(), renames),
+                        copy(assign.getExpression(), renames));
+            }
+            //constants evaluate to themselves and are never changed
+            default -> {
+                return exp;
+            }
+        }
+    }
+
+    /**
+     * Copies list of expressions
+     *
+     * @param exps    Expressions to copy
+     * @param renames New identifier of each parameter
+     * @return Returns list of copies
+     */
+    private static List<Expression> copyAll(List<Expression> exps, Map<IdentifierExpression, IdentifierExpression> renames) {
+        List<Expression> copies = new ArrayList<>();
+        for (Expression exp : exps) {
+            copies.add(copy(exp, renames));
+        }
+        return copies;
+    }
+
+    /**
+     * Creates set of identifiers with more identifiers added
+     *
+     * @param scope       Identifiers to start from
+     * @param identifiers Identifiers to add
+     * @return Returns new set
+     */
+    private static Set<IdentifierExpression> extend(Set<IdentifierExpression> scope, List<IdentifierExpression> identifiers) {
+        Set<IdentifierExpression> extended = new HashSet<>(scope);
+        extended.addAll(identifiers);
+        return extended;
+    }
+}
@@ -0,0 +1,105 @@
+package interpreter;
+
+import expressions.BooleanExpression;
+import expressions.Expression;
+import expressions.IdentifierExpression;
+import expressions.IntegerExpression;
+
+/**
+ * Built in procedures on two integers that call sites can specialize to once they have
+ * only seen integer operands. Each operation works on the unboxed values, skipping the
+ * type checks of the procedure.
+ *
+ * @author Heath Dyer
+ */
+public enum IntegerOperation {
+    /**
+     * Procedure add
+     */
+    ADD("add") {
+        @Override
+        Expression apply(long first, long second) {
+            long result = first + second;
+            //overflow if both operands have a different sign than the result
+            return ((first ^ result) & (second ^ result)) < 0 ? null : IntegerExpression.valueOf(result);
+        }
+    },
+    /**
+     * Procedure sub
+     */
+    SUB("sub") {
+        @Override
+        Expression apply(long first, long second) {
+            long result = first - second;
+            //overflow if the operands have different signs and the result has a different sign than the first
+            return ((first ^ second) & (first ^ result)) < 0 ? null : IntegerExpression.valueOf(result);
+        }
+    },
+    /**
+     * Procedure mul
+     */
+    MUL("mul") {
+        @Override
+        Expression apply(long first, long second) {
+            long result = first * second;
+            //overflow if the high half of the full product is not the sign of the low half
+            return Math.multiplyHigh(first, second) != result >> 63 ? null : IntegerExpression.valueOf(result);
+        }
+    },
+    /**
+     * Procedure lessThan?
+     */
+    LESS_THAN("lessThan?") {
+        @Override
+        Expression apply(long first, long second) {
+            return BooleanExpression.valueOf(first < second);
+        }
+    },
+    /**
+     * Procedure greaterThan?
+     */
+    GREATER_THAN("greaterThan?") {
+        @Override
+        Expression apply(long first, long second) {
+            return BooleanExpression.valueOf(first > second);
+        }
+    };
+
+    /**
+     * Default procedure the operation specializes
+     */
+    private final Expression procedure;
+
+    /**
+     * Constructs operation for the default procedure with the given name
+     *
+     * @param name Name of the procedure in the prelude
+     */
+    IntegerOperation(String name) {
+        this.procedure = Prelude.get(new IdentifierExpression(name));
+    }
+
+    /**
+     * Applies the operation to two integer values
+     *
+     * @param first  First operand
+     * @param second Second operand
+     * @return Returns result, or null if it overflows and the procedure must report it
+     */
+    abstract Expression apply(long first, long second);
+
+    /**
+     * Gets operation of a procedure
+     *
+     * @param procedure Procedure being called
+     * @return Returns operation specializing the procedure, null if there is none
+     */
+    static IntegerOperation of(Expression procedure) {
+        for (IntegerOperation operation : values()) {
+            if (operation.procedure == procedure) {
+                return operation;
+            }
+        }
+        return null;
+    }
+}
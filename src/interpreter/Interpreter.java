@@ -1,10 +1,8 @@
 package interpreter;
 
 import expressions.*;
-import procedures.*;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Interpreter functions for evaluating expressions.
@@ -21,6 +19,115 @@ public class Interpreter {
      * If false, enables dynamic scoping
      */
     private final boolean lexicalScope;
+    /**
+     * Engine used to run whole programs
+     */
+    private Engine engine;
+    /**
+     * JIT tier compiling hot lambdas, null when disabled
+     */
+    private LambdaJit jit;
+    /**
+     * Inline caches of the application expressions evaluated in the last run
+     */
+    private final Map<ApplicationExpression, CallSite> callSites;
+    /**
+     * Identifiers bound anywhere in the running program, null when not running
+     */
+    private Set<IdentifierExpression> boundNames;
+    /**
+     * Binding epoch, changed whenever a cached operator lookup may no longer hold
+     */
+    private int epoch;
+    /**
+     * Most bytes the virtual machine's stacks may use
+     */
+    private long stackBudget;
+    /**
+     * If true, programs are optimized before they are run
+     */
+    private boolean optimizing;
+    /**
+     * If true, identifiers are looked up in a shallow binding table with dynamic scoping
+     * instead of by searching the frames of the environment
+     */
+    private boolean shallowBinding;
+    /**
+     * Most steps a run may take, 0 for no limit
+     */
+    private long maxSteps;
+    /**
+     * Most lambda calls a run may have in progress at once, 0 for no limit
+     */
+    private int maxDepth;
+    /**
+     * Most milliseconds a run may take, 0 for no limit
+     */
+    private long timeLimit;
+    /**
+     * Steps taken by the current run, counted when the budget is checked
+     */
+    private long steps;
+    /**
+     * Steps the current run was given at the last budget check
+     */
+    private long granted;
+    /**
+     * Steps left before the budget is checked again
+     */
+    private long fuel;
+    /**
+     * Lambda calls of the current run in progress
+     */
+    private int depth;
+    /**
+     * Value of System.nanoTime() the current run started at, only used with a time limit
+     */
+    private long started;
+    /**
+     * Time limit in nanoseconds, Long.MAX_VALUE if the milliseconds are too many to convert
+     */
+    private long timeLimitNanos;
+    /**
+     * Set by another thread to stop the current run at its next budget check
+     */
+    private volatile boolean cancelled;
+    /**
+     * Calls of memoized lambdas answered from their cache in the last run
+     */
+    private long memoHits;
+    /**
+     * Calls of memoized lambdas that were not cached in the last run
+     */
+    private long memoMisses;
+    /**
+     * Results evicted from memoized lambda caches in the last run
+     */
+    private long memoEvictions;
+    /**
+     * Expression left in tail position for the trampoline to evaluate
+     */
+    private Expression tailExp;
+    /**
+     * Lambda whose function block was left in tail position for the trampoline to run
+     */
+    private LambdaExpression tailLambda;
+    /**
+     * Environment of the expression or function block left in tail position
+     */
+    private Environment tailEnv;
+    /**
+     * Returned instead of a value when an expression in tail position is left to the trampoline
+     */
+    private static final Expression TAIL_CALL = new DummyExpression();
+    /**
+     * Most steps taken between checks of the time limit, cancellation, and interrupts
+     */
+    private static final int CHECK_INTERVAL = 4096;
+    /**
+     * Default stack budget of the virtual machine, 64 megabytes
+     */
+    public static final long DEFAULT_STACK_BUDGET = 64L * 1024 * 1024;
 
     /**
      * Constructor for Interpreter class. Initializes environment and
@@ -39,60 +146,582 @@ public class Interpreter {
     public Interpreter(boolean tracing, boolean lexicalScope) {
         this.tracing = tracing;
         this.lexicalScope = lexicalScope;
+        this.callSites = new IdentityHashMap<>();
+        setEngine(Engine.TREE);
+        setJitEnabled(true);
+        setStackBudget(DEFAULT_STACK_BUDGET);
+        setOptimizerEnabled(true);
+        setShallowBinding(true);
+    }
+
+    /**
+     * Returns true if tracing is enabled
+     *
+     * @return True if tracing is enabled
+     */
+    public boolean isTracing() {
+        return tracing;
+    }
+
+    /**
+     * Returns true if lexical scoping is enabled, false if dynamic scoping is used
+     *
+     * @return True if lexical scoping is enabled
+     */
+    public boolean isLexicalScope() {
+        return lexicalScope;
     }
 
     /**
-     * Initializes the current environment of the interpreter with default bindings
+     * Sets the engine used by run() to execute programs
+     *
+     * @param engine Engine to use
+     * @throws IllegalArgumentException Throws if engine is null
+     */
+    public void setEngine(Engine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Interpreter engine cannot be null.");
+        }
+        this.engine = engine;
+    }
+
+    /**
+     * Gets the engine used by run() to execute programs
+     *
+     * @return Engine used to run programs
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Enables or disables the JIT tier that compiles hot lambdas to JVM bytecode. The tier
+     * is never used while tracing so traces show every evaluation.
+     *
+     * @param enabled True to enable the JIT tier
+     */
+    public void setJitEnabled(boolean enabled) {
+        this.jit = enabled && !tracing ? new LambdaJit(this) : null;
+    }
+
+    /**
+     * Returns true if the JIT tier is enabled
+     *
+     * @return True if JIT tier is enabled
+     */
+    public boolean isJitEnabled() {
+        return jit != null;
+    }
+
+    /**
+     * Sets number of calls after which a lambda is compiled by the JIT tier
+     *
+     * @param threshold Number of calls before compiling
+     */
+    public void setJitThreshold(int threshold) {
+        if (jit != null) {
+            jit.setThreshold(threshold);
+        }
+    }
+
+    /**
+     * Gets number of lambdas compiled to JVM bytecode by the JIT tier
+     *
+     * @return Number of compiled lambdas
+     */
+    public int getJitCompiledCount() {
+        return jit != null ? jit.getCompiledCount() : 0;
+    }
+
+    /**
+     * Sets most bytes the virtual machine's stacks may use. The vm engine keeps values,
+     * environments, and call frames on these heap allocated stacks, so this limits the depth
+     * of recursion instead of the Java thread stack.
+     *
+     * @param stackBudget Stack budget in bytes
+     * @throws IllegalArgumentException Throws if budget is not positive
+     */
+    public void setStackBudget(long stackBudget) {
+        if (stackBudget <= 0) {
+            throw new IllegalArgumentException("Stack budget must be positive.");
+        }
+        this.stackBudget = stackBudget;
+    }
+
+    /**
+     * Gets most bytes the virtual machine's stacks may use
+     *
+     * @return Stack budget in bytes
+     */
+    public long getStackBudget() {
+        return stackBudget;
+    }
+
+    /**
+     * Sets most steps a run may take before it fails. Every lambda call and every time
+     * around a while loop is a step, in every engine.
+     *
+     * @param maxSteps Most steps, 0 for no limit
+     * @throws IllegalArgumentException Throws if the limit is negative
+     */
+    public void setMaxSteps(long maxSteps) {
+        if (maxSteps < 0) {
+            throw new IllegalArgumentException("Step limit cannot be negative.");
+        }
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Gets most steps a run may take
+     *
+     * @return Most steps, 0 for no limit
+     */
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    /**
+     * Sets most lambda calls a run may have in progress at once before it fails. Tail calls
+     * of the tree engine replace the call they are made from, so they do not count.
+     *
+     * @param maxDepth Most calls in progress, 0 for no limit
+     * @throws IllegalArgumentException Throws if the limit is negative
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Depth limit cannot be negative.");
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Gets most lambda calls a run may have in progress at once
+     *
+     * @return Most calls in progress, 0 for no limit
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets most milliseconds a run may take before it fails. The clock is only read every
+     * few thousand steps, so a run may go a little over.
+     *
+     * @param timeLimit Most milliseconds, 0 for no limit
+     * @throws IllegalArgumentException Throws if the limit is negative
+     */
+    public void setTimeLimit(long timeLimit) {
+        if (timeLimit < 0) {
+            throw new IllegalArgumentException("Time limit cannot be negative.");
+        }
+        this.timeLimit = timeLimit;
+        //limits too long to count in nanoseconds never run out
+        try {
+            timeLimitNanos = Math.multiplyExact(timeLimit, 1_000_000L);
+        } catch (ArithmeticException e) {
+            timeLimitNanos = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Gets most milliseconds a run may take
+     *
+     * @return Most milliseconds, 0 for no limit
+     */
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Stops the current run, which fails at its next budget check. May be called from any
+     * thread. Interrupting the thread running the program stops it the same way.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Enables or disables the optimizer pass run on programs before they are run. The pass
+     * is never used while tracing so traces show every evaluation of the original program.
+     *
+     * @param enabled True to enable the optimizer
+     */
+    public void setOptimizerEnabled(boolean enabled) {
+        this.optimizing = enabled;
+    }
+
+    /**
+     * Returns true if programs are optimized before they are run
+     *
+     * @return True if optimizer is enabled
+     */
+    public boolean isOptimizerEnabled() {
+        return optimizing && !tracing;
+    }
+
+    /**
+     * Chooses how identifiers are looked up with dynamic scoping. Shallow binding keeps a
+     * stack of bindings for every identifier, so a lookup takes constant time. Deep binding
+     * searches the frames of the environment, which takes longer the deeper the recursion.
+     * Lexical scoping is not affected, since the Resolver addresses its lookups.
+     *
+     * @param shallowBinding True for shallow binding, false for deep binding
+     */
+    public void setShallowBinding(boolean shallowBinding) {
+        this.shallowBinding = shallowBinding;
+    }
+
+    /**
+     * Returns true if identifiers are looked up with shallow binding when scoping is dynamic
+     *
+     * @return True if shallow binding is used
+     */
+    public boolean isShallowBinding() {
+        return shallowBinding;
+    }
+
+    /**
+     * Gets runtime statistics of the interpreter, one statistic per line
+     *
+     * @return Statistics of the last runs
+     */
+    public String getStatistics() {
+        StringBuilder stats = new StringBuilder("JIT compiled lambdas: " + getJitCompiledCount());
+        long hits = 0;
+        long misses = 0;
+        List<CallSite> megamorphic = new ArrayList<>();
+        for (CallSite site : callSites.values()) {
+            hits += site.getHits();
+            misses += site.getMisses();
+            if (site.isMegamorphic()) {
+                megamorphic.add(site);
+            }
+        }
+        stats.append("\nCall sites: ").append(callSites.size())
+                .append(", hits ").append(hits).append(", misses ").append(misses)
+                .append(", megamorphic ").append(megamorphic.size());
+        stats.append("\nInteger speculation: specialized ").append(getSpecializedCount())
+                .append(", deoptimized ").append(getDeoptimizedCount());
+        stats.append("\nMemo: hits ").append(memoHits).append(", misses ").append(memoMisses)
+                .append(", evictions ").append(memoEvictions);
+        //list megamorphic sites with the most misses first
+        megamorphic.sort(Comparator.comparingLong(CallSite::getMisses).reversed());
+        for (CallSite site : megamorphic) {
+            stats.append("\n  ").append(site);
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Gets number of calls of memoized lambdas answered from their cache in the last run
+     *
+     * @return Returns number of memo hits
+     */
+    public long getMemoHits() {
+        return memoHits;
+    }
+
+    /**
+     * Gets number of cacheable calls of memoized lambdas that were not cached in the last run
+     *
+     * @return Returns number of memo misses
+     */
+    public long getMemoMisses() {
+        return memoMisses;
+    }
+
+    /**
+     * Gets number of results evicted from full memoized lambda caches in the last run
+     *
+     * @return Returns number of memo evictions
+     */
+    public long getMemoEvictions() {
+        return memoEvictions;
+    }
+
+    /**
+     * Gets number of call sites of the last run that specialized to an integer operation
+     *
+     * @return Returns number of specialized call sites
+     */
+    public int getSpecializedCount() {
+        int count = 0;
+        for (CallSite site : callSites.values()) {
+            if (site.isSpecialized()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets number of specialized call sites of the last run whose speculation was broken
+     *
+     * @return Returns number of deoptimized call sites
+     */
+    public int getDeoptimizedCount() {
+        int count = 0;
+        for (CallSite site : callSites.values()) {
+            if (site.isDeoptimized()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets inline caches of the application expressions evaluated in the last run
+     *
+     * @return Returns list of call sites
+     */
+    public List<CallSite> getCallSites() {
+        return new ArrayList<>(callSites.values());
+    }
+
+    /**
+     * Gets inline cache of application expression, creating it on first use. Operator
+     * lookups are only cached while running a program whose bindings are known and
+     * tracing is off, since tracing prints every lookup.
+     *
+     * @param exp Application expression
+     * @return Returns call site of the expression
+     */
+    CallSite callSite(ApplicationExpression exp) {
+        CallSite site = callSites.get(exp);
+        if (site == null) {
+            boolean stable = !tracing && boundNames != null && !exp.getArguments().isEmpty()
+                    && !boundNames.contains(exp.getArguments().get(0));
+            site = new CallSite(exp, stable);
+            callSites.put(exp, site);
+        }
+        return site;
+    }
+
+    /**
+     * Gets current binding epoch
+     *
+     * @return Returns binding epoch
+     */
+    int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Collects every identifier the program can bind with a lambda parameter, let, or def.
+     * An identifier outside this set can only be bound in the initial environment, so a
+     * lookup of it gives the same result from any environment until it is assigned.
+     *
+     * @param exp   Expression to collect from
+     * @param names Set to add bound identifiers to
+     */
+    static void collectBindings(Expression exp, Set<IdentifierExpression> names) {
+        switch (exp.getType()) {
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                names.addAll(lambda.getParameters().getParameters());
+                collectBindings(lambda.getBlock(), names);
+            }
+            case BLOCK -> {
+                for (Expression child : ((BlockExpression) exp).getBlock()) {
+                    collectBindings(child, names);
+                }
+            }
+            case COND -> {
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    collectBindings(clause.getTest(), names);
+                    collectBindings(clause.getConsequent(), names);
+                }
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                names.add(let.getIdentifier());
+                collectBindings(let.getExpression(), names);
+                collectBindings(let.getBlock(), names);
+            }
+            case DEFINITION -> {
+                DefinitionExpression def = (DefinitionExpression) exp;
+                names.add(def.getIdentifier());
+                collectBindings(def.getExpression(), names);
+            }
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                collectBindings(loop.getTest(), names);
+                collectBindings(loop.getBlock(), names);
+            }
+            case ASSIGNMENT -> collectBindings(((AssignmentExpression) exp).getExpression(), names);
+            case APPLICATION -> {
+                for (Expression argument : ((ApplicationExpression) exp).getArguments()) {
+                    collectBindings(argument, names);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Runs a desugared program with the selected engine in a new initial environment.
+     *
+     * @param program Desugared program to run
+     * @return Returns result of the program
+     */
+    public Expression run(Expression program) {
+        program = prepare(program);
+        try {
+            return switch (engine) {
+                case TREE -> evaluate(program, getInitialEnv());
+                case CLOSURE -> new ClosureCompiler(this).compile(program).execute(getInitialEnv());
+                case VM -> {
+                    BytecodeCompiler compiler = new BytecodeCompiler(this);
+                    Chunk chunk = compiler.compile(program);
+                    yield new VirtualMachine(this, compiler).execute(chunk, getInitialEnv());
+                }
+            };
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Prepares a program to be compiled or run by optimizing it, if enabled, and preparing
+     * call sites by finding the identifiers it binds. Optimizing, flattening lets, and
+     * resolving write into the program, so they are done on a copy and the parsed program
+     * stays unchanged.
+     *
+     * @param program Desugared program about to be compiled or run
+     * @return Returns the prepared copy of the program
+     */
+    private Expression prepare(Expression program) {
+        //the optimizer makes its own copy
+        program = isOptimizerEnabled() ? new Optimizer(lexicalScope).optimize(program) : Inliner.copy(program);
+        if (jit != null) {
+            jit.clearProfiles();
+        }
+        callSites.clear();
+        memoHits = 0;
+        memoMisses = 0;
+        memoEvictions = 0;
+        resetBudget();
+        boundNames = new HashSet<>();
+        collectBindings(program, boundNames);
+        LetFlattener.flatten(program);
+        if (lexicalScope) {
+            Resolver.resolve(program, boundNames);
+        }
+        return program;
+    }
+
+    /**
+     * Starts the budget of a new run
+     */
+    private void resetBudget() {
+        steps = 0;
+        granted = maxSteps > 0 ? Math.min(CHECK_INTERVAL, maxSteps) : CHECK_INTERVAL;
+        fuel = granted;
+        depth = 0;
+        started = System.nanoTime();
+        cancelled = false;
+    }
+
+    /**
+     * Counts a step of the current run. Only a counter is decremented unless it runs out,
+     * when the budget is checked.
+     */
+    void countStep() {
+        if (--fuel < 0) {
+            checkBudget();
+        }
+    }
+
+    /**
+     * Checks the current run is within its budget and has not been cancelled, and gives it
+     * the steps it may take before the next check
+     *
+     * @throws RuntimeException Throws if the run is cancelled or out of steps or time
+     */
+    private void checkBudget() {
+        //fuel ran out one step past what was granted
+        steps += granted - fuel;
+        if (cancelled || Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Evaluation was cancelled.");
+        }
+        if (maxSteps > 0 && steps > maxSteps) {
+            throw new RuntimeException("Evaluation exceeded its budget of " + maxSteps + " steps.");
+        }
+        if (timeLimit > 0 && System.nanoTime() - started > timeLimitNanos) {
+            throw new RuntimeException("Evaluation exceeded its time limit of " + timeLimit + " ms.");
+        }
+        granted = maxSteps > 0 ? Math.min(CHECK_INTERVAL, maxSteps - steps) : CHECK_INTERVAL;
+        fuel = granted;
+    }
+
+    /**
+     * Counts a lambda call starting as a step and as a call in progress
+     *
+     * @throws RuntimeException Throws if the run has too many calls in progress
+     */
+    void enterCall() {
+        countStep();
+        if (++depth > maxDepth && maxDepth > 0) {
+            throw new RuntimeException("Evaluation exceeded its depth limit of " + maxDepth + " calls.");
+        }
+    }
+
+    /**
+     * Counts a lambda call in progress returning
+     */
+    void leaveCall() {
+        depth--;
+    }
+
+    /**
+     * Invalidates cached lookups once a program is done, since they belong to its initial environment
+     */
+    private void finish() {
+        boundNames = null;
+        epoch++;
+    }
+
+    /**
+     * Compiles a desugared program to bytecode without running it and disassembles it.
+     *
+     * @param program Desugared program to compile
+     * @return Returns disassembly of the program and its lambdas
+     */
+    public String disassemble(Expression program) {
+        program = prepare(program);
+        try {
+            BytecodeCompiler compiler = new BytecodeCompiler(this);
+            compiler.compile(program);
+            return Disassembler.disassemble(compiler.getChunks());
+        } finally {
+            finish();
+        }
+    }
+
+    /**
+     * Optimizes a desugared program without running it and reports what the optimizer did.
+     *
+     * @param program Desugared program to optimize
+     * @return Returns optimizer report followed by the optimized program
+     */
+    public String dumpOptimized(Expression program) {
+        Optimizer optimizer = new Optimizer(lexicalScope);
+        Expression optimized = optimizer.optimize(program);
+        return optimizer.getReport() + "\n" + optimized + "\n";
+    }
+
+    /**
+     * Initializes the current environment of the interpreter with default bindings.
+     * The bindings are shared with every other run until the program assigns one. With
+     * dynamic scoping and shallow binding, the environment gets its own binding table.
      */
     public Environment getInitialEnv() {
-        //create initial env
-        Environment initialEnv = new Environment();
-        //initialize environment variables
-        bind(new IdentifierExpression("x"), new IntegerExpression(10), initialEnv);
-        bind(new IdentifierExpression("v"), new IntegerExpression(5), initialEnv);
-        bind(new IdentifierExpression("i"), new IntegerExpression(1), initialEnv);
-        bind(new IdentifierExpression("true"), new BooleanExpression(true), initialEnv);
-        bind(new IdentifierExpression("false"), new BooleanExpression(false), initialEnv);
-        //initialize math procedures
-        bind(new IdentifierExpression("add"), new ProcedureExpression(MathProcedures::add), initialEnv);
-        bind(new IdentifierExpression("sub"), new ProcedureExpression(MathProcedures::sub), initialEnv);
-        bind(new IdentifierExpression("mul"), new ProcedureExpression(MathProcedures::mul), initialEnv);
-        bind(new IdentifierExpression("div"), new ProcedureExpression(MathProcedures::div), initialEnv);
-        bind(new IdentifierExpression("mod"), new ProcedureExpression(MathProcedures::mod), initialEnv);
-        //initialize comparison procedures
-        bind(new IdentifierExpression("equals?"), new ProcedureExpression(LogicProcedures::eq), initialEnv);
-        bind(new IdentifierExpression("greaterThan?"), new ProcedureExpression(LogicProcedures::greaterThan), initialEnv);
-        bind(new IdentifierExpression("lessThan?"), new ProcedureExpression(LogicProcedures::lessThan), initialEnv);
-        bind(new IdentifierExpression("zero?"), new ProcedureExpression(LogicProcedures::isZero), initialEnv);
-        bind(new IdentifierExpression("or?"), new ProcedureExpression(LogicProcedures::or), initialEnv);
-        bind(new IdentifierExpression("and?"), new ProcedureExpression(LogicProcedures::and), initialEnv);
-        bind(new IdentifierExpression("not?"), new ProcedureExpression(LogicProcedures::not), initialEnv);
-        //initialize io procedures
-        bind(new IdentifierExpression("print"), new ProcedureExpression(IOProcedures::print), initialEnv);
-        bind(new IdentifierExpression("fail"), new ProcedureExpression(IOProcedures::fail), initialEnv);
-        bind(new IdentifierExpression("readInput"), new ProcedureExpression(IOProcedures::readInput), initialEnv);
-        bind(new IdentifierExpression("readLine"), new ProcedureExpression(IOProcedures::readLine), initialEnv);
-        bind(new IdentifierExpression("readFile"), new ProcedureExpression(IOProcedures::readFile), initialEnv);
-        //initialize String procedures
-        bind(new IdentifierExpression("concat"), new ProcedureExpression(StringProcedures::concat), initialEnv);
-        bind(new IdentifierExpression("charAt"), new ProcedureExpression(StringProcedures::charAt), initialEnv);
-        bind(new IdentifierExpression("substring"), new ProcedureExpression(StringProcedures::substring), initialEnv);
-        bind(new IdentifierExpression("length"), new ProcedureExpression(StringProcedures::length), initialEnv);
-        bind(new IdentifierExpression("isDigit?"), new ProcedureExpression(StringProcedures::isDigit), initialEnv);
-        bind(new IdentifierExpression("isLetter?"), new ProcedureExpression(StringProcedures::isLetter), initialEnv);
-        bind(new IdentifierExpression("parseInt"), new ProcedureExpression(StringProcedures::parseInt), initialEnv);
-        //list procedures
-        bind(new IdentifierExpression("cons"), new ProcedureExpression(ListProcedures::cons), initialEnv);
-        bind(new IdentifierExpression("head"), new ProcedureExpression(ListProcedures::head), initialEnv);
-        bind(new IdentifierExpression("tail"), new ProcedureExpression(ListProcedures::tail), initialEnv);
-        bind(new IdentifierExpression("isEmpty?"), new ProcedureExpression(ListProcedures::isEmpty), initialEnv);
-        bind(new IdentifierExpression("reverse"), new ProcedureExpression(ListProcedures::reverse), initialEnv);
-        bind(new IdentifierExpression("append"), new ProcedureExpression(ListProcedures::append), initialEnv);
-        bind(new IdentifierExpression("map"), new ProcedureExpression(ListProcedures::map), initialEnv);
-        //general
-        bind(new IdentifierExpression("type"), new ProcedureExpression(GeneralProcedures::getType), initialEnv);
-        //return initial env
-        return initialEnv;
+        Environment env = Prelude.newEnvironment();
+        if (!lexicalScope && shallowBinding) {
+            env.setShallowBindings(new ShallowBindings());
+        }
+        return env;
     }
 
     /**
@@ -102,8 +731,8 @@ public class Interpreter {
      * @param exp        Expression to bind as value
      * @param currentEnv environment to bind in
      */
-    private void bind(IdentifierExpression identifier, Expression exp, Environment currentEnv) {
-        currentEnv.getEnvironment().put(identifier, exp);
+    static void bind(IdentifierExpression identifier, Expression exp, Environment currentEnv) {
+        currentEnv.put(identifier, exp);
     }
 
     /**
@@ -116,7 +745,7 @@ public class Interpreter {
      * @return Returns new root environment node
      * @throws IllegalArgumentException Number of arguments must match number of params
      */
-    private Environment extend(List<IdentifierExpression> identifiers, List<Expression> exps, Environment currentEnv) {
+    static Environment extend(List<IdentifierExpression> identifiers, List<Expression> exps, Environment currentEnv) {
         //check for null params
         if (identifiers == null || exps == null) {
             throw new IllegalArgumentException("Could not extend environment. Cannot have null identifiers list or null expressions list.");
@@ -125,51 +754,24 @@ public class Interpreter {
         if (identifiers.size() != exps.size()) {
             throw new IllegalArgumentException("Lambda function called with wrong number of arguments.");
         }
-        //create new environment and add bindings
-        Environment node = new Environment();
-        for (int i = 0; i < identifiers.size(); i++) {
-            bind(identifiers.get(i), exps.get(i), currentEnv);
-        }
-        //update parent reference
-        node.setParent(currentEnv);
-        //return new env
-        return node;
-    }
-
-    /**
-     * Extends envs with only one new binding in the given environment. Returns
-     * new environment root node.
-     *
-     * @param identifier Identifier to add
-     * @param exp        Expression to bind
-     * @param currentEnv evnrionment to bind in
-     * @return New environment root node
-     */
-    private Environment extend(IdentifierExpression identifier, Expression exp, Environment currentEnv) {
-        //check for null params
-        if (identifier == null || exp == null) {
-            throw new IllegalArgumentException("Could not extend environment. Cannot have null identifier or null expression.");
-        }
-        //create new environment and add binding
-        Environment node = new Environment();
-        bind(identifier, exp, node);
-        //update parent reference
-        node.setParent(currentEnv);
-        //return new current env
-        return node;
+        //create new frame with a slot for each binding
+        return new Environment(identifiers, exps.toArray(new Expression[0]), currentEnv);
     }
 
     /**
-     * Extends environment with new empty environment
+     * Extends environment with the frame of a block, binding every def identifier
+     * of the block to a dummy value until its def expression is evaluated.
      *
-     * @param currentEnv env to extend
+     * @param definitions Def identifiers of the block, from BlockExpression.getDefinitions()
+     * @param currentEnv  env to extend
      * @return Returns extended environment
      */
-    private Environment extend(Environment currentEnv) {
-        //create new environment
-        Environment node = new Environment();
-        node.setParent(currentEnv);
-        return node;
+    static Environment extend(List<IdentifierExpression> definitions, Environment currentEnv) {
+        Expression[] dummies = new Expression[definitions.size()];
+        for (int i = 0; i < dummies.length; i++) {
+            dummies[i] = new DummyExpression();
+        }
+        return new Environment(definitions, dummies, currentEnv);
     }
 
     /**
@@ -179,10 +781,31 @@ public class Interpreter {
      * @param currentEnv Environment node to begin lookup from
      * @return Returns bound expression
      */
-    private static Expression lookup(IdentifierExpression identifier, Environment currentEnv) {
+    static Expression lookup(IdentifierExpression identifier, Environment currentEnv) {
+        //default bindings the program never shadows are read straight from the initial environment
+        if (identifier.getDepth() == IdentifierExpression.GLOBAL) {
+            return currentEnv.getRoot().getSlot(identifier.getSlot());
+        }
+        //skip the frames the resolver counted, reading the slot if it found the binding
+        for (int depth = identifier.getDepth(); depth > 0; depth--) {
+            currentEnv = currentEnv.getParent();
+        }
+        if (identifier.getSlot() >= 0) {
+            return currentEnv.getSlot(identifier.getSlot());
+        }
+        //with dynamic scoping the nearest binding is on top of the identifier's binding stack
+        ShallowBindings shallowBindings = currentEnv.getRoot().getShallowBindings();
+        if (shallowBindings != null) {
+            Expression value = shallowBindings.lookup(identifier, currentEnv);
+            if (value != null) {
+                return value;
+            }
+            throw new RuntimeException("Unbound identifier: \"" + identifier.getName() + "\".");
+        }
         while (currentEnv != null) {
-            if (currentEnv.getEnvironment().containsKey(identifier)) {
-                return currentEnv.getEnvironment().get(identifier);
+            Expression value = currentEnv.get(identifier);
+            if (value != null) {
+                return value;
             }
             currentEnv = currentEnv.getParent();
         }
@@ -199,15 +822,47 @@ public class Interpreter {
      * @return Returns new expression bound to identifier
      */
     private Expression performAssignment(AssignmentExpression exp, Environment env) {
-        Expression evalExp = evaluate(exp.getExpression(), env);
+        return assign(exp.getIdentifier(), evaluate(exp.getExpression(), env), env);
+    }
+
+    /**
+     * Changes the closest existing binding of the identifier to the given value.
+     *
+     * @param identifier Identifier to rebind
+     * @param value      Evaluated value to bind
+     * @param env        Environment to begin lookup from
+     * @return Returns new expression bound to identifier
+     */
+    Expression assign(IdentifierExpression identifier, Expression value, Environment env) {
+        //assigning an identifier the program never binds changes a lookup call sites may have cached
+        if (boundNames == null || !boundNames.contains(identifier)) {
+            epoch++;
+        }
+        if (identifier.getDepth() == IdentifierExpression.GLOBAL) {
+            env = env.getRoot();
+        }
+        for (int depth = identifier.getDepth(); depth > 0; depth--) {
+            env = env.getParent();
+        }
+        if (identifier.getSlot() >= 0) {
+            env.setSlot(identifier.getSlot(), value);
+            return value;
+        }
+        ShallowBindings shallowBindings = env.getRoot().getShallowBindings();
+        if (shallowBindings != null) {
+            if (shallowBindings.assign(identifier, value, env)) {
+                return value;
+            }
+            throw new RuntimeException("Unbound identifier: \"" + identifier.getName() + "\".");
+        }
         while (env != null) {
-            if (env.getEnvironment().containsKey(exp.getIdentifier())) {
-                bind(exp.getIdentifier(), evalExp, env);
-                return evalExp;
+            if (env.get(identifier) != null) {
+                bind(identifier, value, env);
+                return value;
             }
             env = env.getParent();
         }
-        throw new RuntimeException("Unbound identifier: \"" + exp.getIdentifier().getName() + "\".");
+        throw new RuntimeException("Unbound identifier: \"" + identifier.getName() + "\".");
     }
 
     /**
@@ -218,15 +873,31 @@ public class Interpreter {
      * @return Returns value of the definition
      */
     private Expression applyDefinition(DefinitionExpression def, Environment env) {
-        Expression evalExp = evaluate(def.getExpression(), env);
+        return define(def.getIdentifier(), evaluate(def.getExpression(), env), env);
+    }
+
+    /**
+     * Replaces the dummy binding made for a def identifier with its evaluated value.
+     *
+     * @param identifier Identifier of the definition
+     * @param value      Evaluated value of the definition
+     * @param env        Environment to begin lookup from
+     * @return Returns value of the definition
+     */
+    Expression define(IdentifierExpression identifier, Expression value, Environment env) {
+        //def resolved to a slot of the block's own frame
+        if (identifier.getSlot() >= 0 && env.getSlot(identifier.getSlot()).getType() == ExpressionType.DUMMY) {
+            value = close(value, env);
+            env.setSlot(identifier.getSlot(), value);
+            return value;
+        }
         while (env != null) {
             //need to replace dummy binding
-            if (env.getEnvironment().containsKey(def.getIdentifier()) && env.getEnvironment().get(def.getIdentifier()).equals(new DummyExpression())) {
-                if (lexicalScope && evalExp.getType() == ExpressionType.LAMBDA) {
-                    ((LambdaExpression) evalExp).setEnvironment(env);
-                }
-                bind(def.getIdentifier(), evalExp, env);
-                return evalExp;
+            Expression bound = env.get(identifier);
+            if (bound != null && bound.equals(new DummyExpression())) {
+                value = close(value, env);
+                bind(identifier, value, env);
+                return value;
             }
             env = env.getParent();
         }
@@ -237,51 +908,338 @@ public class Interpreter {
      * Applies the given application expression and returns the resulting expression.
      *
      * @param exp Application expression to apply
-     * @return Returns result of function application
+     * @return Returns result of a procedure application, or TAIL_CALL for a lambda application
      */
     private Expression applyFunction(ApplicationExpression exp, Environment env) {
-        //get operator
-        Expression operator = evaluate(exp.getArguments().get(0), env);
+        CallSite site = callSite(exp);
+        //get operator, from the inline cache if its lookup is still valid
+        Expression operator = site.getOperator(epoch);
+        if (operator == null) {
+            operator = evaluate(exp.getArguments().get(0), env);
+            site.setOperator(operator, epoch);
+        }
+        List<Expression> arguments = exp.getArguments();
+        int count = arguments.size() - 1;
+        //operands of calls with at most two arguments are not collected
+        if (count <= 2) {
+            Expression first = count > 0 ? evaluate(arguments.get(1), env) : null;
+            Expression second = count > 1 ? evaluate(arguments.get(2), env) : null;
+            return apply(site, operator, site.getKind(operator), count, first, second, env);
+        }
         //get operands
-        List<Expression> operands = new LinkedList<>();
-        for (Expression argument : exp.getArguments().subList(1, exp.getArguments().size())) {
+        List<Expression> operands = new ArrayList<>(count);
+        for (Expression argument : arguments.subList(1, arguments.size())) {
             operands.add(evaluate(argument, env));
         }
+        return apply(exp, operator, site.getKind(operator), operands, env);
+    }
+
+    /**
+     * Calls an evaluated operator with evaluated operands. Lambda calls run compiled code
+     * once the JIT tier has compiled the lambda, otherwise its block is evaluated.
+     *
+     * @param exp      Application expression being applied
+     * @param operator Evaluated operator
+     * @param operands Evaluated operands
+     * @param env      Environment of the application
+     * @return Returns result of function application
+     */
+    Expression call(ApplicationExpression exp, Expression operator, List<Expression> operands, Environment env) {
+        return call(exp, operator, operator.getType(), operands, env);
+    }
+
+    /**
+     * Calls an evaluated operator of a known kind with evaluated operands.
+     *
+     * @param exp      Application expression being applied
+     * @param operator Evaluated operator
+     * @param kind     Expression type of the operator
+     * @param operands Evaluated operands
+     * @param env      Environment of the application
+     * @return Returns result of function application
+     */
+    Expression call(ApplicationExpression exp, Expression operator, ExpressionType kind, List<Expression> operands, Environment env) {
+        return trampoline(apply(exp, operator, kind, operands, env));
+    }
+
+    /**
+     * Calls an evaluated operator from compiled code in tail position. A lambda's function
+     * block is left to the trampoline, so the compiled code returns before it runs.
+     *
+     * @param exp      Application expression being applied
+     * @param operator Evaluated operator
+     * @param operands Evaluated operands
+     * @param env      Environment of the application
+     * @return Returns result of a procedure, or TAIL_CALL for a lambda
+     */
+    Expression tailCall(ApplicationExpression exp, Expression operator, List<Expression> operands, Environment env) {
+        return apply(exp, operator, operator.getType(), operands, env);
+    }
+
+    /**
+     * Calls an evaluated operator with at most two evaluated operands, not collected into a list.
+     *
+     * @param site     Call site of the application
+     * @param operator Evaluated operator
+     * @param count    Number of operands
+     * @param first    First operand, null if there is none
+     * @param second   Second operand, null if there is none
+     * @param env      Environment of the application
+     * @return Returns result of function application
+     */
+    Expression call(CallSite site, Expression operator, int count, Expression first, Expression second, Environment env) {
+        return trampoline(apply(site, operator, operator.getType(), count, first, second, env));
+    }
+
+    /**
+     * Calls an evaluated operator with at most two evaluated operands from compiled code in
+     * tail position.
+     *
+     * @param site     Call site of the application
+     * @param operator Evaluated operator
+     * @param count    Number of operands
+     * @param first    First operand, null if there is none
+     * @param second   Second operand, null if there is none
+     * @param env      Environment of the application
+     * @return Returns result of a procedure, or TAIL_CALL for a lambda
+     */
+    Expression tailCall(CallSite site, Expression operator, int count, Expression first, Expression second, Environment env) {
+        return apply(site, operator, operator.getType(), count, first, second, env);
+    }
+
+    /**
+     * Applies an evaluated operator to at most two evaluated operands. Procedures get the
+     * operands directly, so they are only collected into a list for lambdas. Procedures
+     * with two operands go through the call site's integer speculation.
+     *
+     * @param site     Call site of the application
+     * @param operator Evaluated operator
+     * @param kind     Expression type of the operator
+     * @param count    Number of operands
+     * @param first    First operand, null if there is none
+     * @param second   Second operand, null if there is none
+     * @param env      Environment of the application
+     * @return Returns result of a procedure, or TAIL_CALL for a lambda
+     */
+    private Expression apply(CallSite site, Expression operator, ExpressionType kind, int count,
+                             Expression first, Expression second, Environment env) {
+        if (kind == ExpressionType.PROCEDURE) {
+            return count == 2 ? site.apply((ProcedureExpression) operator, first, second)
+                    : applyProcedure((ProcedureExpression) operator, count, first, second);
+        }
+        return apply(site.getExpression(), operator, kind, operands(count, first, second), env);
+    }
+
+    /**
+     * Applies procedure to at most two operands, using the form of the procedure that takes that many arguments
+     *
+     * @param procedure Procedure to apply
+     * @param count     Number of operands
+     * @param first     First operand, null if there is none
+     * @param second    Second operand, null if there is none
+     * @return Returns result of the procedure
+     */
+    static Expression applyProcedure(ProcedureExpression procedure, int count, Expression first, Expression second) {
+        return switch (count) {
+            case 0 -> procedure.apply();
+            case 1 -> procedure.apply(first);
+            default -> procedure.apply(first, second);
+        };
+    }
+
+    /**
+     * Collects at most two operands into a list
+     *
+     * @param count  Number of operands
+     * @param first  First operand, null if there is none
+     * @param second Second operand, null if there is none
+     * @return Returns list of the operands
+     */
+    static List<Expression> operands(int count, Expression first, Expression second) {
+        List<Expression> operands = new ArrayList<>(count);
+        if (count > 0) {
+            operands.add(first);
+        }
+        if (count > 1) {
+            operands.add(second);
+        }
+        return operands;
+    }
+
+    /**
+     * Applies an evaluated operator. Procedures are applied right away, lambda function
+     * blocks are in tail position and left to the trampoline.
+     *
+     * @param exp      Application expression being applied
+     * @param operator Evaluated operator
+     * @param kind     Expression type of the operator
+     * @param operands Evaluated operands
+     * @param env      Environment of the application
+     * @return Returns result of a procedure, or TAIL_CALL for a lambda
+     */
+    private Expression apply(ApplicationExpression exp, Expression operator, ExpressionType kind, List<Expression> operands, Environment env) {
         //is build in procedure application?
-        if (operator.getType() == ExpressionType.PROCEDURE) {
+        if (kind == ExpressionType.PROCEDURE) {
             return ((ProcedureExpression) operator).apply(operands);
         }
         //is lambda function application?
-        if (operator.getType() == ExpressionType.LAMBDA) {
+        if (kind == ExpressionType.LAMBDA) {
+            if (operator instanceof MemoExpression memo && MemoExpression.isCacheable(operands)) {
+                return memoize(exp, memo, operands, env);
+            }
             LambdaExpression lambda = (LambdaExpression) operator;
             //extend environment, if lexical scope && not anonymous function use saved labmda env, otherwise use current env
-            Environment extendedEnv = extend(lambda.getParameters().getParameters(), operands,
+            tailEnv = extend(lambda.getParameters().getParameters(), operands,
                     lexicalScope && lambda.getEnvironment() != null ? lambda.getEnvironment() : env);
-            return evaluate(lambda.getBlock(), extendedEnv);
+            tailLambda = lambda;
+            return TAIL_CALL;
         }
         throw new RuntimeException("Not a built in procedure " + exp);
     }
 
+    /**
+     * Calls memoized lambda, looking the call up in its cache first. A call that misses is
+     * run to completion so its result can be cached.
+     *
+     * @param exp      Application expression being applied
+     * @param memo     Memoized lambda
+     * @param operands Evaluated operands, all cacheable
+     * @param env      Environment of the application
+     * @return Returns result of the call
+     */
+    private Expression memoize(ApplicationExpression exp, MemoExpression memo, List<Expression> operands, Environment env) {
+        Expression result = recall(memo, operands);
+        if (result == null) {
+            result = trampoline(apply(exp, memo.getLambda(), ExpressionType.LAMBDA, operands, env));
+            remember(memo, operands, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets cached result of a call of a memoized lambda, counting the hit or miss
+     *
+     * @param memo     Memoized lambda
+     * @param operands Evaluated operands, all cacheable
+     * @return Returns cached result, null if the call is not cached
+     */
+    Expression recall(MemoExpression memo, List<Expression> operands) {
+        Expression result = memo.get(operands);
+        if (result != null) {
+            memoHits++;
+        } else {
+            memoMisses++;
+        }
+        return result;
+    }
+
+    /**
+     * Caches result of a call of a memoized lambda, counting the eviction if the cache was full
+     *
+     * @param memo     Memoized lambda
+     * @param operands Evaluated operands, all cacheable
+     * @param result   Result of the call
+     */
+    void remember(MemoExpression memo, List<Expression> operands, Expression result) {
+        if (memo.put(operands, result)) {
+            memoEvictions++;
+        }
+    }
+
+    /**
+     * Leaves expression in tail position to the trampoline instead of evaluating it with a
+     * nested call, so loops written as tail calls run in constant Java stack.
+     *
+     * @param exp Expression in tail position
+     * @param env Environment to evaluate it in
+     * @return Returns TAIL_CALL
+     */
+    private Expression tail(Expression exp, Environment env) {
+        tailExp = exp;
+        tailEnv = env;
+        return TAIL_CALL;
+    }
+
+    /**
+     * Trampoline evaluating expressions and function blocks left in tail position until
+     * a value is reached. Function blocks run compiled code once the JIT tier has compiled
+     * the lambda, otherwise the block is evaluated.
+     *
+     * @param result Result of a step of evaluation, possibly TAIL_CALL
+     * @return Returns value of the evaluation
+     */
+    private Expression trampoline(Expression result) {
+        //tail calls replace the call this trampoline is running instead of adding one
+        boolean calling = false;
+        while (result == TAIL_CALL) {
+            if (tailLambda != null) {
+                LambdaExpression lambda = tailLambda;
+                tailLambda = null;
+                if (calling) {
+                    countStep();
+                } else {
+                    enterCall();
+                    calling = true;
+                }
+                Node compiled = jit != null ? jit.profile(lambda.getCode()) : null;
+                result = compiled != null ? compiled.execute(tailEnv) : step(lambda.getBlock(), tailEnv);
+            } else {
+                result = step(tailExp, tailEnv);
+            }
+        }
+        if (calling) {
+            leaveCall();
+        }
+        return result;
+    }
+
     /**
      * Apply conditional statement by evaluating all conditional statements and returning the consequent for the first
      * cause where the test returns true. If no test returns true, returns false.
      *
      * @param exp CondtionalExpression to evaluate
-     * @return Returns consequent of the first clause where the test returns true, else  false
+     * @return Returns TAIL_CALL for the consequent of the first clause where the test returns true, else false
      */
     private Expression applyConditional(ConditionalExpression exp, Environment env) {
         //for each clause, evaluate eval expression if true depending on expression type
         for (ClauseExpression clause : exp.getClauses()) {
-            Expression test = evaluate(clause.getTest(), env);
-            if (test.getType() != ExpressionType.BOOLEAN) {
-                throw new RuntimeException("Expected boolean but clause test evaluated as " + test.getType().toString() + ".");
-            }
-            if (((BooleanExpression) test).getValue()) {
-                return evaluate(clause.getConsequent(), env);
+            if (test(evaluate(clause.getTest(), env))) {
+                return tail(clause.getConsequent(), env);
             }
         }
         //return false if no expression eval expression returns true
-        return new BooleanExpression(false);
+        return BooleanExpression.FALSE;
+    }
+
+    /**
+     * Checks the evaluated test of a clause.
+     *
+     * @param test Evaluated clause test
+     * @return Returns value of the boolean test
+     * @throws RuntimeException Throws if test did not evaluate as boolean
+     */
+    static boolean test(Expression test) {
+        if (test.getType() != ExpressionType.BOOLEAN) {
+            throw new RuntimeException("Expected boolean but clause test evaluated as " + test.getType().toString() + ".");
+        }
+        return ((BooleanExpression) test).getValue();
+    }
+
+    /**
+     * Evaluates while loop by evaluating its block for as long as its test evaluates to
+     * true. The loop runs in the environment it is in, and its block only extends it if
+     * the block has defs.
+     *
+     * @param exp While expression to evaluate
+     * @param env Environment to evaluate in
+     * @return Returns false once the test evaluates to false
+     */
+    private Expression applyWhile(WhileExpression exp, Environment env) {
+        while (test(evaluate(exp.getTest(), env))) {
+            countStep();
+            evaluate(exp.getBlock(), env);
+        }
+        return BooleanExpression.FALSE;
     }
 
     /**
@@ -290,16 +1248,51 @@ public class Interpreter {
      * within that new scope.
      *
      * @param exp Let expression to evaluate
-     * @return Returns result of evaluating let expression
+     * @return Returns TAIL_CALL for the block of the let expression
      */
     private Expression applyLet(LetExpression exp, Environment env) {
-        Expression evalExp = evaluate(exp.getExpression(), env);
-        Environment extendedEnv = extend(exp.getIdentifier(), evalExp, env);
-        //if lambda expression, we must save the environment while binding the lambda function
-        if (lexicalScope && evalExp.getType() == ExpressionType.LAMBDA) {
-            ((LambdaExpression) evalExp).setEnvironment(extendedEnv);
+        Environment extendedEnv = extendLet(exp, evaluate(exp.getExpression(), env), env);
+        return tail(exp.getBlock(), extendedEnv);
+    }
+
+    /**
+     * Extends environment with the binding of a let expression. Lets flattened into the
+     * frame of the let before them bind their slot of the environment instead. Lambdas
+     * bound by let are closed over the environment when lexical scoping is enabled.
+     *
+     * @param let   Let expression binding the value
+     * @param value Evaluated value to bind
+     * @param env   Environment to extend
+     * @return Returns environment holding the binding
+     */
+    Environment extendLet(LetExpression let, Expression value, Environment env) {
+        List<IdentifierExpression> frame = let.getFrame();
+        //slots of later lets of the chain stay empty until they are bound
+        Environment extendedEnv = frame == null ? env
+                : new Environment(frame, new Expression[frame.size()], let.getIndex(), env);
+        //if lambda expression, bind a closure over the environment so the lambda can call itself
+        extendedEnv.setSlot(let.getSlot(), close(value, extendedEnv));
+        return extendedEnv;
+    }
+
+    /**
+     * Makes closure of a lambda over the environment it is bound in when lexical scoping
+     * is enabled. The lambda of the program is left unchanged, and values that are not
+     * lambdas or are already closures are returned as they are. Memoized lambdas are closed
+     * keeping their cache.
+     *
+     * @param value Evaluated value being bound
+     * @param env   Environment the value is bound in
+     * @return Returns closure, or the value if it is not closed
+     */
+    private Expression close(Expression value, Environment env) {
+        if (lexicalScope && value instanceof MemoExpression memo) {
+            return memo.close(env);
         }
-        return evaluate(exp.getBlock(), extendedEnv);
+        if (lexicalScope && value.getType() == ExpressionType.LAMBDA && ((LambdaExpression) value).getEnvironment() == null) {
+            return new ClosureExpression((LambdaExpression) value, env);
+        }
+        return value;
     }
 
     /**
@@ -308,24 +1301,20 @@ public class Interpreter {
      * returns BooleanExpression with value false.
      *
      * @param block BlockExpression to evaluate
-     * @return Returns false if block is empty, otherwise returns last expression in the block
+     * @return Returns false if block is empty, otherwise returns TAIL_CALL for the last expression in the block
      */
     private Expression executeBlock(BlockExpression block, Environment env) {
         //return false if empty
-        Expression result = new BooleanExpression(false);
-        //first go through and bind all def identifiers to dummy values
-        Environment newEnv = extend(env);
-        for (Expression exp : block.getBlock()) {
-            if (exp.getType() == ExpressionType.DEFINITION) {
-                bind(((DefinitionExpression) exp).getIdentifier(), new DummyExpression(), newEnv);
-            }
-        }
-        //evaluate every exp in block
-        for (Expression exp : block.getBlock()) {
-            result = evaluate(exp, newEnv);
+        Expression result = BooleanExpression.FALSE;
+        //bind all def identifiers to dummy values, blocks without defs need no frame
+        Environment newEnv = block.needsFrame() ? extend(block.getDefinitions(), env) : env;
+        //evaluate every exp in block but the last
+        List<Expression> exps = block.getBlock();
+        for (int i = 0; i < exps.size() - 1; i++) {
+            evaluate(exps.get(i), newEnv);
         }
-        //return last expression
-        return result;
+        //last expression is in tail position
+        return exps.isEmpty() ? result : tail(exps.get(exps.size() - 1), newEnv);
     }
 
     /**
@@ -335,6 +1324,17 @@ public class Interpreter {
      * @return Returns evaluated expression
      */
     public Expression evaluate(Expression exp, Environment env) {
+        return trampoline(step(exp, env));
+    }
+
+    /**
+     * Evaluates a single expression, leaving any expression in tail position to the trampoline.
+     *
+     * @param exp Expression to evaluate
+     * @param env Environment to evaluate in
+     * @return Returns evaluated expression or TAIL_CALL
+     */
+    private Expression step(Expression exp, Environment env) {
         //prints tracing statement
         if (tracing) {
             System.out.println("Evaluating " + exp.getType().toString() + " expression: " + exp);
@@ -360,6 +1360,8 @@ public class Interpreter {
             case COND -> applyConditional((ConditionalExpression) exp, env);
             //is let expression?
             case LET -> applyLet((LetExpression) exp, env);
+            //is while loop?
+            case WHILE -> applyWhile((WhileExpression) exp, env);
             //is definition expression?
             case DEFINITION -> applyDefinition((DefinitionExpression) exp, env);
             //is assignment?
@@ -0,0 +1,528 @@
+package interpreter;
+
+import expressions.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JIT tier for the tree walking interpreter. Counts calls of every lambda and once a
+ * lambda reaches the call threshold, compiles its function block into a hidden JVM class
+ * implementing Node. Later calls run the compiled method, which HotSpot can then inline
+ * and optimize like any other Java code. Lambdas that cannot be compiled keep being
+ * evaluated by the interpreter.
+ *
+ * @author Heath Dyer
+ */
+class LambdaJit {
+    /**
+     * Default number of calls before a lambda is compiled
+     */
+    static final int DEFAULT_THRESHOLD = 500;
+    /**
+     * Internal name of compiled classes, hidden classes get a unique suffix when defined
+     */
+    private static final String CLASS_NAME = "interpreter/CompiledLambda";
+    /**
+     * Internal name of the interpreter class
+     */
+    private static final String INTERPRETER = "interpreter/Interpreter";
+    /**
+     * Descriptor of expressions
+     */
+    private static final String EXPRESSION = "Lexpressions/Expression;";
+    /**
+     * Descriptor of identifiers
+     */
+    private static final String IDENTIFIER = "Lexpressions/IdentifierExpression;";
+    /**
+     * Descriptor of let expressions
+     */
+    private static final String LET = "Lexpressions/LetExpression;";
+    /**
+     * Descriptor of environments
+     */
+    private static final String ENVIRONMENT = "Linterpreter/Environment;";
+    /**
+     * Largest method the JVM accepts
+     */
+    private static final int MAX_CODE_LENGTH = 65535;
+    /**
+     * Largest local variable slot reachable without wide instructions
+     */
+    private static final int MAX_LOCALS = 255;
+
+    /**
+     * Interpreter running the compiled code
+     */
+    private final Interpreter interpreter;
+    /**
+     * Call profile of every lambda called so far
+     */
+    private final Map<LambdaExpression, Profile> profiles;
+    /**
+     * Number of calls before a lambda is compiled
+     */
+    private int threshold;
+    /**
+     * Number of lambdas compiled
+     */
+    private int compiledCount;
+
+    /**
+     * Call count and compiled code of a single lambda
+     */
+    private static class Profile {
+        /** Number of calls */
+        private int calls;
+        /** Compiled function block, null until compiled */
+        private Node compiled;
+        /** True if the lambda could not be compiled */
+        private boolean failed;
+    }
+
+    /**
+     * Thrown while generating code for an expression the JIT does not compile, or for a
+     * function block too large for a method
+     */
+    private static class UnsupportedExpression extends RuntimeException {
+        /**
+         * Version of the serialized form
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs new exception
+         *
+         * @param type Type of unsupported expression
+         */
+        private UnsupportedExpression(ExpressionType type) {
+            super("JIT cannot compile " + type + " expression.");
+        }
+
+        /**
+         * Constructs new exception for a limit of the method being exceeded
+         *
+         * @param message Limit exceeded
+         */
+        private UnsupportedExpression(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Constructs new JIT tier for the given interpreter
+     *
+     * @param interpreter Interpreter running the compiled code
+     */
+    LambdaJit(Interpreter interpreter) {
+        this.interpreter = interpreter;
+        this.profiles = new IdentityHashMap<>();
+        setThreshold(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Sets number of calls after which a lambda is compiled
+     *
+     * @param threshold Number of calls
+     * @throws IllegalArgumentException Throws if threshold is negative
+     */
+    void setThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("JIT threshold cannot be negative.");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Gets number of lambdas compiled
+     *
+     * @return Number of compiled lambdas
+     */
+    int getCompiledCount() {
+        return compiledCount;
+    }
+
+    /**
+     * Forgets the call profiles of the lambdas called so far, which belong to the copy of
+     * the program the last run prepared
+     */
+    void clearProfiles() {
+        profiles.clear();
+    }
+
+    /**
+     * Counts a call of the lambda and returns its compiled function block, compiling it
+     * when the call threshold is reached.
+     *
+     * @param lambda Lambda being called
+     * @return Returns compiled function block, or null if the lambda should be interpreted
+     */
+    Node profile(LambdaExpression lambda) {
+        Profile profile = profiles.get(lambda);
+        if (profile == null) {
+            profile = new Profile();
+            profiles.put(lambda, profile);
+        }
+        if (profile.compiled == null && !profile.failed && ++profile.calls >= threshold) {
+            profile.compiled = compile(lambda.getBlock());
+            if (profile.compiled == null) {
+                profile.failed = true;
+            } else {
+                compiledCount++;
+            }
+        }
+        return profile.compiled;
+    }
+
+    /**
+     * Compiles function block into a hidden class and instantiates it. Only blocks the
+     * generator does not support fall back to the interpreter. Anything going wrong once the
+     * class is generated is a bug in the generated code, and is thrown.
+     *
+     * @param block Function block to compile
+     * @return Returns compiled node, or null if the block could not be compiled
+     * @throws IllegalStateException Throws if the generated class cannot be loaded
+     */
+    private Node compile(BlockExpression block) {
+        Generator generator = new Generator(interpreter);
+        byte[] bytes;
+        try {
+            bytes = generator.generate(block);
+        } catch (UnsupportedExpression e) {
+            //anything we cannot compile keeps running in the interpreter
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class, Interpreter.class, Object[].class));
+            return (Node) constructor.invoke(interpreter, generator.constants.toArray());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("JIT could not load compiled lambda.", e);
+        }
+    }
+
+    /**
+     * Generates class file of a compiled function block. Expressions are compiled into
+     * straight line bytecode, evaluated values are kept on the operand stack, and
+     * environments and temporaries in local variables. Expressions from the tree are
+     * loaded from the constants array field.
+     */
+    private static class Generator {
+        /** Class being written */
+        private final ClassFileWriter writer;
+        /** Method being written */
+        private ClassFileWriter.MethodWriter method;
+        /** Constants referenced by compiled code */
+        private final List<Object> constants;
+        /** Interpreter whose call sites compiled applications share */
+        private final Interpreter interpreter;
+
+        /**
+         * Constructs new generator
+         *
+         * @param interpreter Interpreter running the compiled code
+         */
+        private Generator(Interpreter interpreter) {
+            this.writer = new ClassFileWriter(CLASS_NAME, "java/lang/Object", "interpreter/Node");
+            this.constants = new ArrayList<>();
+            this.interpreter = interpreter;
+        }
+
+        /**
+         * Generates class file with a constructor and an execute() method running the block
+         *
+         * @param block Function block to compile
+         * @return Returns bytes of class file
+         */
+        private byte[] generate(BlockExpression block) {
+            writer.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, "interpreter", "L" + INTERPRETER + ";");
+            writer.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, "constants", "[Ljava/lang/Object;");
+            //constructor storing interpreter and constants
+            method = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "(L" + INTERPRETER + ";[Ljava/lang/Object;)V");
+            method.aload(0);
+            method.invokespecial("java/lang/Object", "<init>", "()V");
+            method.aload(0);
+            method.aload(1);
+            method.putfield(CLASS_NAME, "interpreter", "L" + INTERPRETER + ";");
+            method.aload(0);
+            method.aload(2);
+            method.putfield(CLASS_NAME, "constants", "[Ljava/lang/Object;");
+            method.vreturn();
+            //execute method running the function block in local 1
+            method = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "execute", "(" + ENVIRONMENT + ")" + EXPRESSION);
+            emit(block, 1, true);
+            method.areturn();
+            if (method.size() > MAX_CODE_LENGTH) {
+                throw new UnsupportedExpression("Compiled method too large.");
+            }
+            return writer.toByteArray();
+        }
+
+        /**
+         * Emits code evaluating the expression and leaving the result on the stack
+         *
+         * @param exp Expression to compile
+         * @param env Local variable holding the environment
+         */
+        private void emit(Expression exp, int env) {
+            emit(exp, env, false);
+        }
+
+        /**
+         * Emits code evaluating the expression and leaving the result on the stack. Lambda
+         * calls in tail position leave their function block to the interpreter's trampoline,
+         * so their result is only ever returned from execute().
+         *
+         * @param exp  Expression to compile
+         * @param env  Local variable holding the environment
+         * @param tail True if the expression is in tail position of the function block
+         */
+        private void emit(Expression exp, int env, boolean tail) {
+            switch (exp.getType()) {
+                case INTEGER, STRING, BOOLEAN, LIST, PROCEDURE, LAMBDA -> constant(exp, "expressions/Expression");
+                case IDENTIFIER -> {
+                    constant(exp, "expressions/IdentifierExpression");
+                    method.aload(env);
+                    method.invokestatic(INTERPRETER, "lookup", "(" + IDENTIFIER + ENVIRONMENT + ")" + EXPRESSION);
+                }
+                case BLOCK -> emitBlock((BlockExpression) exp, env, tail);
+                case COND -> emitConditional((ConditionalExpression) exp, env, tail);
+                case LET -> emitLet((LetExpression) exp, env, tail);
+                case WHILE -> emitWhile((WhileExpression) exp, env);
+                case DEFINITION -> {
+                    DefinitionExpression def = (DefinitionExpression) exp;
+                    loadInterpreter();
+                    constant(def.getIdentifier(), "expressions/IdentifierExpression");
+                    emit(def.getExpression(), env);
+                    method.aload(env);
+                    method.invokevirtual(INTERPRETER, "define", "(" + IDENTIFIER + EXPRESSION + ENVIRONMENT + ")" + EXPRESSION);
+                }
+                case ASSIGNMENT -> {
+                    AssignmentExpression assign = (AssignmentExpression) exp;
+                    loadInterpreter();
+                    constant(assign.getIdentifier(), "expressions/IdentifierExpression");
+                    emit(assign.getExpression(), env);
+                    method.aload(env);
+                    method.invokevirtual(INTERPRETER, "assign", "(" + IDENTIFIER + EXPRESSION + ENVIRONMENT + ")" + EXPRESSION);
+                }
+                case APPLICATION -> emitApplication((ApplicationExpression) exp, env, tail);
+                default -> throw new UnsupportedExpression(exp.getType());
+            }
+        }
+
+        /**
+         * Emits block: extends the environment with a frame binding its defs to dummies if
+         * it has defs, and evaluates every expression keeping only the last result.
+         *
+         * @param block Block to compile
+         * @param env   Local variable holding the environment
+         * @param tail  True if the block is in tail position
+         */
+        private void emitBlock(BlockExpression block, int env, boolean tail) {
+            int newEnv = env;
+            if (block.needsFrame()) {
+                newEnv = newLocal();
+                constant(block.getDefinitions(), "java/util/List");
+                method.aload(env);
+                method.invokestatic(INTERPRETER, "extend", "(Ljava/util/List;" + ENVIRONMENT + ")" + ENVIRONMENT);
+                method.astore(newEnv);
+            }
+            List<Expression> exps = block.getBlock();
+            //return false if empty
+            if (exps.isEmpty()) {
+                emitFalse();
+                return;
+            }
+            for (int i = 0; i < exps.size(); i++) {
+                if (i < exps.size() - 1) {
+                    emit(exps.get(i), newEnv);
+                    method.pop();
+                } else {
+                    emit(exps.get(i), newEnv, tail);
+                }
+            }
+        }
+
+        /**
+         * Emits conditional as a chain of tests branching to their consequents
+         *
+         * @param cond Conditional to compile
+         * @param env  Local variable holding the environment
+         * @param tail True if the conditional is in tail position
+         */
+        private void emitConditional(ConditionalExpression cond, int env, boolean tail) {
+            ClassFileWriter.Label end = new ClassFileWriter.Label();
+            int stack = method.getStack();
+            for (ClauseExpression clause : cond.getClauses()) {
+                ClassFileWriter.Label next = new ClassFileWriter.Label();
+                emit(clause.getTest(), env);
+                method.invokestatic(INTERPRETER, "test", "(" + EXPRESSION + ")Z");
+                method.ifeq(next);
+                emit(clause.getConsequent(), env, tail);
+                method.goTo(end);
+                method.setStack(stack);
+                method.place(next);
+            }
+            //return false if no test returns true
+            emitFalse();
+            method.place(end);
+        }
+
+        /**
+         * Emits while loop as a test branching past the loop when false, followed by the
+         * block and a branch back to the test. Nothing in the loop is in tail position.
+         *
+         * @param loop While expression to compile
+         * @param env  Local variable holding the environment
+         */
+        private void emitWhile(WhileExpression loop, int env) {
+            ClassFileWriter.Label start = new ClassFileWriter.Label();
+            ClassFileWriter.Label end = new ClassFileWriter.Label();
+            method.place(start);
+            emit(loop.getTest(), env);
+            method.invokestatic(INTERPRETER, "test", "(" + EXPRESSION + ")Z");
+            method.ifeq(end);
+            loadInterpreter();
+            method.invokevirtual(INTERPRETER, "countStep", "()V");
+            emit(loop.getBlock(), env);
+            method.pop();
+            method.goTo(start);
+            method.place(end);
+            emitFalse();
+        }
+
+        /**
+         * Emits let expression
+         *
+         * @param let  Let expression to compile
+         * @param env  Local variable holding the environment
+         * @param tail True if the let expression is in tail position
+         */
+        private void emitLet(LetExpression let, int env, boolean tail) {
+            int newEnv = newLocal();
+            loadInterpreter();
+            constant(let, "expressions/LetExpression");
+            emit(let.getExpression(), env);
+            method.aload(env);
+            method.invokevirtual(INTERPRETER, "extendLet", "(" + LET + EXPRESSION + ENVIRONMENT + ")" + ENVIRONMENT);
+            method.astore(newEnv);
+            emit(let.getBlock(), newEnv, tail);
+        }
+
+        /**
+         * Emits function application. Operator and operands are evaluated in order and
+         * the call itself goes through Interpreter.call(), or Interpreter.tailCall() in
+         * tail position. Operands of calls with at most two of them are passed directly.
+         *
+         * @param exp  Application to compile
+         * @param env  Local variable holding the environment
+         * @param tail True if the application is in tail position
+         */
+        private void emitApplication(ApplicationExpression exp, int env, boolean tail) {
+            List<Expression> arguments = exp.getArguments();
+            int operator = newLocal();
+            emit(arguments.get(0), env);
+            method.astore(operator);
+            //at most two operands are passed to the interpreter without collecting them
+            int count = arguments.size() - 1;
+            if (count <= 2) {
+                int[] operands = new int[count];
+                for (int i = 0; i < count; i++) {
+                    operands[i] = newLocal();
+                    emit(arguments.get(i + 1), env);
+                    method.astore(operands[i]);
+                }
+                loadInterpreter();
+                constant(interpreter.callSite(exp), "interpreter/CallSite");
+                method.aload(operator);
+                method.iconst(count);
+                for (int i = 0; i < 2; i++) {
+                    if (i < count) {
+                        method.aload(operands[i]);
+                    } else {
+                        method.aconstNull();
+                    }
+                }
+                method.aload(env);
+                method.invokevirtual(INTERPRETER, tail ? "tailCall" : "call",
+                        "(Linterpreter/CallSite;" + EXPRESSION + "I" + EXPRESSION + EXPRESSION + ENVIRONMENT + ")" + EXPRESSION);
+                return;
+            }
+            int operands = newLocal();
+            method.newObject("java/util/LinkedList");
+            method.dup();
+            method.invokespecial("java/util/LinkedList", "<init>", "()V");
+            method.astore(operands);
+            for (Expression argument : arguments.subList(1, arguments.size())) {
+                method.aload(operands);
+                emit(argument, env);
+                method.invokeinterface("java/util/List", "add", "(Ljava/lang/Object;)Z");
+                method.pop();
+            }
+            loadInterpreter();
+            constant(exp, "expressions/ApplicationExpression");
+            method.aload(operator);
+            method.aload(operands);
+            method.aload(env);
+            method.invokevirtual(INTERPRETER, tail ? "tailCall" : "call",
+                    "(Lexpressions/ApplicationExpression;" + EXPRESSION + "Ljava/util/List;" + ENVIRONMENT + ")" + EXPRESSION);
+        }
+
+        /**
+         * Emits load of the shared false boolean expression
+         */
+        private void emitFalse() {
+            method.iconst(0);
+            method.invokestatic("expressions/BooleanExpression", "valueOf", "(Z)Lexpressions/BooleanExpression;");
+        }
+
+        /**
+         * Emits load of the interpreter field
+         */
+        private void loadInterpreter() {
+            method.aload(0);
+            method.getfield(CLASS_NAME, "interpreter", "L" + INTERPRETER + ";");
+        }
+
+        /**
+         * Emits load of a constant from the constants array field
+         *
+         * @param value Constant to load
+         * @param type  Internal name of the constant's class
+         */
+        private void constant(Object value, String type) {
+            int index = constants.size();
+            if (index > Short.MAX_VALUE) {
+                throw new UnsupportedExpression("Compiled method uses too many constants.");
+            }
+            constants.add(value);
+            method.aload(0);
+            method.getfield(CLASS_NAME, "constants", "[Ljava/lang/Object;");
+            method.iconst(index);
+            method.aaload();
+            method.checkcast(type);
+        }
+
+        /**
+         * Reserves a local variable slot
+         *
+         * @return Returns index of slot
+         */
+        private int newLocal() {
+            int local = method.newLocal();
+            if (local > MAX_LOCALS) {
+                throw new UnsupportedExpression("Compiled method uses too many locals.");
+            }
+            return local;
+        }
+    }
+}
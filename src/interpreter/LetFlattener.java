@@ -0,0 +1,156 @@
+package interpreter;
+
+import expressions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pass run on desugared programs before they are resolved that gives a chain of lets one
+ * environment frame. Desugaring turns every let of a block into a let around the rest of the
+ * block, so a block of many lets would otherwise evaluate in as many one slot frames, and
+ * every lookup by name past them would search each one. The first let of a chain instead
+ * makes a frame with a slot for every identifier of the chain, and each let after it binds
+ * its own slot. Slots of lets not evaluated yet are empty, so lookups by name pass over them
+ * to the frames around, the same as before the let made its frame.
+ * <p>
+ * A closure made in the chain captures the whole frame, so a let only joins the chain if no
+ * code evaluated in the frame before its value is bound refers to its identifier, and no
+ * let before it binds the same identifier. A lambda bound by the let itself may refer to it,
+ * since it is closed over a frame with its own binding either way. A let whose block needs a
+ * frame for defs ends the chain.
+ *
+ * @author Heath Dyer
+ */
+public abstract class LetFlattener {
+
+    /**
+     * Flattens every chain of lets in a desugared program
+     *
+     * @param program Desugared program to flatten
+     * @return Returns the program
+     */
+    public static Expression flatten(Expression program) {
+        flatten(program, new HashSet<>());
+        return program;
+    }
+
+    /**
+     * Recursively flattens the chains of lets in an expression, collecting every identifier
+     * in it whether it is referenced or bound
+     *
+     * @param exp   Expression to flatten
+     * @param names Set to add the identifiers of the expression to
+     */
+    private static void flatten(Expression exp, Set<IdentifierExpression> names) {
+        switch (exp.getType()) {
+            case IDENTIFIER -> names.add((IdentifierExpression) exp);
+            case ASSIGNMENT -> {
+                AssignmentExpression assign = (AssignmentExpression) exp;
+                names.add(assign.getIdentifier());
+                flatten(assign.getExpression(), names);
+            }
+            case APPLICATION -> {
+                for (Expression argument : ((ApplicationExpression) exp).getArguments()) {
+                    flatten(argument, names);
+                }
+            }
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                names.addAll(lambda.getParameters().getParameters());
+                flatten(lambda.getBlock(), names);
+            }
+            case COND -> {
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    flatten(clause.getTest(), names);
+                    flatten(clause.getConsequent(), names);
+                }
+            }
+            case BLOCK -> {
+                for (Expression child : ((BlockExpression) exp).getBlock()) {
+                    flatten(child, names);
+                }
+            }
+            case LET -> flattenChain((LetExpression) exp, names);
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                flatten(loop.getTest(), names);
+                flatten(loop.getBlock(), names);
+            }
+            case DEFINITION -> {
+                DefinitionExpression def = (DefinitionExpression) exp;
+                names.add(def.getIdentifier());
+                flatten(def.getExpression(), names);
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Gives a let and the lets chained after it one frame. The next let of the chain is the
+     * last expression of the block of the let before it, where desugaring put it.
+     *
+     * @param first First let of the chain, which makes the frame
+     * @param names Set to add the identifiers of the chain to
+     */
+    private static void flattenChain(LetExpression first, Set<IdentifierExpression> names) {
+        List<IdentifierExpression> frame = new ArrayList<>(List.of(first.getIdentifier()));
+        //identifiers of the code evaluated in the frame so far
+        Set<IdentifierExpression> referenced = new HashSet<>();
+        flatten(first.getExpression(), referenced);
+        LetExpression let = first;
+        while (true) {
+            List<Expression> contents = let.getBlock().getBlock();
+            LetExpression next = null;
+            if (!let.getBlock().needsFrame() && !contents.isEmpty()
+                    && contents.get(contents.size() - 1).getType() == ExpressionType.LET) {
+                next = (LetExpression) contents.get(contents.size() - 1);
+            }
+            for (Expression child : contents) {
+                if (child != next) {
+                    flatten(child, referenced);
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            Set<IdentifierExpression> value = new HashSet<>();
+            flatten(next.getExpression(), value);
+            if (!joins(next, value, frame, referenced)) {
+                referenced.addAll(value);
+                flattenChain(next, referenced);
+                break;
+            }
+            frame.add(next.getIdentifier());
+            next.setFrame(null, frame.size() - 1);
+            referenced.addAll(value);
+            let = next;
+        }
+        first.setFrame(List.copyOf(frame), 0);
+        names.addAll(frame);
+        names.addAll(referenced);
+    }
+
+    /**
+     * Checks a let can bind its identifier in the frame of the chain before it without
+     * changing what any identifier refers to
+     *
+     * @param let        Let after the chain
+     * @param value      Identifiers of the expression the let binds
+     * @param frame      Identifiers of the chain
+     * @param referenced Identifiers of the code evaluated in the frame of the chain so far
+     * @return Returns true if the let can join the chain
+     */
+    private static boolean joins(LetExpression let, Set<IdentifierExpression> value, List<IdentifierExpression> frame,
+                                 Set<IdentifierExpression> referenced) {
+        IdentifierExpression identifier = let.getIdentifier();
+        if (frame.contains(identifier) || referenced.contains(identifier)) {
+            return false;
+        }
+        //a bound lambda is closed over a frame binding itself either way
+        return let.getExpression().getType() == ExpressionType.LAMBDA || !value.contains(identifier);
+    }
+}
@@ -0,0 +1,20 @@
+package interpreter;
+
+import expressions.Expression;
+
+/**
+ * Executable node produced by the closure compiler. A node is linked to its
+ * child nodes once, so executing it does not dispatch on expression type.
+ *
+ * @author Heath Dyer
+ */
+@FunctionalInterface
+public interface Node {
+    /**
+     * Executes node in the given environment
+     *
+     * @param env Environment to execute in
+     * @return Returns evaluated expression
+     */
+    Expression execute(Environment env);
+}
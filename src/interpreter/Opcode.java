@@ -0,0 +1,131 @@
+package interpreter;
+
+/**
+ * Instruction set of the bytecode virtual machine. Every instruction is an opcode
+ * followed by a fixed number of int operands in the instruction stream. Operands are
+ * either constant pool indexes or instruction addresses.
+ *
+ * @author Heath Dyer
+ */
+public final class Opcode {
+    /**
+     * Pushes constant. Operands: constant index of the expression
+     */
+    public static final int CONST = 0;
+    /**
+     * Pushes value bound to identifier. Operands: constant index of the identifier
+     */
+    public static final int LOOKUP = 1;
+    /**
+     * Discards top of the operand stack
+     */
+    public static final int POP = 2;
+    /**
+     * Prints tracing statement. Operands: constant index of the expression being evaluated
+     */
+    public static final int TRACE = 3;
+    /**
+     * Saves environment and extends it for a block, binding dummy values for defs.
+     * Operands: constant index of the def identifier list
+     */
+    public static final int ENTER = 4;
+    /**
+     * Restores environment saved by ENTER or LET
+     */
+    public static final int LEAVE = 5;
+    /**
+     * Saves environment and extends it with a let binding of the popped value, or binds the
+     * value in the environment's frame if the let was flattened into it.
+     * Operands: constant index of the let expression
+     */
+    public static final int LET = 6;
+    /**
+     * Replaces dummy binding with the popped value and pushes it. Operands: constant index of the identifier
+     */
+    public static final int DEFINE = 7;
+    /**
+     * Rebinds identifier to the popped value and pushes it. Operands: constant index of the identifier
+     */
+    public static final int ASSIGN = 8;
+    /**
+     * Jumps unconditionally. Operands: target address
+     */
+    public static final int JUMP = 9;
+    /**
+     * Pops clause test and jumps if it is false. Operands: target address
+     */
+    public static final int JUMP_IF_FALSE = 10;
+    /**
+     * Pushes operator cached by the call site and jumps past the operator code, if cached.
+     * Operands: constant index of the call site, target address
+     */
+    public static final int CACHED = 11;
+    /**
+     * Caches operator on top of the stack in the call site. Operands: constant index of the call site
+     */
+    public static final int RESOLVE = 12;
+    /**
+     * Pops operands and operator and calls the operator. Operands: constant index of the
+     * call site, number of operands
+     */
+    public static final int CALL = 13;
+    /**
+     * Returns from the current function block, or ends the program
+     */
+    public static final int RETURN = 14;
+    /**
+     * Throws runtime exception. Operands: constant index of the message
+     */
+    public static final int FAIL = 15;
+
+    /**
+     * Mnemonic of every opcode, indexed by opcode
+     */
+    private static final String[] NAMES = {"CONST", "LOOKUP", "POP", "TRACE", "ENTER", "LEAVE", "LET", "DEFINE",
+            "ASSIGN", "JUMP", "JUMP_IF_FALSE", "CACHED", "RESOLVE", "CALL", "RETURN", "FAIL"};
+    /**
+     * Number of operands of every opcode, indexed by opcode
+     */
+    private static final int[] OPERANDS = {1, 1, 0, 1, 1, 0, 1, 1, 1, 1, 1, 2, 1, 2, 0, 1};
+
+    /**
+     * Opcodes are only used as constants
+     */
+    private Opcode() {
+    }
+
+    /**
+     * Gets mnemonic of opcode
+     *
+     * @param opcode Opcode to name
+     * @return Returns mnemonic
+     * @throws IllegalArgumentException Throws if opcode is unknown
+     */
+    public static String getName(int opcode) {
+        check(opcode);
+        return NAMES[opcode];
+    }
+
+    /**
+     * Gets number of operands following opcode
+     *
+     * @param opcode Opcode to check
+     * @return Returns number of operands
+     * @throws IllegalArgumentException Throws if opcode is unknown
+     */
+    public static int getOperands(int opcode) {
+        check(opcode);
+        return OPERANDS[opcode];
+    }
+
+    /**
+     * Checks opcode is known
+     *
+     * @param opcode Opcode to check
+     */
+    private static void check(int opcode) {
+        if (opcode < 0 || opcode >= NAMES.length) {
+            throw new IllegalArgumentException("Unknown opcode " + opcode + ".");
+        }
+    }
+}
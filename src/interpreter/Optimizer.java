@@ -0,0 +1,372 @@
+package interpreter;
+
+import expressions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimizer pass run on desugared programs before they are evaluated. Calls of small
+ * lambdas are first inlined by the Inliner. Then calls of pure built in procedures with
+ * constant arguments are folded into their value, identifiers bound to a constant that
+ * can never change are replaced by the constant, and conditional clauses that can never
+ * be reached are pruned. The optimized program evaluates to the
+ * same value and has the same effects as the original.
+ *
+ * @author Heath Dyer
+ */
+public class Optimizer {
+    /**
+     * Built in procedures whose result only depends on their arguments
+     */
+    private static final Set<String> PURE_PROCEDURES = Set.of("add", "sub", "mul", "div", "mod",
+            "equals?", "greaterThan?", "lessThan?", "zero?", "or?", "and?", "not?",
+            "concat", "charAt", "substring", "length", "isDigit?", "isLetter?", "parseInt");
+
+    /**
+     * If false, constants bound by let are not propagated into lambdas, which may be called
+     * where the let binding is not in scope
+     */
+    private final boolean lexicalScope;
+    /**
+     * Number of times the program binds each identifier with a parameter, let, or def
+     */
+    private final Map<IdentifierExpression, Integer> bindings;
+    /**
+     * Identifiers the program assigns anywhere
+     */
+    private final Set<IdentifierExpression> assigned;
+    /**
+     * Number of lambda calls inlined
+     */
+    private int inlined;
+    /**
+     * Number of procedure calls folded
+     */
+    private int folded;
+    /**
+     * Number of identifier references replaced by constants
+     */
+    private int propagated;
+    /**
+     * Number of clauses pruned
+     */
+    private int pruned;
+
+    /**
+     * Constructs new optimizer
+     *
+     * @param lexicalScope True if the program is evaluated with lexical scoping
+     */
+    public Optimizer(boolean lexicalScope) {
+        this.lexicalScope = lexicalScope;
+        this.bindings = new HashMap<>();
+        this.assigned = new HashSet<>();
+    }
+
+    /**
+     * Optimizes a copy of a desugared program. What can be folded depends on the scoping
+     * mode, so the program itself is left unchanged and can still be run in either mode.
+     *
+     * @param program Desugared program to optimize
+     * @return Returns optimized copy of the program
+     */
+    public Expression optimize(Expression program) {
+        count(program);
+        //the rest of the passes work on the copy the inliner makes
+        Inliner inliner = new Inliner(lexicalScope, bindings, assigned);
+        program = inliner.inline(program);
+        inlined = inliner.getInlined();
+        //inlined parameters are new bindings that may now be constant
+        bindings.clear();
+        assigned.clear();
+        count(program);
+        return optimize(program, new HashMap<>());
+    }
+
+    /**
+     * Gets number of lambda calls inlined
+     *
+     * @return Returns number of inlined calls
+     */
+    public int getInlined() {
+        return inlined;
+    }
+
+    /**
+     * Gets number of procedure calls folded into their value
+     *
+     * @return Returns number of folded calls
+     */
+    public int getFolded() {
+        return folded;
+    }
+
+    /**
+     * Gets number of identifier references replaced by constants
+     *
+     * @return Returns number of propagated constants
+     */
+    public int getPropagated() {
+        return propagated;
+    }
+
+    /**
+     * Gets number of conditional clauses pruned
+     *
+     * @return Returns number of pruned clauses
+     */
+    public int getPruned() {
+        return pruned;
+    }
+
+    /**
+     * Gets report of what the optimizer did
+     *
+     * @return Returns report
+     */
+    public String getReport() {
+        return "Inlined calls: " + inlined + "\nFolded calls: " + folded + "\nPropagated constants: " + propagated + "\nPruned clauses: " + pruned;
+    }
+
+    /**
+     * Counts the bindings and finds the assignments of every identifier in an expression
+     *
+     * @param exp Expression to count in
+     */
+    private void count(Expression exp) {
+        switch (exp.getType()) {
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                for (IdentifierExpression parameter : lambda.getParameters().getParameters()) {
+                    bindings.merge(parameter, 1, Integer::sum);
+                }
+                count(lambda.getBlock());
+            }
+            case BLOCK -> {
+                for (Expression child : ((BlockExpression) exp).getBlock()) {
+                    count(child);
+                }
+            }
+            case COND -> {
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    count(clause.getTest());
+                    count(clause.getConsequent());
+                }
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                bindings.merge(let.getIdentifier(), 1, Integer::sum);
+                count(let.getExpression());
+                count(let.getBlock());
+            }
+            case DEFINITION -> {
+                DefinitionExpression def = (DefinitionExpression) exp;
+                bindings.merge(def.getIdentifier(), 1, Integer::sum);
+                count(def.getExpression());
+            }
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                count(loop.getTest());
+                count(loop.getBlock());
+            }
+            case ASSIGNMENT -> {
+                AssignmentExpression assign = (AssignmentExpression) exp;
+                assigned.add(assign.getIdentifier());
+                count(assign.getExpression());
+            }
+            case APPLICATION -> {
+                for (Expression argument : ((ApplicationExpression) exp).getArguments()) {
+                    count(argument);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Recursively optimizes an expression
+     *
+     * @param exp       Expression to optimize
+     * @param constants Constants bound by the lets the expression is in
+     * @return Returns optimized expression
+     */
+    private Expression optimize(Expression exp, Map<IdentifierExpression, Expression> constants) {
+        switch (exp.getType()) {
+            case IDENTIFIER -> {
+                Expression constant = constant((IdentifierExpression) exp, constants);
+                if (constant != null) {
+                    propagated++;
+                    return constant;
+                }
+                return exp;
+            }
+            case APPLICATION -> {
+                return optimizeApplication((ApplicationExpression) exp, constants);
+            }
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                lambda.setBlock((BlockExpression) optimize(lambda.getBlock(), lexicalScope ? constants : new HashMap<>()));
+                return lambda;
+            }
+            case COND -> {
+                return optimizeConditional((ConditionalExpression) exp, constants);
+            }
+            case BLOCK -> {
+                List<Expression> block = ((BlockExpression) exp).getBlock();
+                for (int i = 0; i < block.size(); i++) {
+                    block.set(i, optimize(block.get(i), constants));
+                }
+                return exp;
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                let.setExpression(optimize(let.getExpression(), constants));
+                //the binding can only change if it is bound again or assigned
+                if (isConstant(let.getExpression()) && bindings.get(let.getIdentifier()) == 1
+                        && !assigned.contains(let.getIdentifier())) {
+                    constants = new HashMap<>(constants);
+                    constants.put(let.getIdentifier(), let.getExpression());
+                }
+                let.setBlock((BlockExpression) optimize(let.getBlock(), constants));
+                return let;
+            }
+            case DEFINITION -> {
+                DefinitionExpression def = (DefinitionExpression) exp;
+                def.setExpression(optimize(def.getExpression(), constants));
+                return def;
+            }
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                loop.setTest(optimize(loop.getTest(), constants));
+                loop.setBlock((BlockExpression) optimize(loop.getBlock(), constants));
+                return loop;
+            }
+            case ASSIGNMENT -> {
+                AssignmentExpression assign = (AssignmentExpression) exp;
+                assign.setExpression(optimize(assign.getExpression(), constants));
+                return assign;
+            }
+            default -> {
+                return exp;
+            }
+        }
+    }
+
+    /**
+     * Optimizes application, folding it if it calls a pure built in procedure with constant arguments
+     *
+     * @param app       Application expression to optimize
+     * @param constants Constants bound by the lets the expression is in
+     * @return Returns optimized expression
+     */
+    private Expression optimizeApplication(ApplicationExpression app, Map<IdentifierExpression, Expression> constants) {
+        List<Expression> arguments = app.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            arguments.set(i, optimize(arguments.get(i), constants));
+        }
+        if (arguments.isEmpty() || !(arguments.get(0) instanceof IdentifierExpression operator)
+                || !PURE_PROCEDURES.contains(operator.getName()) || !isDefault(operator)) {
+            return app;
+        }
+        List<Expression> operands = new ArrayList<>(arguments.subList(1, arguments.size()));
+        for (Expression operand : operands) {
+            if (!isConstant(operand)) {
+                return app;
+            }
+        }
+        try {
+            Expression value = ((ProcedureExpression) Prelude.get(operator)).apply(operands);
+            folded++;
+            return value;
+        } catch (RuntimeException e) {
+            //calls that fail are left for evaluation to report
+            return app;
+        }
+    }
+
+    /**
+     * Optimizes conditional, pruning clauses after a test that is always true and clauses
+     * whose test is always false
+     *
+     * @param cond      Conditional expression to optimize
+     * @param constants Constants bound by the lets the expression is in
+     * @return Returns optimized expression
+     */
+    private Expression optimizeConditional(ConditionalExpression cond, Map<IdentifierExpression, Expression> constants) {
+        List<ClauseExpression> clauses = new ArrayList<>();
+        List<ClauseExpression> original = cond.getClauses();
+        for (int i = 0; i < original.size(); i++) {
+            ClauseExpression clause = original.get(i);
+            clause.setTest(optimize(clause.getTest(), constants));
+            clause.setConsequent(optimize(clause.getConsequent(), constants));
+            if (clause.getTest() instanceof BooleanExpression test) {
+                if (!test.getValue()) {
+                    pruned++;
+                    continue;
+                }
+                clauses.add(clause);
+                pruned += original.size() - i - 1;
+                break;
+            }
+            clauses.add(clause);
+        }
+        //return false if no clause is left
+        if (clauses.isEmpty()) {
+            return BooleanExpression.FALSE;
+        }
+        //first test is always true
+        if (clauses.get(0).getTest() instanceof BooleanExpression) {
+            return clauses.get(0).getConsequent();
+        }
+        cond.setClauses(clauses);
+        return cond;
+    }
+
+    /**
+     * Gets constant an identifier reference always evaluates to
+     *
+     * @param identifier Identifier reference
+     * @param constants  Constants bound by the lets the reference is in
+     * @return Returns constant, null if the identifier is not constant
+     */
+    private Expression constant(IdentifierExpression identifier, Map<IdentifierExpression, Expression> constants) {
+        Expression constant = constants.get(identifier);
+        if (constant != null) {
+            return constant;
+        }
+        if (isDefault(identifier)) {
+            Expression value = Prelude.get(identifier);
+            return isConstant(value) ? value : null;
+        }
+        return null;
+    }
+
+    /**
+     * Checks identifier always refers to its default binding
+     *
+     * @param identifier Identifier to check
+     * @return Returns true if the program never binds or assigns the identifier and it has a default binding
+     */
+    private boolean isDefault(IdentifierExpression identifier) {
+        return !bindings.containsKey(identifier) && !assigned.contains(identifier) && Prelude.indexOf(identifier) >= 0;
+    }
+
+    /**
+     * Checks expression is a constant that evaluates to itself
+     *
+     * @param exp Expression to check
+     * @return Returns true if expression is an integer, string, or boolean
+     */
+    private static boolean isConstant(Expression exp) {
+        return switch (exp.getType()) {
+            case INTEGER, STRING, BOOLEAN -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,184 @@
+package interpreter;
+
+import expressions.BooleanExpression;
+import expressions.Expression;
+import expressions.IdentifierExpression;
+import expressions.IntegerExpression;
+import expressions.ProcedureExpression;
+import expressions.ProcedureExpression.Procedure0;
+import expressions.ProcedureExpression.Procedure1;
+import expressions.ProcedureExpression.Procedure2;
+import expressions.ProcedureExpression.ProcedureN;
+import procedures.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default bindings of the initial environment. The table is built once and shared by every
+ * run. Each run gets an initial environment frame whose slots are the shared table, copied
+ * only when the program first assigns one of the default bindings.
+ *
+ * @author Heath Dyer
+ */
+public final class Prelude {
+    /**
+     * Identifier of every default binding, in slot order
+     */
+    private static final List<IdentifierExpression> NAMES = new ArrayList<>();
+    /**
+     * Value of every default binding, in slot order
+     */
+    private static final List<Expression> VALUES = new ArrayList<>();
+
+    static {
+        //initialize environment variables
+        add("x", IntegerExpression.valueOf(10));
+        add("v", IntegerExpression.valueOf(5));
+        add("i", IntegerExpression.valueOf(1));
+        add("true", BooleanExpression.TRUE);
+        add("false", BooleanExpression.FALSE);
+        //initialize math procedures
+        addBinary("add", MathProcedures::add, MathProcedures::add);
+        addBinary("sub", MathProcedures::sub, MathProcedures::sub);
+        addBinary("mul", MathProcedures::mul, MathProcedures::mul);
+        addBinary("div", MathProcedures::div, MathProcedures::div);
+        addBinary("mod", MathProcedures::mod, MathProcedures::mod);
+        //initialize comparison procedures
+        addBinary("equals?", LogicProcedures::eq, LogicProcedures::eq);
+        addBinary("greaterThan?", LogicProcedures::greaterThan, LogicProcedures::greaterThan);
+        addBinary("lessThan?", LogicProcedures::lessThan, LogicProcedures::lessThan);
+        addUnary("zero?", LogicProcedures::isZero, LogicProcedures::isZero);
+        add("or?", new ProcedureExpression(LogicProcedures::or));
+        add("and?", new ProcedureExpression(LogicProcedures::and));
+        addUnary("not?", LogicProcedures::not, LogicProcedures::not);
+        //initialize io procedures
+        add("print", new ProcedureExpression(IOProcedures::print));
+        add("fail", new ProcedureExpression(IOProcedures::fail));
+        addNullary("readInput", IOProcedures::readInput, IOProcedures::readInput);
+        addNullary("readLine", IOProcedures::readLine, IOProcedures::readLine);
+        add("readFile", new ProcedureExpression(IOProcedures::readFile));
+        //initialize String procedures
+        add("concat", new ProcedureExpression(StringProcedures::concat));
+        addBinary("charAt", StringProcedures::charAt, StringProcedures::charAt);
+        add("substring", new ProcedureExpression(StringProcedures::substring));
+        addUnary("length", StringProcedures::length, StringProcedures::length);
+        add("isDigit?", new ProcedureExpression(StringProcedures::isDigit));
+        add("isLetter?", new ProcedureExpression(StringProcedures::isLetter));
+        add("parseInt", new ProcedureExpression(StringProcedures::parseInt));
+        //list procedures
+        addBinary("cons", ListProcedures::cons, ListProcedures::cons);
+        addUnary("head", ListProcedures::head, ListProcedures::head);
+        addUnary("tail", ListProcedures::tail, ListProcedures::tail);
+        addUnary("isEmpty?", ListProcedures::isEmpty, ListProcedures::isEmpty);
+        add("reverse", new ProcedureExpression(ListProcedures::reverse));
+        add("append", new ProcedureExpression(ListProcedures::append));
+        add("map", new ProcedureExpression(ListProcedures::map));
+        //general
+        add("type", new ProcedureExpression(GeneralProcedures::getType));
+        add("memo", new ProcedureExpression(GeneralProcedures::memo));
+    }
+
+    /**
+     * Shared identifiers of the initial environment frames
+     */
+    private static final List<IdentifierExpression> SLOT_NAMES = Collections.unmodifiableList(NAMES);
+    /**
+     * Shared values of the initial environment frames, never written
+     */
+    private static final Expression[] SLOTS = VALUES.toArray(new Expression[0]);
+    /**
+     * Slot of every default binding, by identifier
+     */
+    private static final Map<IdentifierExpression, Integer> INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < NAMES.size(); i++) {
+            INDEX.put(NAMES.get(i), i);
+        }
+    }
+
+    /**
+     * Prelude is only used statically
+     */
+    private Prelude() {
+    }
+
+    /**
+     * Adds default binding to the table
+     *
+     * @param name  Name of the identifier
+     * @param value Value to bind
+     */
+    private static void add(String name, Expression value) {
+        NAMES.add(new IdentifierExpression(name));
+        VALUES.add(value);
+    }
+
+    /**
+     * Adds default binding of a procedure taking no arguments
+     *
+     * @param name     Name of the identifier
+     * @param function Procedure taking the arguments as a list
+     * @param nullary  Procedure taking no arguments
+     */
+    private static void addNullary(String name, ProcedureN function, Procedure0 nullary) {
+        add(name, new ProcedureExpression(function, nullary));
+    }
+
+    /**
+     * Adds default binding of a procedure taking one argument
+     *
+     * @param name     Name of the identifier
+     * @param function Procedure taking the arguments as a list
+     * @param unary    Procedure taking the argument directly
+     */
+    private static void addUnary(String name, ProcedureN function, Procedure1 unary) {
+        add(name, new ProcedureExpression(function, unary));
+    }
+
+    /**
+     * Adds default binding of a procedure taking two arguments
+     *
+     * @param name     Name of the identifier
+     * @param function Procedure taking the arguments as a list
+     * @param binary   Procedure taking the arguments directly
+     */
+    private static void addBinary(String name, ProcedureN function, Procedure2 binary) {
+        add(name, new ProcedureExpression(function, binary));
+    }
+
+    /**
+     * Creates new initial environment frame over the shared table
+     *
+     * @return Returns initial environment
+     */
+    public static Environment newEnvironment() {
+        return new Environment(SLOT_NAMES, SLOTS, INDEX);
+    }
+
+    /**
+     * Gets value of a default binding
+     *
+     * @param identifier Identifier to look for
+     * @return Returns default value of the identifier, null if it has no default binding
+     */
+    public static Expression get(IdentifierExpression identifier) {
+        int slot = indexOf(identifier);
+        return slot < 0 ? null : SLOTS[slot];
+    }
+
+    /**
+     * Gets slot of a default binding
+     *
+     * @param identifier Identifier to look for
+     * @return Returns slot of the identifier, -1 if it has no default binding
+     */
+    public static int indexOf(IdentifierExpression identifier) {
+        Integer slot = INDEX.get(identifier);
+        return slot == null ? -1 : slot;
+    }
+}
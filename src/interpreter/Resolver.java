@@ -0,0 +1,155 @@
+package interpreter;
+
+import expressions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolver pass run on desugared programs when lexical scoping is enabled. Every block
+ * with defs, chain of lets, and lambda call makes an environment frame, so the frame holding an identifier's
+ * binding is a fixed number of frames up from any reference to it. The resolver gives
+ * each reference that lexical address, so evaluation indexes straight into the frame
+ * instead of searching every environment by name.
+ * <p>
+ * The environment a lambda runs in depends on how it was called, so references to
+ * identifiers a lambda does not bind itself only skip the lambda's own frames and are
+ * looked up by name from there. References to default bindings the program never binds
+ * itself go straight to the slot of the initial environment, wherever they are.
+ *
+ * @author Heath Dyer
+ */
+public abstract class Resolver {
+
+    /**
+     * Identifiers bound by one environment frame, linked to the frame around it
+     *
+     * @param names    Identifiers of the frame's slots
+     * @param function True if the frame is made by a lambda call
+     * @param parent   Enclosing scope, null at the top of the program
+     */
+    private record Scope(List<IdentifierExpression> names, boolean function, Scope parent) {
+    }
+
+    /**
+     * Resolves every identifier reference in a desugared program
+     *
+     * @param program Desugared program to resolve
+     * @return Returns the program
+     */
+    public static Expression resolve(Expression program) {
+        Set<IdentifierExpression> bound = new HashSet<>();
+        Interpreter.collectBindings(program, bound);
+        return resolve(program, bound);
+    }
+
+    /**
+     * Resolves every identifier reference in a desugared program
+     *
+     * @param program Desugared program to resolve
+     * @param bound   Identifiers the program binds anywhere, from Interpreter.collectBindings()
+     * @return Returns the program
+     */
+    static Expression resolve(Expression program, Set<IdentifierExpression> bound) {
+        resolve(program, null, bound);
+        return program;
+    }
+
+    /**
+     * Recursively resolves the identifier references of an expression
+     *
+     * @param exp   Expression to resolve
+     * @param scope Scope the expression is evaluated in
+     * @param bound Identifiers the program binds anywhere
+     */
+    private static void resolve(Expression exp, Scope scope, Set<IdentifierExpression> bound) {
+        switch (exp.getType()) {
+            case IDENTIFIER -> address((IdentifierExpression) exp, scope, bound);
+            case ASSIGNMENT -> {
+                AssignmentExpression assign = (AssignmentExpression) exp;
+                address(assign.getIdentifier(), scope, bound);
+                resolve(assign.getExpression(), scope, bound);
+            }
+            case APPLICATION -> {
+                for (Expression argument : ((ApplicationExpression) exp).getArguments()) {
+                    resolve(argument, scope, bound);
+                }
+            }
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                resolve(lambda.getBlock(), new Scope(lambda.getParameters().getParameters(), true, scope), bound);
+            }
+            case COND -> {
+                for (ClauseExpression clause : ((ConditionalExpression) exp).getClauses()) {
+                    resolve(clause.getTest(), scope, bound);
+                    resolve(clause.getConsequent(), scope, bound);
+                }
+            }
+            case BLOCK -> {
+                BlockExpression block = (BlockExpression) exp;
+                //blocks without defs are evaluated in the frame around them
+                Scope blockScope = block.needsFrame() ? new Scope(block.getDefinitions(), false, scope) : scope;
+                for (Expression child : block.getBlock()) {
+                    //defs directly in the block replace the dummy in its own frame
+                    if (child.getType() == ExpressionType.DEFINITION) {
+                        DefinitionExpression def = (DefinitionExpression) child;
+                        def.getIdentifier().setAddress(0, blockScope.names().indexOf(def.getIdentifier()));
+                    }
+                    resolve(child, blockScope, bound);
+                }
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                resolve(let.getExpression(), scope, bound);
+                if (let.getFrame() != null) {
+                    resolve(let.getBlock(), new Scope(let.getFrame().subList(0, 1), false, scope), bound);
+                } else {
+                    //flattened lets bind the next slot of the frame of the let before them
+                    List<IdentifierExpression> names = new ArrayList<>(scope.names());
+                    names.add(let.getIdentifier());
+                    resolve(let.getBlock(), new Scope(names, false, scope.parent()), bound);
+                }
+            }
+            case WHILE -> {
+                WhileExpression loop = (WhileExpression) exp;
+                resolve(loop.getTest(), scope, bound);
+                resolve(loop.getBlock(), scope, bound);
+            }
+            //defs outside a block keep searching for their dummy by name
+            case DEFINITION -> resolve(((DefinitionExpression) exp).getExpression(), scope, bound);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Gives identifier reference the address of its binding
+     *
+     * @param identifier Identifier reference to address
+     * @param scope      Scope of the reference
+     * @param bound      Identifiers the program binds anywhere
+     */
+    private static void address(IdentifierExpression identifier, Scope scope, Set<IdentifierExpression> bound) {
+        //nothing can shadow a default binding the program never binds
+        if (!bound.contains(identifier) && Prelude.indexOf(identifier) >= 0) {
+            identifier.setAddress(IdentifierExpression.GLOBAL, Prelude.indexOf(identifier));
+            return;
+        }
+        int depth = 0;
+        for (; scope != null; scope = scope.parent()) {
+            //later parameters with the same name shadow earlier ones
+            int slot = scope.names().lastIndexOf(identifier);
+            if (slot >= 0) {
+                identifier.setAddress(depth, slot);
+                return;
+            }
+            depth++;
+            if (scope.function()) {
+                break;
+            }
+        }
+        identifier.setAddress(depth, -1);
+    }
+}
@@ -0,0 +1,174 @@
+package interpreter;
+
+import expressions.Expression;
+import expressions.IdentifierExpression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shallow binding table for dynamic scoping. Every identifier has a stack of the bindings
+ * the frames of the current environment give it, nearest frame on top, so looking up an
+ * identifier reads the top of its stack instead of searching every frame of the dynamic
+ * call chain. Entering a frame pushes its bindings and leaving it pops them. Since tail
+ * calls and the vm engine switch environments without returning, the table is moved to the
+ * environment of each lookup by leaving frames up to the frame it shares with the current
+ * environment and entering the frames down to it. Calls and returns move one frame, so
+ * lookups take constant time however deep the recursion is.
+ *
+ * @author Heath Dyer
+ */
+final class ShallowBindings {
+    /**
+     * Binding of an identifier to a slot of a frame, linked to the binding it shadows
+     *
+     * @param frame    Frame binding the identifier
+     * @param slot     Slot of the identifier in the frame
+     * @param shadowed Binding below this one on the identifier's stack, null if there is none
+     */
+    private record Binding(Environment frame, int slot, Binding shadowed) {
+    }
+
+    /**
+     * Top of the binding stack of every identifier bound in the current environment
+     */
+    private final Map<IdentifierExpression, Binding> table;
+    /**
+     * Frames to enter while moving the table, nearest frame first
+     */
+    private final List<Environment> entering;
+    /**
+     * Environment whose bindings are in the table, null if none are
+     */
+    private Environment current;
+
+    /**
+     * Constructs new empty table
+     */
+    ShallowBindings() {
+        this.table = new HashMap<>();
+        this.entering = new ArrayList<>();
+    }
+
+    /**
+     * Looks up value of the nearest binding of an identifier in an environment
+     *
+     * @param identifier Identifier to look up
+     * @param env        Environment to look up in
+     * @return Returns bound value, null if the identifier is unbound
+     */
+    Expression lookup(IdentifierExpression identifier, Environment env) {
+        Binding binding = find(identifier, env);
+        return binding == null ? null : binding.frame().getSlot(binding.slot());
+    }
+
+    /**
+     * Changes value of the nearest binding of an identifier in an environment
+     *
+     * @param identifier Identifier to rebind
+     * @param value      Value to bind
+     * @param env        Environment to rebind in
+     * @return Returns true if the identifier was bound
+     */
+    boolean assign(IdentifierExpression identifier, Expression value, Environment env) {
+        Binding binding = find(identifier, env);
+        if (binding == null) {
+            return false;
+        }
+        binding.frame().setSlot(binding.slot(), value);
+        return true;
+    }
+
+    /**
+     * Finds nearest binding of an identifier in an environment. Bindings of lets flattened
+     * into a frame are empty until the let is evaluated, so they are passed over.
+     *
+     * @param identifier Identifier to find
+     * @param env        Environment to find it in
+     * @return Returns binding, null if the identifier is unbound
+     */
+    private Binding find(IdentifierExpression identifier, Environment env) {
+        moveTo(env);
+        Binding binding = table.get(identifier);
+        while (binding != null && binding.frame().getSlot(binding.slot()) == null) {
+            binding = binding.shadowed();
+        }
+        return binding;
+    }
+
+    /**
+     * Empties the table, used when a frame gets a new identifier after its bindings were pushed
+     */
+    void reset() {
+        table.clear();
+        current = null;
+    }
+
+    /**
+     * Moves the table to an environment, leaving frames of the current environment up to
+     * the nearest frame both share and entering the frames from there down to the new one
+     *
+     * @param env Environment to move to
+     */
+    private void moveTo(Environment env) {
+        if (env == current) {
+            return;
+        }
+        Environment from = current;
+        Environment to = env;
+        int fromDepth = from == null ? -1 : from.getDepth();
+        while (fromDepth > to.getDepth()) {
+            leave(from);
+            from = from.getParent();
+            fromDepth--;
+        }
+        while (to != null && to.getDepth() > fromDepth) {
+            entering.add(to);
+            to = to.getParent();
+        }
+        while (from != to) {
+            leave(from);
+            from = from.getParent();
+            entering.add(to);
+            to = to.getParent();
+        }
+        for (int i = entering.size() - 1; i >= 0; i--) {
+            enter(entering.get(i));
+        }
+        entering.clear();
+        current = env;
+    }
+
+    /**
+     * Pushes bindings of a frame, later slots shadowing earlier ones
+     *
+     * @param frame Frame to enter
+     */
+    private void enter(Environment frame) {
+        List<IdentifierExpression> names = frame.getNames();
+        for (int slot = 0; slot < names.size(); slot++) {
+            IdentifierExpression name = names.get(slot);
+            table.put(name, new Binding(frame, slot, table.get(name)));
+        }
+    }
+
+    /**
+     * Pops bindings of a frame, in the reverse order they were pushed
+     *
+     * @param frame Frame to leave
+     */
+    private void leave(Environment frame) {
+        List<IdentifierExpression> names = frame.getNames();
+        for (int slot = names.size() - 1; slot >= 0; slot--) {
+            IdentifierExpression name = names.get(slot);
+            Binding shadowed = table.get(name).shadowed();
+            if (shadowed == null) {
+                table.remove(name);
+            } else {
+                table.put(name, shadowed);
+            }
+        }
+    }
+}
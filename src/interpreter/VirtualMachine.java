@@ -0,0 +1,315 @@
+package interpreter;
+
+import expressions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static interpreter.Interpreter.*;
+
+/**
+ * Stack based virtual machine running bytecode chunks. Values are kept on an operand
+ * stack, environments saved by blocks, lets, and calls on an environment stack, and
+ * lambda calls push a frame instead of recursing, so the depth of a program's recursion
+ * is not limited by the Java stack. The stacks grow on the heap until they would use more
+ * than the interpreter's stack budget. Calls of memoized lambdas that miss their cache
+ * record the call in their frame, so the result is cached when the frame returns.
+ * Evaluation results match Interpreter.evaluate().
+ *
+ * @author Heath Dyer
+ */
+public class VirtualMachine {
+    /**
+     * Initial capacity of the stacks, they grow as needed
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Assumed size in bytes of a reference stored in a stack
+     */
+    private static final int REFERENCE_BYTES = 8;
+
+    /**
+     * Interpreter whose scoping rules and binding helpers are used
+     */
+    private final Interpreter interpreter;
+    /**
+     * Compiler of the running program, used to find lambda function blocks
+     */
+    private final BytecodeCompiler compiler;
+    /**
+     * Most bytes the stacks may use together
+     */
+    private final long budget;
+    /**
+     * Operand stack
+     */
+    private Expression[] stack;
+    /**
+     * Number of values on the operand stack
+     */
+    private int sp;
+    /**
+     * Environments saved by ENTER, LET, and CALL
+     */
+    private Environment[] envs;
+    /**
+     * Number of saved environments
+     */
+    private int ep;
+    /**
+     * Chunks to return to
+     */
+    private Chunk[] frameChunks;
+    /**
+     * Addresses to return to
+     */
+    private int[] framePcs;
+    /**
+     * Memoized lambdas whose result each frame caches when it returns, null for other frames
+     */
+    private MemoExpression[] frameMemos;
+    /**
+     * Operands of the memoized calls of the frames
+     */
+    private List<Expression>[] frameOperands;
+    /**
+     * Number of frames
+     */
+    private int fp;
+
+    /**
+     * Constructs new virtual machine
+     *
+     * @param interpreter Interpreter to take options from
+     * @param compiler    Compiler of the program to run
+     */
+    public VirtualMachine(Interpreter interpreter, BytecodeCompiler compiler) {
+        if (interpreter == null || compiler == null) {
+            throw new IllegalArgumentException("Virtual machine interpreter and compiler cannot be null.");
+        }
+        this.interpreter = interpreter;
+        this.compiler = compiler;
+        this.budget = interpreter.getStackBudget();
+        this.stack = new Expression[INITIAL_CAPACITY];
+        this.envs = new Environment[INITIAL_CAPACITY];
+        this.frameChunks = new Chunk[INITIAL_CAPACITY];
+        this.framePcs = new int[INITIAL_CAPACITY];
+        this.frameMemos = new MemoExpression[INITIAL_CAPACITY];
+        @SuppressWarnings("unchecked")
+        List<Expression>[] frameOperands = (List<Expression>[]) new List<?>[INITIAL_CAPACITY];
+        this.frameOperands = frameOperands;
+    }
+
+    /**
+     * Runs chunk in the given environment until it returns
+     *
+     * @param chunk Chunk to run
+     * @param env   Environment to run in
+     * @return Returns value the chunk returns
+     */
+    public Expression execute(Chunk chunk, Environment env) {
+        sp = 0;
+        ep = 0;
+        fp = 0;
+        //frames left by a run that failed must not cache into their memoized lambdas
+        Arrays.fill(frameMemos, null);
+        Arrays.fill(frameOperands, null);
+        int[] code = chunk.getCode();
+        Object[] constants = chunk.getConstants();
+        int pc = 0;
+        while (true) {
+            switch (code[pc++]) {
+                case Opcode.CONST -> push((Expression) constants[code[pc++]]);
+                case Opcode.LOOKUP -> push(lookup((IdentifierExpression) constants[code[pc++]], env));
+                case Opcode.POP -> pop();
+                case Opcode.TRACE -> {
+                    Expression exp = (Expression) constants[code[pc++]];
+                    System.out.println("Evaluating " + exp.getType().toString() + " expression: " + exp);
+                }
+                case Opcode.ENTER -> {
+                    saveEnv(env);
+                    @SuppressWarnings("unchecked")
+                    List<IdentifierExpression> defs = (List<IdentifierExpression>) constants[code[pc++]];
+                    env = extend(defs, env);
+                }
+                case Opcode.LEAVE -> env = envs[--ep];
+                case Opcode.LET -> {
+                    saveEnv(env);
+                    env = interpreter.extendLet((LetExpression) constants[code[pc++]], pop(), env);
+                }
+                case Opcode.DEFINE -> push(interpreter.define((IdentifierExpression) constants[code[pc++]], pop(), env));
+                case Opcode.ASSIGN -> push(interpreter.assign((IdentifierExpression) constants[code[pc++]], pop(), env));
+                case Opcode.JUMP -> {
+                    //jumping back is going around a while loop
+                    if (code[pc] < pc) {
+                        interpreter.countStep();
+                    }
+                    pc = code[pc];
+                }
+                case Opcode.JUMP_IF_FALSE -> pc = test(pop()) ? pc + 1 : code[pc];
+                case Opcode.CACHED -> {
+                    Expression operator = ((CallSite) constants[code[pc]]).getOperator(interpreter.getEpoch());
+                    if (operator != null) {
+                        push(operator);
+                        pc = code[pc + 1];
+                    } else {
+                        pc += 2;
+                    }
+                }
+                case Opcode.RESOLVE -> ((CallSite) constants[code[pc++]]).setOperator(stack[sp - 1], interpreter.getEpoch());
+                case Opcode.CALL -> {
+                    CallSite site = (CallSite) constants[code[pc++]];
+                    int count = code[pc++];
+                    ExpressionType kind = site.getKind(stack[sp - count - 1]);
+                    //procedures get at most two operands straight from the stack
+                    if (kind == ExpressionType.PROCEDURE && count <= 2) {
+                        Expression first = count > 0 ? stack[sp - count] : null;
+                        Expression second = count > 1 ? stack[sp - 1] : null;
+                        Arrays.fill(stack, sp - count, sp, null);
+                        sp -= count;
+                        ProcedureExpression procedure = (ProcedureExpression) pop();
+                        push(count == 2 ? site.apply(procedure, first, second) : Interpreter.applyProcedure(procedure, count, first, second));
+                        break;
+                    }
+                    List<Expression> operands = new ArrayList<>(count);
+                    for (int i = sp - count; i < sp; i++) {
+                        operands.add(stack[i]);
+                    }
+                    Arrays.fill(stack, sp - count, sp, null);
+                    sp -= count;
+                    Expression operator = pop();
+                    //is build in procedure application?
+                    if (kind == ExpressionType.PROCEDURE) {
+                        push(((ProcedureExpression) operator).apply(operands));
+                    }
+                    //is lambda function application? switch to its function block
+                    else if (kind == ExpressionType.LAMBDA) {
+                        LambdaExpression lambda = (LambdaExpression) operator;
+                        MemoExpression memo = null;
+                        //memoized lambdas are looked up in their cache first
+                        if (lambda instanceof MemoExpression memoized && MemoExpression.isCacheable(operands)) {
+                            Expression cached = interpreter.recall(memoized, operands);
+                            if (cached != null) {
+                                push(cached);
+                                break;
+                            }
+                            memo = memoized;
+                        }
+                        Environment extendedEnv = extend(lambda.getParameters().getParameters(), operands,
+                                interpreter.isLexicalScope() && lambda.getEnvironment() != null ? lambda.getEnvironment() : env);
+                        interpreter.enterCall();
+                        saveEnv(env);
+                        saveFrame(chunk, pc, memo, operands);
+                        chunk = compiler.getBody(lambda.getCode());
+                        code = chunk.getCode();
+                        constants = chunk.getConstants();
+                        pc = 0;
+                        env = extendedEnv;
+                    } else {
+                        throw new RuntimeException("Not a built in procedure " + site.getExpression());
+                    }
+                }
+                case Opcode.RETURN -> {
+                    if (fp == 0) {
+                        return pop();
+                    }
+                    fp--;
+                    interpreter.leaveCall();
+                    if (frameMemos[fp] != null) {
+                        interpreter.remember(frameMemos[fp], frameOperands[fp], stack[sp - 1]);
+                        frameMemos[fp] = null;
+                        frameOperands[fp] = null;
+                    }
+                    chunk = frameChunks[fp];
+                    code = chunk.getCode();
+                    constants = chunk.getConstants();
+                    pc = framePcs[fp];
+                    env = envs[--ep];
+                }
+                case Opcode.FAIL -> throw new RuntimeException((String) constants[code[pc]]);
+                default -> throw new IllegalStateException("Unknown opcode " + code[pc - 1] + " in " + chunk.getName() + ".");
+            }
+        }
+    }
+
+    /**
+     * Pushes value onto the operand stack
+     *
+     * @param value Value to push
+     */
+    private void push(Expression value) {
+        if (sp == stack.length) {
+            stack = Arrays.copyOf(stack, grow(sp, REFERENCE_BYTES));
+        }
+        stack[sp++] = value;
+    }
+
+    /**
+     * Pops value from the operand stack
+     *
+     * @return Returns popped value
+     */
+    private Expression pop() {
+        Expression value = stack[--sp];
+        stack[sp] = null;
+        return value;
+    }
+
+    /**
+     * Saves environment on the environment stack
+     *
+     * @param env Environment to save
+     */
+    private void saveEnv(Environment env) {
+        if (ep == envs.length) {
+            envs = Arrays.copyOf(envs, grow(ep, REFERENCE_BYTES));
+        }
+        envs[ep++] = env;
+    }
+
+    /**
+     * Saves chunk and address to return to
+     *
+     * @param chunk    Chunk to return to
+     * @param pc       Address to return to
+     * @param memo     Memoized lambda to cache the result of the frame in, null if there is none
+     * @param operands Operands of the memoized call
+     */
+    private void saveFrame(Chunk chunk, int pc, MemoExpression memo, List<Expression> operands) {
+        if (fp == frameChunks.length) {
+            int capacity = grow(fp, 3 * REFERENCE_BYTES + Integer.BYTES);
+            frameChunks = Arrays.copyOf(frameChunks, capacity);
+            framePcs = Arrays.copyOf(framePcs, capacity);
+            frameMemos = Arrays.copyOf(frameMemos, capacity);
+            frameOperands = Arrays.copyOf(frameOperands, capacity);
+        }
+        frameChunks[fp] = chunk;
+        framePcs[fp] = pc;
+        if (memo != null) {
+            frameMemos[fp] = memo;
+            frameOperands[fp] = operands;
+        }
+        fp++;
+    }
+
+    /**
+     * Gets new capacity for a full stack, doubling it unless that would go over the budget,
+     * in which case it only grows by what the budget has left.
+     *
+     * @param capacity     Current capacity of the stack
+     * @param bytesPerSlot Bytes used by each slot of the stack
+     * @return Returns new capacity
+     * @throws RuntimeException Throws if the budget has no room left for the stack to grow
+     */
+    private int grow(int capacity, int bytesPerSlot) {
+        long used = (long) (stack.length + envs.length + 3 * frameChunks.length) * REFERENCE_BYTES
+                + (long) framePcs.length * Integer.BYTES;
+        long extra = Math.min(capacity, (budget - used) / bytesPerSlot);
+        if (extra <= 0) {
+            throw new RuntimeException("Evaluation stack exceeded its budget of " + budget
+                    + " bytes. Is there infinite recursion in your program?");
+        }
+        return capacity + (int) extra;
+    }
+}
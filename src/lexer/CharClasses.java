@@ -0,0 +1,124 @@
+package lexer;
+
+/**
+ * Character classes the lexers dispatch on. Every ASCII character has its class in a table,
+ * so picking how to read a token or finding where an integer or identifier ends is one
+ * lookup instead of a test for every kind of token.
+ *
+ * @author Heath Dyer
+ */
+final class CharClasses {
+    /**
+     * Class of characters that are not part of any other class, which start identifiers
+     */
+    static final byte OTHER = 0;
+    /**
+     * Class of whitespace characters
+     */
+    static final byte WS = 1;
+    /**
+     * Class of characters that start integers: digits, plus, and minus
+     */
+    static final byte INTEGER = 2;
+    /**
+     * Class of the quote starting strings
+     */
+    static final byte QUOTE = 3;
+    /**
+     * Class of the equals character, which starts equals and arrow tokens
+     */
+    static final byte EQUALS = 4;
+    /**
+     * Class of the slash character, which starts comments when another slash follows it
+     */
+    static final byte SLASH = 5;
+    /**
+     * Class of the null character, which is lexed as EOF
+     */
+    static final byte NULL = 6;
+    /**
+     * Class of characters that are single character tokens
+     */
+    static final byte SINGLE = 7;
+    /**
+     * Class of every ASCII character. Other characters are digits if Java considers them
+     * digits, and otherwise start identifiers.
+     */
+    private static final byte[] CLASSES = new byte[128];
+    /**
+     * Token type of every single character token, indexed by character
+     */
+    private static final TokenType[] SINGLES = new TokenType[128];
+    /**
+     * Whether every ASCII character ends integers and identifiers. Slashes only end them
+     * when another slash follows, and the end of the source always ends them.
+     */
+    private static final boolean[] DELIMITERS = new boolean[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = INTEGER;
+        }
+        CLASSES['+'] = INTEGER;
+        CLASSES['-'] = INTEGER;
+        CLASSES['"'] = QUOTE;
+        CLASSES['='] = EQUALS;
+        CLASSES['/'] = SLASH;
+        CLASSES['\0'] = NULL;
+        for (char c : new char[]{' ', '\t', '\n', '\r'}) {
+            CLASSES[c] = WS;
+        }
+        SINGLES['('] = TokenType.OPENPAREN;
+        SINGLES[')'] = TokenType.CLOSEPAREN;
+        SINGLES['{'] = TokenType.OPENBRACE;
+        SINGLES['}'] = TokenType.CLOSEBRACE;
+        SINGLES[','] = TokenType.COMMA;
+        SINGLES[';'] = TokenType.SEMICOLON;
+        for (char c = 0; c < SINGLES.length; c++) {
+            if (SINGLES[c] != null) {
+                CLASSES[c] = SINGLE;
+            }
+            DELIMITERS[c] = CLASSES[c] == WS || CLASSES[c] == SINGLE || CLASSES[c] == EQUALS || CLASSES[c] == NULL;
+        }
+    }
+
+    /**
+     * Not instantiable
+     */
+    private CharClasses() {
+    }
+
+    /**
+     * Gets class of a character
+     *
+     * @param c Character to classify
+     * @return Returns class of the character
+     */
+    static byte classify(char c) {
+        if (c < CLASSES.length) {
+            return CLASSES[c];
+        }
+        return Character.isDigit(c) ? INTEGER : OTHER;
+    }
+
+    /**
+     * Gets token type of a character of the single character class
+     *
+     * @param c Single character token
+     * @return Returns its token type
+     */
+    static TokenType single(char c) {
+        return SINGLES[c];
+    }
+
+    /**
+     * Checks if a character ends integers and identifiers on its own. A slash only does
+     * when another slash follows it, which callers check.
+     *
+     * @param c Character to check
+     * @return True if the character is a delimiter, false if not.
+     */
+    static boolean isDelimiter(char c) {
+        return c < DELIMITERS.length && DELIMITERS[c];
+    }
+}
@@ -31,6 +31,14 @@ public class Lexer {
      * Lambda keyword
      */
     public static final String KEYWORD_LET = "let";
+    /**
+     * While keyword
+     */
+    public static final String KEYWORD_WHILE = "while";
+    /**
+     * For keyword
+     */
+    public static final String KEYWORD_FOR = "for";
 
     /**
      * String holding source code
@@ -48,486 +56,369 @@ public class Lexer {
      * Current line number of lexer in source string
      */
     private int line;
-
     /**
-     * Constructs a new lexer for the interpreter
+     * Whether whitespace and comments are left out of the tokens
      */
-    public Lexer() {
-    }
-
+    private boolean triviaSkipped;
     /**
-     * Initializes lexer back to default values
+     * Whether whitespace and comments left out of the tokens are recorded in a side table
      */
-    private void init(String source) {
-        this.source = source;
-        this.tokens = new ArrayList<>();
-        current = 0;
-        line = 1;
-    }
-
+    private boolean triviaRecorded;
     /**
-     * Returns the character at the given position from the source string.
-     * If the index is invalid, returns null character.
-     *
-     * @param pos Position it peek
-     * @return Character at that position
+     * Side table of the whitespace and comments left out of the tokens of the last source
+     * lexed, null if they were not recorded
      */
-    private char peekChar(int pos) {
-        if (pos < 0 || pos >= source.length()) {
-            return '\0';
-        }
-        return source.charAt(pos);
-    }
-
+    private Trivia trivia;
     /**
-     * Matches position in source string to EOF token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateEOF(int pos) {
-        return (peekChar(pos) == '\0');
-    }
-
-    /**
-     * Matches position in source string to Quote for String tokens.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateQuote(int pos) {
-        return (peekChar(pos) == '\"');
-    }
-
-    /**
-     * Matches position in source string to comma token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateComma(int pos) {
-        return (peekChar(pos) == ',');
-    }
-
-    /**
-     * Matches position in source string to Semicolon token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * Symbol table the identifier names of the source being lexed are interned in
      */
-    private boolean predicateSemicolon(int pos) {
-        return (peekChar(pos) == ';');
-    }
+    private SymbolTable symbols;
 
     /**
-     * Matches position in source string to Newline token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateNewline(int pos) {
-        return (peekChar(pos) == '\n');
-    }
-
-    /**
-     * Matches position in source string to Return character token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateReturn(int pos) {
-        return (peekChar(pos) == '\r');
-    }
-
-    /**
-     * Matches position in source string to space token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateSpace(int pos) {
-        return (peekChar(pos) == ' ');
-    }
-
-    /**
-     * Matches position in source string to Tab character token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateTab(int pos) {
-        return (peekChar(pos) == '\t');
-    }
-
-    /**
-     * Matches position in source string to Open parenthesis token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
-     */
-    private boolean predicateOpenParen(int pos) {
-        return (peekChar(pos) == '(');
-    }
-
-    /**
-     * Matches position in source string to close parenthesis token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * Constructs a new lexer for the interpreter
      */
-    private boolean predicateCloseParen(int pos) {
-        return (peekChar(pos) == ')');
+    public Lexer() {
     }
 
     /**
-     * Matches position in source string to open brace token.
-     *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * Initializes lexer back to default values
      */
-    private boolean predicateOpenBrace(int pos) {
-        return (peekChar(pos) == '{');
+    private void init(String source) {
+        this.source = source;
+        this.tokens = new ArrayList<>();
+        this.trivia = triviaSkipped && triviaRecorded ? new Trivia() : null;
+        this.symbols = new SymbolTable();
+        current = 0;
+        line = 1;
     }
 
     /**
-     * Matches position in source string to close brace token.
+     * Sets whether whitespace and comments are left out of the tokens, so the parser only
+     * gets the tokens it parses. Off by default.
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @param triviaSkipped True to leave whitespace and comments out of the tokens
      */
-    private boolean predicateCloseBrace(int pos) {
-        return (peekChar(pos) == '}');
+    public void setTriviaSkipped(boolean triviaSkipped) {
+        this.triviaSkipped = triviaSkipped;
     }
 
     /**
-     * Matches position in source string to Minus character.
+     * Checks whether whitespace and comments are left out of the tokens
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @return True if whitespace and comments are left out of the tokens
      */
-    private boolean predicateMinus(int pos) {
-        return (peekChar(pos) == '-');
+    public boolean isTriviaSkipped() {
+        return triviaSkipped;
     }
 
     /**
-     * Matches position in source string to Plus character.
+     * Sets whether whitespace and comments left out of the tokens are recorded in a side
+     * table, for tools that need to know where they were. Off by default.
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @param triviaRecorded True to record whitespace and comments left out of the tokens
      */
-    private boolean predicatePlus(int pos) {
-        return (peekChar(pos) == '+');
+    public void setTriviaRecorded(boolean triviaRecorded) {
+        this.triviaRecorded = triviaRecorded;
     }
 
     /**
-     * Matches position in source string to equals character.
+     * Checks whether whitespace and comments left out of the tokens are recorded
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @return True if whitespace and comments left out of the tokens are recorded
      */
-    private boolean predicateEquals(int pos) {
-        return (peekChar(pos) == '=');
+    public boolean isTriviaRecorded() {
+        return triviaRecorded;
     }
 
     /**
-     * Matches position in source string to Arrow token.
+     * Gets side table of the whitespace and comments left out of the tokens of the last
+     * source lexed
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @return Returns side table, null if whitespace and comments were not left out and recorded
      */
-    private boolean predicateArrow(int pos) {
-        return (peekChar(pos) == '=' && peekChar(pos + 1) == '>');
+    public Trivia getTrivia() {
+        return trivia;
     }
 
     /**
-     * Matches position in source string to Digit.
+     * Gives the type of a whitespace or comment token, or records it and leaves it out of
+     * the tokens if trivia is skipped
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @param type  Type of the token, WS or COMMENT
+     * @param start Position of the token in source string
+     * @return Returns the type, null if it is left out
      */
-    private boolean predicateDigit(int pos) {
-        return Character.isDigit(peekChar(pos));
+    private TokenType trivia(TokenType type, int start) {
+        if (!triviaSkipped) {
+            return type;
+        }
+        if (trivia != null) {
+            trivia.add(type, start, current - start, line);
+        }
+        return null;
     }
 
     /**
-     * Matches position in source string to EOF token.
+     * Checks if an integer or identifier ends at a position in the source string, because
+     * the source ends, a delimiter character is there, or a comment starts there
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @param pos Position in source string
+     * @return True if a delimiter is at the position, false if not.
      */
-    private boolean predicateWhitespace(int pos) {
-        return (predicateNewline(pos) || predicateSpace(pos) || predicateTab(pos) || predicateReturn(pos));
+    private boolean isDelimiter(int pos) {
+        if (pos >= source.length()) {
+            return true;
+        }
+        char c = source.charAt(pos);
+        return CharClasses.isDelimiter(c) || (c == '/' && pos + 1 < source.length() && source.charAt(pos + 1) == '/');
     }
 
     /**
-     * Matches position in source string to start of Comment.
+     * Lexers the source string into a list of tokens. List of tokens is
+     * to be used by the parser to create an AST. Tokens only hold their
+     * position in the source, and their value is made when it is first asked for, except
+     * identifiers, whose names are interned as they are lexed so every occurrence of a name
+     * shares one string.
      *
-     * @param pos Position of source string to match
-     * @return True if matched, false if not.
+     * @return Returns list of tokens for parser
      */
-    private boolean predicateComment(int pos) {
-        return (peekChar(pos) == '/' && peekChar(pos + 1) == '/');
-    }
-
-    /**
-     * Checks for delimiter predicates at pos in the source string and
-     * returns boolean result.
-     *
-     * @param pos Position in source string
-     * @return True if valid match, false not.
-     */
-    private boolean predicateDelimiter(int pos) {
-        return (predicateWhitespace(pos)
-                || predicateOpenParen(pos) || predicateCloseParen(pos)
-                || predicateOpenBrace(pos) || predicateCloseBrace(pos)
-                || predicateComma(pos) || predicateSemicolon(pos)
-                || predicateArrow(pos) || predicateEquals(pos)
-                || predicateComment(pos) || predicateEOF(pos));
+    public List<Token> lex(String source) {
+        init(source);
+        while (current < source.length()) {
+            int start = current;
+            TokenType type = lexToken();
+            if (type == TokenType.IDENTIFIER) {
+                String name = symbols.name(symbols.intern(source, start, current - start));
+                tokens.add(new Token(type, start, current - start, line, name));
+            } else if (type != null) {
+                tokens.add(new Token(type, source, start, current - start, line));
+            }
+        }
+        return tokens;
     }
 
-
     /**
-     * Lexers the source string into a list of tokens. List of tokens is
-     * to be used by the parser to create an AST.
+     * Lexers the source string into a buffer of tokens, which keeps the type, position,
+     * length, and line of every token in arrays instead of making a token object for each.
+     * The parser can read the buffer directly with its cursor.
      *
-     * @return Returns list of tokens for parser
+     * @param source Source string to lex
+     * @return Returns buffer of tokens for parser
      */
-    public List<Token> lex(String source) {
+    public TokenBuffer lexBuffer(String source) {
         init(source);
+        TokenBuffer buffer = new TokenBuffer(source, symbols);
         while (current < source.length()) {
-            tokens.add(lexToken());
+            int start = current;
+            TokenType type = lexToken();
+            if (type == TokenType.IDENTIFIER) {
+                buffer.addIdentifier(symbols.intern(source, start, current - start), start, line);
+            } else if (type != null) {
+                buffer.add(type, start, current - start, line);
+            }
         }
-        return tokens;
+        return buffer;
     }
 
     /**
-     * Reads the next token from the current position in the source string. Returns
-     * as a token object. Returns an error token if an issue has occurred.
+     * Reads the next token from the current position in the source string, which ends
+     * where the lexer is left. Returns its type, an error type if an issue has occurred.
+     * The class of the current character picks how the token is read.
      *
-     * @return Next Token in source
+     * @return Type of next Token in source, null if it is whitespace or a comment left out
      */
-    private Token lexToken() {
+    private TokenType lexToken() {
         int start = current;
-        if (predicateOpenParen(current)) {
-            current++;
-            return new Token(TokenType.OPENPAREN, start, 1, line, source.substring(start, current));
-        }
-        if (predicateCloseParen(current)) {
-            current++;
-            return new Token(TokenType.CLOSEPAREN, start, 1, line, source.substring(start, current));
-        }
-        if (predicateOpenBrace(current)) {
-            current++;
-            return new Token(TokenType.OPENBRACE, start, 1, line, source.substring(start, current));
-        }
-        if (predicateCloseBrace(current)) {
-            current++;
-            return new Token(TokenType.CLOSEBRACE, start, 1, line, source.substring(start, current));
-        }
-        if (predicateWhitespace(current)) {
-            return lexWhitespace();
-        }
-        if (predicateDigit(current) || predicateMinus(current) || predicatePlus(current)) {
-            return lexInteger();
-        }
-        if (predicateQuote(current)) {
-            return lexString();
-        }
-        if (predicateComma(current)) {
-            current++;
-            return new Token(TokenType.COMMA, start, 1, line, source.substring(start, current));
-        }
-        if (predicateSemicolon(current)) {
-            current++;
-            return new Token(TokenType.SEMICOLON, start, 1, line, source.substring(start, current));
-        }
-        if (predicateArrow(current)) {
-            current += 2;
-            return new Token(TokenType.ARROW, start, 2, line, source.substring(start, current));
-        }
-        if (predicateEquals(current)) {
-            current++;
-            return new Token(TokenType.EQUALS, start, 1, line, source.substring(start, current));
-        }
-        if (predicateComment(current)) {
-            return lexComment();
-        }
-        if (predicateEOF(current)) {
-            current++;
-            return new Token(TokenType.EOF, start, 1, line, source.substring(start, current));
+        char c = source.charAt(current);
+        switch (CharClasses.classify(c)) {
+            case CharClasses.SINGLE -> {
+                current++;
+                return CharClasses.single(c);
+            }
+            case CharClasses.WS -> {
+                return lexWhitespace();
+            }
+            case CharClasses.INTEGER -> {
+                return lexInteger();
+            }
+            case CharClasses.QUOTE -> {
+                return lexString();
+            }
+            case CharClasses.EQUALS -> {
+                if (current + 1 < source.length() && source.charAt(current + 1) == '>') {
+                    current += 2;
+                    return TokenType.ARROW;
+                }
+                current++;
+                return TokenType.EQUALS;
+            }
+            case CharClasses.SLASH -> {
+                if (current + 1 < source.length() && source.charAt(current + 1) == '/') {
+                    return lexComment();
+                }
+                return lexIdentifier();
+            }
+            case CharClasses.NULL -> {
+                current++;
+                return TokenType.EOF;
+            }
+            default -> {
+                return lexIdentifier();
+            }
         }
-        return lexIdentifier();
     }
 
     /**
      * Reads the next token when it is an integer. Returns
-     * as a token object.
+     * its type.
      *
-     * @return Token with type Integer or Error type
+     * @return Integer or Error type
      */
-    private Token lexInteger() {
-        // Called lexInteger when we weren't  supposed to
-        if (!predicateDigit(current) && !predicateMinus(current) && !predicatePlus(current)) {
-            throw new RuntimeException("Tried to lex Integer that did not start with digit, plus, or minus.");
-        }
+    private TokenType lexInteger() {
         int start = current;
-        while (!predicateDelimiter(current)) {
+        do {
             current++;
-        }
+        } while (!isDelimiter(current));
         // Integer is only plus or minus?
-        if ((predicateMinus(start) || predicatePlus(start)) && current - start == 1) {
-            return new Token(TokenType.BAD_INTCHAR, start, current - start, line, source.substring(start, current));
-        }
-        // Something went wrong...
-        if (current == start) {
-            throw new RuntimeException("Tried to lex integer when we shouldn't have...");
+        char first = source.charAt(start);
+        if ((first == '-' || first == '+') && current - start == 1) {
+            return TokenType.BAD_INTCHAR;
         }
         // Identifier exceeds max set length
         if (current - start > MAX_INTLEN) {
-            return new Token(TokenType.BAD_INTLEN, start, current - start, line, source.substring(start, current));
+            return TokenType.BAD_INTLEN;
         }
-        return new Token(TokenType.INTEGER, start, current - start, line, source.substring(start, current));
-    }
-
-    /**
-     * Compares string against possible keywords. If not a match, it's an identifier.
-     * Returns corresponding token type.
-     *
-     * @param str String to compare
-     * @return Token type of identifier
-     */
-    private TokenType isKeyword(String str) {
-        return switch (str) {
-            case KEYWORD_LAMBDA -> TokenType.LAMBDA;
-            case KEYWORD_LAMBDA_ALT -> TokenType.LAMBDA_ALT;
-            case KEYWORD_DEFINITION -> TokenType.DEFINITION;
-            case KEYWORD_COND -> TokenType.COND;
-            case KEYWORD_LET -> TokenType.LET;
-            default -> TokenType.IDENTIFIER;
-        };
+        return TokenType.INTEGER;
     }
 
     /**
-     * Reads an identifier and returns as token. Will also return
-     * keywords as their respective type of token.
+     * Reads an identifier and returns its type. Will also return
+     * keywords as their respective type of token, found by their perfect hash.
      *
-     * @return Token with type Identifier or some keyword
+     * @return Identifier or some keyword type
      */
-    private Token lexIdentifier() {
-        StringBuilder string = new StringBuilder();
+    private TokenType lexIdentifier() {
         int start = current;
-        while (!predicateDelimiter(current)) {
-            string.append(peekChar(current));
+        do {
             current++;
-        }
-        // Called when supposed to be delimiter?
-        if (current == start) {
-            throw new RuntimeException("Tried to lex identifier when we shouldn't have");
-        }
+        } while (!isDelimiter(current));
         // Identifier exceeds max set length
         if (current - start > MAX_IDLEN) {
-            return new Token(TokenType.BAD_IDLEN, start, current - start, line, source.substring(start, current));
+            return TokenType.BAD_IDLEN;
         }
-        return new Token(isKeyword(string.toString()), start, current - start, line, source.substring(start, current));
+        return SymbolTable.keyword(source, start, current - start);
     }
 
     /**
      * Starts lexing a string from the source content at the current position.
-     * Returns string as Token including quotations.
+     * The token includes quotations. Escapes are only read when
+     * the value of the token is asked for.
      *
-     * @return String as token
+     * @return String or Error type
      */
-    private Token lexString() {
-        // String doesn't start with quote?
-        if (!predicateQuote(current)) {
-            throw new RuntimeException("Tried to lex string that did not start with quote");
-        }
-        //start building string
-        StringBuilder str = new StringBuilder();
-        str.append(peekChar(current));
+    private TokenType lexString() {
         int start = current++;
-        // loop to read characters, account for escapes
-        while (peekChar(current) != '\0') {
-            if (predicateQuote(current)) {
-                str.append(peekChar(current));
+        // loop to find the end of the string, skipping escaped characters
+        while (current < source.length() && source.charAt(current) != '\0') {
+            char c = source.charAt(current);
+            if (c == '"') {
                 break; // We found end of string
             }
-            if ((peekChar(current) == '\\' && (peekChar(current + 1) != '\0'))) {
-                switch (peekChar(++current)) {
-                    case 'n':
-                        str.append('\n');
-                        break;
-                    case 't':
-                        str.append('\t');
-                        break;
-                    case '"':
-                        str.append('\"');
-                        break;
-                    case '\\':
-                        str.append('\\');
-                        break;
-                    default:
-                        str.append(peekChar(current));
-                        break; // Unhandled escape, treat literally
-                }
-            } else {
-                str.append(peekChar(current));
+            if (c == '\\' && current + 1 < source.length() && source.charAt(current + 1) != '\0') {
+                current++;
             }
             current++;
         }
         //String too long?
         if (current - start > MAX_STRLEN) {
-            return new Token(TokenType.BAD_STRLEN, start, current - start, line, str.toString());
+            return TokenType.BAD_STRLEN;
         }
         // String ends with EOF
-        if (predicateEOF(current)) {
-            return new Token(TokenType.BAD_STREOF, start, ++current - start, line, str.toString());
+        if (current >= source.length() || source.charAt(current) == '\0') {
+            current++;
+            return TokenType.BAD_STREOF;
         }
-        // String ends with quote?
-        if (predicateQuote(current)) {
-            return new Token(TokenType.STRING, start, ++current - start, line, str.toString());
+        // String ends with quote
+        current++;
+        return TokenType.STRING;
+    }
+
+    /**
+     * Reads a token's value from the source it was lexed from
+     *
+     * @param type   Type of the token
+     * @param source Source string the token is in
+     * @param pos    Position of the token in the source
+     * @param len    Length of the token
+     * @return Value of the token
+     */
+    static String readValue(TokenType type, String source, int pos, int len) {
+        return switch (type) {
+            case STRING, BAD_STRLEN, BAD_STREOF -> readString(source, pos);
+            default -> source.substring(pos, pos + len);
+        };
+    }
+
+    /**
+     * Reads a string token's contents from the source, with its escapes replaced by the
+     * characters they stand for and the quotations it has.
+     *
+     * @param source Source string the token is in
+     * @param start  Position of the opening quote of the string
+     * @return Contents of the string token
+     */
+    static String readString(String source, int start) {
+        StringBuilder str = new StringBuilder();
+        str.append('"');
+        int current = start + 1;
+        while (current < source.length() && source.charAt(current) != '\0') {
+            char c = source.charAt(current);
+            if (c == '"') {
+                str.append(c);
+                break; // We found end of string
+            }
+            if (c == '\\' && current + 1 < source.length() && source.charAt(current + 1) != '\0') {
+                switch (source.charAt(++current)) {
+                    case 'n' -> str.append('\n');
+                    case 't' -> str.append('\t');
+                    case '"' -> str.append('\"');
+                    case '\\' -> str.append('\\');
+                    default -> str.append(source.charAt(current)); // Unhandled escape, treat literally
+                }
+            } else {
+                str.append(c);
+            }
+            current++;
         }
-        // Some unhandled string condition
-        return new Token(TokenType.PANIC, start, current - start, line, str.toString());
+        return str.toString();
     }
 
     /**
      * Reads whitespace from the current position from the source string
-     * and returns a token.
+     * and returns its type.
      *
-     * @return Token white type TOKEN_WS
+     * @return WS type, null if it is left out
      */
-    private Token lexWhitespace() {
+    private TokenType lexWhitespace() {
         int start = current;
-        while (predicateWhitespace(current)) {
-            if (predicateNewline(current)) line++;
+        while (current < source.length() && CharClasses.classify(source.charAt(current)) == CharClasses.WS) {
+            if (source.charAt(current) == '\n') line++;
             current++;
         }
-        // Called when no whitespace?
-        if (current == start) {
-            return new Token(TokenType.PANIC, start, 0, line, source.substring(start, 0));
-        }
-        return new Token(TokenType.WS, start, current - start, line, source.substring(start, current));
+        return trivia(TokenType.WS, start);
     }
 
     /**
      * Reads comment from the current position from until a new line is encountered or EOF
      *
-     * @return Token white type TOKEN_COMMENT
+     * @return COMMENT type, null if it is left out
      */
-    private Token lexComment() {
-        if (!predicateComment(current)) {
-            throw new RuntimeException("lexComment() called went it shouldn't have been");
-        }
+    private TokenType lexComment() {
         int start = current;
         current += 2;
-        while (!predicateNewline(current) && !predicateEOF(current)) {
+        while (current < source.length() && source.charAt(current) != '\n' && source.charAt(current) != '\0') {
             current++;
         }
-        //Something went wrong
-        if (current == start) {
-            throw new RuntimeException("lexComment() called went it shouldn't have been");
-        }
-        return new Token(TokenType.COMMENT, start, current - start, line, source.substring(start, current));
+        return trivia(TokenType.COMMENT, start);
     }
 }
@@ -0,0 +1,463 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static main.Util.*;
+
+/**
+ * Lexer reading source code from a stream. Characters are read into a fixed size buffer
+ * as they are needed, and tokens are made one at a time as they are asked for, so a parser
+ * can start on a program while it is still being read and the source never has to be held
+ * in memory at once. The buffer only grows for a token longer than it, so memory is
+ * bounded by the buffer and the longest token. Tokens are the same as the ones
+ * {@link Lexer} makes from the whole source, except that their values are read as they
+ * are lexed, since the buffer they come from is reused. Identifier names are interned in a
+ * symbol table kept for the life of the lexer, so a name is only made into a string the
+ * first time it is read.
+ *
+ * @author Heath Dyer
+ */
+public class StreamingLexer implements Iterator<Token> {
+    /**
+     * Characters read from the stream at a time
+     */
+    public static final int BUFFER_SIZE = 8192;
+    /**
+     * Values of single character tokens, so they are not made for every token
+     */
+    private static final String[] SINGLE_VALUES = new String[128];
+
+    static {
+        for (char c = 0; c < SINGLE_VALUES.length; c++) {
+            SINGLE_VALUES[c] = String.valueOf(c).intern();
+        }
+    }
+
+    /**
+     * Stream source code is read from
+     */
+    private final Reader reader;
+    /**
+     * Characters read from the stream and not lexed yet, starting at the current token
+     */
+    private char[] buffer;
+    /**
+     * Position in the source of the first character of the buffer
+     */
+    private int offset;
+    /**
+     * Index in the buffer of the start of the current token
+     */
+    private int start;
+    /**
+     * Index in the buffer of the current character
+     */
+    private int pos;
+    /**
+     * Index in the buffer after the last character read
+     */
+    private int limit;
+    /**
+     * Whether the stream has ended
+     */
+    private boolean ended;
+    /**
+     * Current line number of lexer in source
+     */
+    private int line;
+    /**
+     * Next token, lexed by hasNext() before it is taken, null if it is not lexed yet
+     */
+    private Token pending;
+    /**
+     * Whether whitespace and comments are left out of the tokens
+     */
+    private boolean triviaSkipped;
+    /**
+     * Side table of the whitespace and comments left out of the tokens so far, null if
+     * they are not recorded
+     */
+    private Trivia trivia;
+    /**
+     * Symbol table identifier names are interned in, which grows with the distinct names
+     */
+    private final SymbolTable symbols;
+
+    /**
+     * Constructs new lexer reading source code from a reader
+     *
+     * @param reader Reader to read source code from
+     */
+    public StreamingLexer(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader cannot be null.");
+        }
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.symbols = new SymbolTable();
+        this.line = 1;
+    }
+
+    /**
+     * Constructs new lexer reading UTF-8 source code from a channel
+     *
+     * @param channel Channel to read source code from
+     */
+    public StreamingLexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sets whether whitespace and comments are left out of the tokens, so the parser only
+     * gets the tokens it parses. Off by default.
+     *
+     * @param triviaSkipped True to leave whitespace and comments out of the tokens
+     */
+    public void setTriviaSkipped(boolean triviaSkipped) {
+        this.triviaSkipped = triviaSkipped;
+    }
+
+    /**
+     * Checks whether whitespace and comments are left out of the tokens
+     *
+     * @return True if whitespace and comments are left out of the tokens
+     */
+    public boolean isTriviaSkipped() {
+        return triviaSkipped;
+    }
+
+    /**
+     * Sets whether whitespace and comments left out of the tokens are recorded in a side
+     * table, for tools that need to know where they were. The table grows with the source,
+     * so it is off by default.
+     *
+     * @param triviaRecorded True to record whitespace and comments left out of the tokens
+     */
+    public void setTriviaRecorded(boolean triviaRecorded) {
+        if (!triviaRecorded) {
+            trivia = null;
+        } else if (trivia == null) {
+            trivia = new Trivia();
+        }
+    }
+
+    /**
+     * Checks whether whitespace and comments left out of the tokens are recorded
+     *
+     * @return True if whitespace and comments left out of the tokens are recorded
+     */
+    public boolean isTriviaRecorded() {
+        return trivia != null;
+    }
+
+    /**
+     * Gets side table of the whitespace and comments left out of the tokens so far
+     *
+     * @return Returns side table, null if they are not recorded
+     */
+    public Trivia getTrivia() {
+        return trivia;
+    }
+
+    /**
+     * Checks if there is another token, lexing it from the stream if it is not lexed yet
+     *
+     * @return True if there is another token, false if the source has ended
+     * @throws UncheckedIOException Throws if reading the stream fails
+     */
+    @Override
+    public boolean hasNext() {
+        while (pending == null && peek(0) >= 0) {
+            pending = lexToken();
+        }
+        return pending != null;
+    }
+
+    /**
+     * Checks if the rest of the source is only whitespace, reading from the stream until a
+     * character that is not whitespace. No tokens are taken.
+     *
+     * @return True if there is nothing but whitespace left, false if not
+     * @throws UncheckedIOException Throws if reading the stream fails
+     */
+    public boolean isBlank() {
+        if (pending != null) {
+            return false;
+        }
+        int ahead = 0;
+        int c;
+        while ((c = peek(ahead)) >= 0 && CharClasses.classify((char) c) == CharClasses.WS) {
+            ahead++;
+        }
+        return c < 0;
+    }
+
+    /**
+     * Lexes the next token of the source
+     *
+     * @return Next token in source
+     * @throws NoSuchElementException Throws if the source has ended
+     * @throws UncheckedIOException   Throws if reading the stream fails
+     */
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more tokens in source.");
+        }
+        Token token = pending;
+        pending = null;
+        return token;
+    }
+
+    /**
+     * Gets a character ahead of the current one, reading from the stream until it is in
+     * the buffer. Reading may move the buffer, so indexes into it are only good until the
+     * next peek.
+     *
+     * @param ahead Characters ahead of the current one
+     * @return Returns the character, -1 if the source ends before it
+     */
+    private int peek(int ahead) {
+        while (pos + ahead >= limit) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return buffer[pos + ahead];
+    }
+
+    /**
+     * Reads more of the stream into the buffer. Characters before the current token are
+     * dropped to make room, and the buffer only grows if the current token fills it.
+     *
+     * @return True if characters were read, false if the stream has ended
+     */
+    private boolean fill() {
+        if (ended) {
+            return false;
+        }
+        if (limit == buffer.length) {
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                offset += start;
+                pos -= start;
+                limit -= start;
+                start = 0;
+            } else {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        int read;
+        try {
+            read = reader.read(buffer, limit, buffer.length - limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (read < 0) {
+            ended = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Checks if an integer or identifier ends at the current character, because the source
+     * ends, a delimiter character is there, or a comment starts there
+     *
+     * @return True if a delimiter is at the current character, false if not.
+     */
+    private boolean isDelimiter() {
+        int c = peek(0);
+        return c < 0 || CharClasses.isDelimiter((char) c) || (c == '/' && peek(1) == '/');
+    }
+
+    /**
+     * Makes a token of the characters from the start of the current token to the current one
+     *
+     * @param type Type of the token
+     * @return Returns the token
+     */
+    private Token token(TokenType type) {
+        return new Token(type, offset + start, pos - start, line, new String(buffer, start, pos - start));
+    }
+
+    /**
+     * Leaves whitespace or a comment out of the tokens, recording it if trivia is recorded
+     *
+     * @param type Type of the trivia, WS or COMMENT
+     * @return Returns null, for no token
+     */
+    private Token skip(TokenType type) {
+        if (trivia != null) {
+            trivia.add(type, offset + start, pos - start, line);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next token from the current position in the source. Returns an error token
+     * if an issue has occurred. The class of the current character picks how the token is read.
+     *
+     * @return Next Token in source, null if it is whitespace or a comment left out
+     */
+    private Token lexToken() {
+        start = pos;
+        char c = (char) peek(0);
+        switch (CharClasses.classify(c)) {
+            case CharClasses.SINGLE -> {
+                pos++;
+                return new Token(CharClasses.single(c), offset + start, 1, line, SINGLE_VALUES[c]);
+            }
+            case CharClasses.WS -> {
+                return lexWhitespace();
+            }
+            case CharClasses.INTEGER -> {
+                return lexInteger();
+            }
+            case CharClasses.QUOTE -> {
+                return lexString();
+            }
+            case CharClasses.EQUALS -> {
+                if (peek(1) == '>') {
+                    pos += 2;
+                    return token(TokenType.ARROW);
+                }
+                pos++;
+                return new Token(TokenType.EQUALS, offset + start, 1, line, SINGLE_VALUES[c]);
+            }
+            case CharClasses.SLASH -> {
+                if (peek(1) == '/') {
+                    return lexComment();
+                }
+                return lexIdentifier();
+            }
+            case CharClasses.NULL -> {
+                pos++;
+                return new Token(TokenType.EOF, offset + start, 1, line, SINGLE_VALUES[c]);
+            }
+            default -> {
+                return lexIdentifier();
+            }
+        }
+    }
+
+    /**
+     * Reads the next token when it is an integer
+     *
+     * @return Token with type Integer or Error type
+     */
+    private Token lexInteger() {
+        do {
+            pos++;
+        } while (!isDelimiter());
+        // Integer is only plus or minus?
+        char first = buffer[start];
+        if ((first == '-' || first == '+') && pos - start == 1) {
+            return token(TokenType.BAD_INTCHAR);
+        }
+        // Integer exceeds max set length
+        if (pos - start > MAX_INTLEN) {
+            return token(TokenType.BAD_INTLEN);
+        }
+        return token(TokenType.INTEGER);
+    }
+
+    /**
+     * Reads an identifier and returns as token. Will also return
+     * keywords as their respective type of token.
+     *
+     * @return Token with type Identifier or some keyword
+     */
+    private Token lexIdentifier() {
+        do {
+            pos++;
+        } while (!isDelimiter());
+        int len = pos - start;
+        // Identifier exceeds max set length
+        if (len > MAX_IDLEN) {
+            return token(TokenType.BAD_IDLEN);
+        }
+        TokenType type = SymbolTable.keyword(buffer, start, len);
+        return new Token(type, offset + start, len, line, symbols.name(symbols.intern(buffer, start, len)));
+    }
+
+    /**
+     * Reads a string and returns it as a token including quotations, with its escapes
+     * replaced by the characters they stand for
+     *
+     * @return String as token
+     */
+    private Token lexString() {
+        pos++;
+        // loop to find the end of the string, skipping escaped characters
+        int c;
+        while ((c = peek(0)) > 0) {
+            if (c == '"') {
+                break; // We found end of string
+            }
+            if (c == '\\' && peek(1) > 0) {
+                pos++;
+            }
+            pos++;
+        }
+        String value = Lexer.readString(new String(buffer, start, pos - start + (c == '"' ? 1 : 0)), 0);
+        //String too long?
+        if (pos - start > MAX_STRLEN) {
+            return new Token(TokenType.BAD_STRLEN, offset + start, pos - start, line, value);
+        }
+        // String ends with quote
+        if (c == '"') {
+            pos++;
+            return new Token(TokenType.STRING, offset + start, pos - start, line, value);
+        }
+        // String ends with EOF, its length counts the end, and a null character ending it is read
+        int len = pos - start + 1;
+        if (c == '\0') {
+            pos++;
+        }
+        return new Token(TokenType.BAD_STREOF, offset + start, len, line, value);
+    }
+
+    /**
+     * Reads whitespace from the current position and returns a token
+     *
+     * @return Token with type WS, null if it is left out
+     */
+    private Token lexWhitespace() {
+        int c;
+        while ((c = peek(0)) >= 0 && CharClasses.classify((char) c) == CharClasses.WS) {
+            if (c == '\n') line++;
+            pos++;
+        }
+        if (triviaSkipped) {
+            return skip(TokenType.WS);
+        }
+        if (pos - start == 1) {
+            return new Token(TokenType.WS, offset + start, 1, line, SINGLE_VALUES[buffer[start]]);
+        }
+        return token(TokenType.WS);
+    }
+
+    /**
+     * Reads comment from the current position until a new line is encountered or EOF
+     *
+     * @return Token with type COMMENT, null if it is left out
+     */
+    private Token lexComment() {
+        pos += 2;
+        int c;
+        while ((c = peek(0)) >= 0 && c != '\n' && c != '\0') {
+            pos++;
+        }
+        return triviaSkipped ? skip(TokenType.COMMENT) : token(TokenType.COMMENT);
+    }
+}
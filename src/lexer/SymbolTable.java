@@ -0,0 +1,293 @@
+package lexer;
+
+import java.util.Arrays;
+
+import static lexer.Lexer.*;
+
+/**
+ * Symbol table of a lexer. Keywords are recognized with a perfect hash of their first
+ * character, last character, and length, which gives every keyword its own slot of a small
+ * table, so an identifier is compared against one keyword at most. Identifier names are
+ * interned as they are lexed: every distinct name is made into a string once and given an
+ * id, and later occurrences are found by hashing the characters in place, so they share the
+ * same string without copying it.
+ *
+ * @author Heath Dyer
+ */
+final class SymbolTable {
+    /**
+     * Slots of the keyword table, a power of two
+     */
+    private static final int KEYWORD_SLOTS = 16;
+    /**
+     * Keyword in every slot of the keyword table, null if the slot is empty
+     */
+    private static final String[] KEYWORDS = new String[KEYWORD_SLOTS];
+    /**
+     * Token type of the keyword in every slot of the keyword table
+     */
+    private static final TokenType[] KEYWORD_TYPES = new TokenType[KEYWORD_SLOTS];
+    /**
+     * Names the table has room for before it grows
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    static {
+        addKeyword(KEYWORD_LAMBDA, TokenType.LAMBDA);
+        addKeyword(KEYWORD_LAMBDA_ALT, TokenType.LAMBDA_ALT);
+        addKeyword(KEYWORD_DEFINITION, TokenType.DEFINITION);
+        addKeyword(KEYWORD_COND, TokenType.COND);
+        addKeyword(KEYWORD_LET, TokenType.LET);
+        addKeyword(KEYWORD_WHILE, TokenType.WHILE);
+        addKeyword(KEYWORD_FOR, TokenType.FOR);
+    }
+
+    /**
+     * Interned name of every id
+     */
+    private String[] names;
+    /**
+     * Hash of every id's name
+     */
+    private int[] hashes;
+    /**
+     * Open addressed table of ids plus one by hash, 0 for empty slots
+     */
+    private int[] slots;
+    /**
+     * Number of names interned
+     */
+    private int size;
+
+    /**
+     * Constructs new empty symbol table
+     */
+    SymbolTable() {
+        names = new String[INITIAL_CAPACITY];
+        hashes = new int[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * Adds a keyword to its slot of the keyword table
+     *
+     * @param keyword Keyword to add
+     * @param type    Token type of the keyword
+     * @throws IllegalStateException Throws if another keyword has the slot, so the hash is no longer perfect
+     */
+    private static void addKeyword(String keyword, TokenType type) {
+        int slot = keywordSlot(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length());
+        if (KEYWORDS[slot] != null) {
+            throw new IllegalStateException("Keywords \"" + KEYWORDS[slot] + "\" and \"" + keyword + "\" hash to the same slot.");
+        }
+        KEYWORDS[slot] = keyword;
+        KEYWORD_TYPES[slot] = type;
+    }
+
+    /**
+     * Perfect hash of the keywords
+     *
+     * @param first First character of the identifier
+     * @param last  Last character of the identifier
+     * @param len   Length of the identifier
+     * @return Slot of the keyword table the identifier would be in
+     */
+    private static int keywordSlot(char first, char last, int len) {
+        return (first + 2 * last + len) & (KEYWORD_SLOTS - 1);
+    }
+
+    /**
+     * Compares part of a string against the keyword with its hash
+     *
+     * @param text  String the identifier is in
+     * @param start Position of the identifier in the string
+     * @param len   Length of the identifier, at least one
+     * @return Token type of the keyword if it matches, identifier if not
+     */
+    static TokenType keyword(String text, int start, int len) {
+        int slot = keywordSlot(text.charAt(start), text.charAt(start + len - 1), len);
+        String keyword = KEYWORDS[slot];
+        if (keyword != null && keyword.length() == len && text.regionMatches(start, keyword, 0, len)) {
+            return KEYWORD_TYPES[slot];
+        }
+        return TokenType.IDENTIFIER;
+    }
+
+    /**
+     * Compares part of a character array against the keyword with its hash
+     *
+     * @param text  Characters the identifier is in
+     * @param start Position of the identifier in the array
+     * @param len   Length of the identifier, at least one
+     * @return Token type of the keyword if it matches, identifier if not
+     */
+    static TokenType keyword(char[] text, int start, int len) {
+        int slot = keywordSlot(text[start], text[start + len - 1], len);
+        String keyword = KEYWORDS[slot];
+        if (keyword == null || keyword.length() != len) {
+            return TokenType.IDENTIFIER;
+        }
+        for (int i = 0; i < len; i++) {
+            if (text[start + i] != keyword.charAt(i)) {
+                return TokenType.IDENTIFIER;
+            }
+        }
+        return KEYWORD_TYPES[slot];
+    }
+
+    /**
+     * Interns the name in part of a string
+     *
+     * @param text  String the name is in
+     * @param start Position of the name in the string
+     * @param len   Length of the name
+     * @return Id of the name
+     */
+    int intern(String text, int start, int len) {
+        int hash = 0;
+        for (int i = start; i < start + len; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(names[id], text, start, len)) {
+                return id;
+            }
+        }
+        return add(text.substring(start, start + len), hash);
+    }
+
+    /**
+     * Interns the name in part of a character array
+     *
+     * @param text  Characters the name is in
+     * @param start Position of the name in the array
+     * @param len   Length of the name
+     * @return Id of the name
+     */
+    int intern(char[] text, int start, int len) {
+        int hash = 0;
+        for (int i = start; i < start + len; i++) {
+            hash = 31 * hash + text[i];
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(names[id], text, start, len)) {
+                return id;
+            }
+        }
+        return add(new String(text, start, len), hash);
+    }
+
+    /**
+     * Compares a name against part of a string. Sources with characters outside Latin-1 are
+     * stored in another encoding than most names, which regionMatches compares slowly.
+     *
+     * @param name  Interned name
+     * @param text  String the other name is in
+     * @param start Position of the other name in the string
+     * @param len   Length of the other name
+     * @return True if the names are the same
+     */
+    private static boolean matches(String name, String text, int start, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a name against part of a character array
+     *
+     * @param name  Interned name
+     * @param text  Characters the other name is in
+     * @param start Position of the other name in the array
+     * @param len   Length of the other name
+     * @return True if the names are the same
+     */
+    private static boolean matches(String name, char[] text, int start, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != text[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets interned name of an id
+     *
+     * @param id Id of the name
+     * @return Returns the name
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Gets number of names interned
+     *
+     * @return Returns number of distinct names
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a name not interned yet, growing the table when it is half full
+     *
+     * @param name Name to add
+     * @param hash Hash of the name
+     * @return Id of the name
+     */
+    private int add(String name, int hash) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            slots = new int[slots.length * 2];
+            for (int id = 0; id < size; id++) {
+                place(id);
+            }
+        }
+        names[size] = name;
+        hashes[size] = hash;
+        place(size);
+        return size++;
+    }
+
+    /**
+     * Puts an id in the first empty slot from its hash
+     *
+     * @param id Id to place
+     */
+    private void place(int id) {
+        int mask = slots.length - 1;
+        int slot = mix(hashes[id]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = id + 1;
+    }
+
+    /**
+     * Spreads a hash over the bits used to pick a slot. Names that differ in their last
+     * character have hashes next to each other, which would fill runs of slots.
+     *
+     * @param hash Hash to spread
+     * @return Spread hash
+     */
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -2,7 +2,8 @@ package lexer;
 
 /**
  * Token class for Lexer. Represents meaningful lexical tokens
- * for our parser to use.
+ * for our parser to use. Tokens made by the lexer only hold their position in
+ * the source string, and make their value the first time it is asked for.
  * @author Heath Dyer
  */
 public class Token {
@@ -23,9 +24,13 @@ public class Token {
      */
     private final int line;
     /**
-     * Contents of token
+     * Source string the token was lexed from, null if its value was given
      */
-    private final String value;
+    private final String source;
+    /**
+     * Contents of token, null until it is first asked for
+     */
+    private String value;
 
     /**
      * Constructs a new token given its type and value
@@ -41,9 +46,28 @@ public class Token {
         this.pos = pos;
         this.len = len;
         this.line = line;
+        this.source = null;
         this.value = value;
     }
 
+    /**
+     * Constructs a new token given its type and where it is in the source string. Its value
+     * is read from the source when it is first asked for.
+     *
+     * @param type   Type of token
+     * @param source Source string the token was lexed from
+     * @param pos    Position in the string of the token
+     * @param len    Length of the token
+     * @param line   Line number of token in source code
+     */
+    public Token(TokenType type, String source, int pos, int len, int line) {
+        this.type = type;
+        this.pos = pos;
+        this.len = len;
+        this.line = line;
+        this.source = source;
+    }
+
     /**
      * Returns the type of the token
      *
@@ -82,6 +106,9 @@ public class Token {
      * @return String contents of token
      */
     public String getValue() {
+        if (value == null && source != null) {
+            value = Lexer.readValue(type, source, pos, len);
+        }
         return this.value;
     }
 
@@ -0,0 +1,300 @@
+package lexer;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Tokens of a source string kept as parallel arrays of their types, positions, lengths, and
+ * lines instead of as token objects. A token takes 13 bytes of array space, and values are
+ * only read from the shared source when the parser asks for them. Identifiers keep the id of
+ * their interned name in place of their length, so their values are shared strings that are
+ * never read again. The buffer is also the
+ * cursor the parser reads it with, which passes over any whitespace and comments in it.
+ *
+ * @author Heath Dyer
+ */
+public class TokenBuffer implements TokenCursor {
+    /**
+     * Tokens the arrays have room for before they grow
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Token types by ordinal
+     */
+    private static final TokenType[] TYPES = TokenType.values();
+
+    /**
+     * Source string the tokens were lexed from
+     */
+    private final String source;
+    /**
+     * Symbol table the names of the identifiers are interned in
+     */
+    private final SymbolTable symbols;
+    /**
+     * Type ordinal of every token
+     */
+    private byte[] types;
+    /**
+     * Position in the source of every token
+     */
+    private int[] positions;
+    /**
+     * Length of every token, or the symbol id of its name for identifiers
+     */
+    private int[] lengths;
+    /**
+     * Line number of every token
+     */
+    private int[] lines;
+    /**
+     * Number of tokens
+     */
+    private int size;
+    /**
+     * Index of the token the cursor is on, size if there are no more tokens
+     */
+    private int cursor;
+
+    /**
+     * Constructs new empty buffer for the tokens of a source string
+     *
+     * @param source  Source string the tokens are lexed from
+     * @param symbols Symbol table the names of identifiers are interned in
+     */
+    TokenBuffer(String source, SymbolTable symbols) {
+        this.source = source;
+        this.symbols = symbols;
+        this.types = new byte[INITIAL_CAPACITY];
+        this.positions = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.lines = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a token to the end of the buffer
+     *
+     * @param type Type of token
+     * @param pos  Position in the source of the token
+     * @param len  Length of the token
+     * @param line Line number of token in source code
+     */
+    void add(TokenType type, int pos, int len, int line) {
+        grow();
+        types[size] = (byte) type.ordinal();
+        positions[size] = pos;
+        lengths[size] = len;
+        lines[size] = line;
+        if (size++ == cursor && isTrivia(cursor)) {
+            cursor++;
+        }
+    }
+
+    /**
+     * Adds an identifier to the end of the buffer
+     *
+     * @param symbol Id of its name in the symbol table
+     * @param pos    Position in the source of the identifier
+     * @param line   Line number of identifier in source code
+     */
+    void addIdentifier(int symbol, int pos, int line) {
+        grow();
+        types[size] = (byte) TokenType.IDENTIFIER.ordinal();
+        positions[size] = pos;
+        lengths[size] = symbol;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * Grows the arrays by half if they are full
+     */
+    private void grow() {
+        if (size == types.length) {
+            int capacity = size + (size >> 1);
+            types = Arrays.copyOf(types, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+    }
+
+    /**
+     * Gets number of tokens
+     *
+     * @return Returns number of tokens in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets type of a token
+     *
+     * @param i Index of the token
+     * @return Returns token type
+     */
+    public TokenType getType(int i) {
+        checkIndex(i);
+        return TYPES[types[i]];
+    }
+
+    /**
+     * Gets position of a token in the source
+     *
+     * @param i Index of the token
+     * @return Returns position of the token
+     */
+    public int getPosition(int i) {
+        checkIndex(i);
+        return positions[i];
+    }
+
+    /**
+     * Gets length of a token in characters
+     *
+     * @param i Index of the token
+     * @return Returns length of the token
+     */
+    public int getLength(int i) {
+        checkIndex(i);
+        return isIdentifier(i) ? symbols.name(lengths[i]).length() : lengths[i];
+    }
+
+    /**
+     * Gets line number of a token
+     *
+     * @param i Index of the token
+     * @return Returns line number of the token
+     */
+    public int getLine(int i) {
+        checkIndex(i);
+        return lines[i];
+    }
+
+    /**
+     * Gets string contents of a token, read from the source, or the interned name of an
+     * identifier
+     *
+     * @param i Index of the token
+     * @return Returns contents of the token
+     */
+    public String getValue(int i) {
+        checkIndex(i);
+        if (isIdentifier(i)) {
+            return symbols.name(lengths[i]);
+        }
+        return Lexer.readValue(TYPES[types[i]], source, positions[i], lengths[i]);
+    }
+
+    /**
+     * Makes a token object of a token in the buffer
+     *
+     * @param i Index of the token
+     * @return Returns the token
+     */
+    public Token getToken(int i) {
+        checkIndex(i);
+        if (isIdentifier(i)) {
+            String name = symbols.name(lengths[i]);
+            return new Token(TokenType.IDENTIFIER, positions[i], name.length(), lines[i], name);
+        }
+        return new Token(TYPES[types[i]], source, positions[i], lengths[i], lines[i]);
+    }
+
+    @Override
+    public TokenType type() {
+        return cursor < size ? TYPES[types[cursor]] : null;
+    }
+
+    @Override
+    public TokenType typeAhead() {
+        int ahead = skipTrivia(cursor + 1);
+        return ahead < size ? TYPES[types[ahead]] : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NoSuchElementException Throws if there are no more tokens
+     */
+    @Override
+    public int line() {
+        checkCursor();
+        return lines[cursor];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NoSuchElementException Throws if there are no more tokens
+     */
+    @Override
+    public String value() {
+        checkCursor();
+        return getValue(cursor);
+    }
+
+    @Override
+    public void advance() {
+        if (cursor < size) {
+            cursor = skipTrivia(cursor + 1);
+        }
+    }
+
+    /**
+     * Finds the first token from an index on that is not whitespace or a comment
+     *
+     * @param i Index to start from
+     * @return Returns index of the token, size if there is none
+     */
+    private int skipTrivia(int i) {
+        while (i < size && isTrivia(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Checks if a token is whitespace or a comment
+     *
+     * @param i Index of the token
+     * @return True if the token is whitespace or a comment
+     */
+    private boolean isTrivia(int i) {
+        return types[i] == TokenType.WS.ordinal() || types[i] == TokenType.COMMENT.ordinal();
+    }
+
+    /**
+     * Checks if a token is an identifier
+     *
+     * @param i Index of the token
+     * @return True if the token is an identifier
+     */
+    private boolean isIdentifier(int i) {
+        return types[i] == TokenType.IDENTIFIER.ordinal();
+    }
+
+    /**
+     * Checks an index is of a token
+     *
+     * @param i Index to check
+     * @throws IndexOutOfBoundsException Throws if there is no token at the index
+     */
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Token index " + i + " out of bounds for size " + size + ".");
+        }
+    }
+
+    /**
+     * Checks the cursor is on a token
+     *
+     * @throws NoSuchElementException Throws if there are no more tokens
+     */
+    private void checkCursor() {
+        if (cursor >= size) {
+            throw new NoSuchElementException("No more tokens in buffer.");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package lexer;
+
+/**
+ * Cursor over tokens for the parser. The parser only looks at the token the cursor is on
+ * and the one after it, and tokens are read through the cursor instead of as token objects,
+ * so tokens can be kept in whatever form is cheapest. Whitespace and comments are never
+ * seen through a cursor.
+ *
+ * @author Heath Dyer
+ */
+public interface TokenCursor {
+
+    /**
+     * Gets type of the token the cursor is on
+     *
+     * @return Returns token type, null if there are no more tokens
+     */
+    TokenType type();
+
+    /**
+     * Gets type of the token after the one the cursor is on
+     *
+     * @return Returns token type, null if there is no token after it
+     */
+    TokenType typeAhead();
+
+    /**
+     * Gets line number of the token the cursor is on
+     *
+     * @return Returns line number of the token
+     */
+    int line();
+
+    /**
+     * Gets string contents of the token the cursor is on
+     *
+     * @return Returns contents of the token
+     */
+    String value();
+
+    /**
+     * Moves the cursor to the next token
+     */
+    void advance();
+}
@@ -30,6 +30,8 @@ public enum TokenType {
     ARROW,
     EQUALS,
     LET,
+    WHILE,
+    FOR,
     /**
      * Error types
      */
@@ -0,0 +1,161 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * Side table of the whitespace and comments a lexer left out of its tokens, for tools that
+ * need to know where they were. Entries are kept in the order they appear in the source as
+ * parallel arrays of their positions, lengths, and lines instead of as tokens, and their
+ * values can be read back from the source.
+ *
+ * @author Heath Dyer
+ */
+public class Trivia {
+    /**
+     * Entries the arrays have room for before they grow
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Position in the source of every entry
+     */
+    private int[] positions;
+    /**
+     * Length of every entry, negative for comments
+     */
+    private int[] lengths;
+    /**
+     * Line number of every entry, as tokens of the same type would have
+     */
+    private int[] lines;
+    /**
+     * Number of entries
+     */
+    private int size;
+
+    /**
+     * Constructs new empty side table
+     */
+    public Trivia() {
+        positions = new int[INITIAL_CAPACITY];
+        lengths = new int[INITIAL_CAPACITY];
+        lines = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Records whitespace or a comment left out of the tokens
+     *
+     * @param type Type of the trivia, WS or COMMENT
+     * @param pos  Position in the source
+     * @param len  Length in characters
+     * @param line Line number
+     */
+    void add(TokenType type, int pos, int len, int line) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        positions[size] = pos;
+        lengths[size] = type == TokenType.COMMENT ? -len : len;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * Gets number of entries
+     *
+     * @return Returns number of whitespace and comments recorded
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets type of an entry
+     *
+     * @param i Index of the entry
+     * @return Returns COMMENT for comments and WS for whitespace
+     */
+    public TokenType getType(int i) {
+        checkIndex(i);
+        return lengths[i] < 0 ? TokenType.COMMENT : TokenType.WS;
+    }
+
+    /**
+     * Gets position of an entry in the source
+     *
+     * @param i Index of the entry
+     * @return Returns position of the entry
+     */
+    public int getPosition(int i) {
+        checkIndex(i);
+        return positions[i];
+    }
+
+    /**
+     * Gets length of an entry in characters
+     *
+     * @param i Index of the entry
+     * @return Returns length of the entry
+     */
+    public int getLength(int i) {
+        checkIndex(i);
+        return Math.abs(lengths[i]);
+    }
+
+    /**
+     * Gets line number of an entry
+     *
+     * @param i Index of the entry
+     * @return Returns line number of the entry
+     */
+    public int getLine(int i) {
+        checkIndex(i);
+        return lines[i];
+    }
+
+    /**
+     * Makes a token of an entry, with its value read from the source it was lexed from
+     *
+     * @param i      Index of the entry
+     * @param source Source string the entry was lexed from
+     * @return Returns token of the entry
+     */
+    public Token getToken(int i, String source) {
+        return new Token(getType(i), source, getPosition(i), getLength(i), getLine(i));
+    }
+
+    /**
+     * Finds the first entry that ends after a position in the source, so tools can find
+     * the whitespace or comment at or after it
+     *
+     * @param pos Position in the source
+     * @return Returns index of the entry, size() if there is none
+     */
+    public int indexAfter(int pos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] + Math.abs(lengths[mid]) <= pos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Checks an index is of an entry
+     *
+     * @param i Index to check
+     * @throws IndexOutOfBoundsException Throws if there is no entry at the index
+     */
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Trivia index " + i + " out of bounds for size " + size + ".");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package main;
 
 import expressions.Expression;
+import interpreter.Engine;
 import interpreter.Interpreter;
 import lexer.Lexer;
 import org.commonmark.node.Node;
@@ -52,6 +53,30 @@ public class GUI extends JFrame {
      * Option for enabling tracing option
      */
     JCheckBoxMenuItem tracingOption;
+    /**
+     * Option for enabling the JIT tier
+     */
+    JCheckBoxMenuItem jitOption;
+    /**
+     * Engine selected to run code with
+     */
+    private Engine engine = Engine.TREE;
+    /**
+     * Button that runs the code
+     */
+    private final JButton runButton;
+    /**
+     * Button that stops the running code
+     */
+    private final JButton stopButton;
+    /**
+     * Interpreter running the code, null when no code is running
+     */
+    private Interpreter running;
+    /**
+     * Thread running the code, null when no code is running
+     */
+    private Thread worker;
 
 
     public GUI() {
@@ -105,13 +130,18 @@ public class GUI extends JFrame {
         // Reconstruct split pane
         splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, codeScrollPane, outputScrollPane);
 
-        // Set up the run button
-        JButton runButton = new JButton("Run");
+        // Set up the run and stop buttons
+        runButton = new JButton("Run");
+        stopButton = new JButton("Stop");
+        stopButton.setEnabled(false);
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 2));
+        buttonPanel.add(runButton);
+        buttonPanel.add(stopButton);
 
         // Layout
         setLayout(new BorderLayout());
         add(splitPane, BorderLayout.CENTER);
-        add(runButton, BorderLayout.SOUTH);
+        add(buttonPanel, BorderLayout.SOUTH);
 
 
         // Keep divider in the middle on resize
@@ -127,6 +157,8 @@ public class GUI extends JFrame {
 
         // Add action listener for the run button
         runButton.addActionListener(e -> executeCode());
+        // Add action listener for the stop button
+        stopButton.addActionListener(e -> stopCode());
 
         // Mono font
         Font monoFont = new Font("Monospaced", Font.PLAIN, 12);
@@ -176,6 +208,21 @@ public class GUI extends JFrame {
         tracingOption = new JCheckBoxMenuItem("Enable Tracing");
         optionsMenu.add(lexicalOption);
         optionsMenu.add(tracingOption);
+        jitOption = new JCheckBoxMenuItem("Enable JIT");
+        jitOption.setSelected(true);
+        optionsMenu.add(jitOption);
+
+        // Engine sub menu, one radio item per engine
+        JMenu engineMenu = new JMenu("Engine");
+        ButtonGroup engineGroup = new ButtonGroup();
+        for (Engine option : Engine.values()) {
+            JRadioButtonMenuItem engineItem = new JRadioButtonMenuItem(option.name().toLowerCase());
+            engineItem.setSelected(option == engine);
+            engineItem.addActionListener(e -> engine = option);
+            engineGroup.add(engineItem);
+            engineMenu.add(engineItem);
+        }
+        optionsMenu.add(engineMenu);
 
         JMenu helpMenu = new JMenu("Help");
         JMenuItem aboutItem = new JMenuItem("About");
@@ -238,21 +285,70 @@ public class GUI extends JFrame {
     }
 
     /**
-     * Executes code in the context of the interpreter
+     * Executes code in the context of the interpreter. The code runs on its own thread so the
+     * window stays responsive and the stop button can cancel it.
      */
     private void executeCode() {
-        try {
-            Lexer lexer = new Lexer();
-            Parser parser = new Parser();
-            Interpreter interpreter = new Interpreter(tracingOption.isSelected(), lexicalOption.isSelected());
-            Expression result = interpreter.evaluate(desugar(parser.parse(lexer.lex(codeArea.getText()))), interpreter.getInitialEnv());
-
-            outputArea.setText(result.toString());
-            outputArea.setForeground(Color.WHITE);
-        } catch (Exception e) {
-            outputArea.setText(e.getMessage());
-            outputArea.setForeground(Color.RED);
+        String code = codeArea.getText();
+        Interpreter interpreter = new Interpreter(tracingOption.isSelected(), lexicalOption.isSelected());
+        interpreter.setEngine(engine);
+        interpreter.setJitEnabled(jitOption.isSelected());
+        running = interpreter;
+        worker = new Thread(() -> {
+            String output;
+            Color color;
+            try {
+                Lexer lexer = new Lexer();
+                lexer.setTriviaSkipped(true);
+                Parser parser = new Parser();
+                Expression result = interpreter.run(desugar(parser.parse(lexer.lexBuffer(code))));
+                output = result.toString();
+                color = Color.WHITE;
+            } catch (StackOverflowError e) {
+                output = "Stack over flow error. Is there infinite recursion in your program?";
+                color = Color.RED;
+            } catch (Exception e) {
+                output = e.getMessage();
+                color = Color.RED;
+            }
+            String text = output;
+            Color foreground = color;
+            SwingUtilities.invokeLater(() -> finishCode(interpreter, text, foreground));
+        }, "417 evaluation");
+        runButton.setEnabled(false);
+        stopButton.setEnabled(true);
+        outputArea.setText("Running...");
+        outputArea.setForeground(Color.GRAY);
+        worker.start();
+    }
+
+    /**
+     * Stops the running code by cancelling its interpreter and interrupting its thread
+     */
+    private void stopCode() {
+        if (running != null) {
+            running.cancel();
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Shows the output of code that finished running and enables running code again
+     *
+     * @param interpreter Interpreter that ran the code
+     * @param output      Result or error message of the code
+     * @param color       Color to show the output in
+     */
+    private void finishCode(Interpreter interpreter, String output, Color color) {
+        if (interpreter != running) {
+            return;
         }
+        running = null;
+        worker = null;
+        outputArea.setText(output);
+        outputArea.setForeground(color);
+        runButton.setEnabled(true);
+        stopButton.setEnabled(false);
     }
 
     private void showReadme() {
@@ -1,16 +1,17 @@
 package main;
 
 import expressions.Expression;
+import interpreter.Engine;
 import interpreter.Interpreter;
 import lexer.Lexer;
-import lexer.Token;
+import lexer.StreamingLexer;
+import lexer.TokenCursor;
 import parser.Parser;
 
-import java.io.IOException;
-import java.util.List;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 
 import static main.Util.fail;
-import static main.Util.getInput;
 import static parser.Desugar.desugar;
 
 /**
@@ -39,6 +40,54 @@ public class Main {
      * Argument to disable final expression print
      */
     private static final String ARG_NO_PRINT = "-np";
+    /**
+     * Argument prefix to select the evaluation engine
+     */
+    private static final String ARG_ENGINE = "--engine=";
+    /**
+     * Argument to disable the JIT tier
+     */
+    private static final String ARG_NO_JIT = "--no-jit";
+    /**
+     * Argument prefix to set the number of calls before a lambda is compiled by the JIT tier
+     */
+    private static final String ARG_JIT_THRESHOLD = "--jit-threshold=";
+    /**
+     * Argument to print interpreter statistics after running
+     */
+    private static final String ARG_STATS = "--stats";
+    /**
+     * Argument to print the program's bytecode instead of running it
+     */
+    private static final String ARG_DISASSEMBLE = "--disassemble";
+    /**
+     * Argument to disable the optimizer pass
+     */
+    private static final String ARG_NO_OPTIMIZE = "--no-optimize";
+    /**
+     * Argument to print the optimized program and what the optimizer did instead of running it
+     */
+    private static final String ARG_DUMP_OPTIMIZED = "--dump-optimized";
+    /**
+     * Argument to look up dynamically scoped identifiers by searching the call chain
+     */
+    private static final String ARG_DEEP_BINDING = "--deep-binding";
+    /**
+     * Argument prefix to set the stack budget of the vm engine in megabytes
+     */
+    private static final String ARG_STACK_BUDGET = "--stack-budget=";
+    /**
+     * Argument prefix to set the most lambda calls and loop iterations a program may evaluate
+     */
+    private static final String ARG_MAX_STEPS = "--max-steps=";
+    /**
+     * Argument prefix to set the most nested lambda calls a program may make
+     */
+    private static final String ARG_MAX_DEPTH = "--max-depth=";
+    /**
+     * Argument prefix to set the most milliseconds a program may run for
+     */
+    private static final String ARG_TIMEOUT = "--timeout=";
     /**
      * Help message for program usage
      */
@@ -54,11 +103,46 @@ public class Main {
                         -d    enable dynamic scoping (default lexical)
                         -t    enable tracing during interpreter evaluation
                         -np   disables printing final expression to terminal\s
+                        --engine=<tree|closure|vm>
+                              selects evaluation engine (default tree)
+                        --no-jit
+                              disables compiling hot lambdas to JVM bytecode
+                        --jit-threshold=<n>
+                              calls before a lambda is compiled (default 500)
+                        --stats
+                              prints interpreter statistics to stderr after running
+                        --stack-budget=<mb>
+                              most memory the vm engine's stacks may use, limiting
+                              recursion depth (default 64)
+                        --disassemble
+                              prints the program's bytecode instead of running it
+                        --no-optimize
+                              disables inlining, constant folding and propagation
+                              before running
+                        --dump-optimized
+                              prints what the optimizer did and the optimized program
+                              instead of running it
+                        --deep-binding
+                              looks up dynamically scoped identifiers by searching
+                              every frame of the call chain instead of a shallow
+                              binding table
+                        --max-steps=<n>
+                              stops the program after n lambda calls and loop
+                              iterations (default 0, no limit)
+                        --max-depth=<n>
+                              stops the program when more than n lambda calls are
+                              nested (default 0, no limit)
+                        --timeout=<ms>
+                              stops the program after running for ms milliseconds
+                              (default 0, no limit)
                     
                       Examples:
                         ./run.sh -h
                         ./parse < example.417 | ./run.sh
                         ./parse < example.417 | ./run.sh -t
+                        ./run.sh --engine=closure < example.417
+                        ./run.sh --disassemble < example.417
+                        ./run.sh --dump-optimized < example.417
                     
                     """;
     /**
@@ -83,15 +167,35 @@ public class Main {
      * Initializes instances of lexer, parser, and interpreter.
      * @param tracing Tracing enabled?
      * @param lexical Lexical scoping enabled?
+     * @param engine Engine to run programs with
+     * @param jit JIT tier enabled?
+     * @param jitThreshold Calls before a lambda is compiled by the JIT tier
+     * @param stackBudget Most bytes the vm engine's stacks may use
+     * @param optimize Optimizer enabled?
+     * @param shallowBinding Shallow binding of dynamically scoped identifiers enabled?
+     * @param maxSteps Most lambda calls and loop iterations a program may evaluate, 0 for no limit
+     * @param maxDepth Most nested lambda calls a program may make, 0 for no limit
+     * @param timeLimit Most milliseconds a program may run for, 0 for no limit
      */
-    public static void init(boolean tracing, boolean lexical) {
+    public static void init(boolean tracing, boolean lexical, Engine engine, boolean jit, int jitThreshold, long stackBudget,
+                            boolean optimize, boolean shallowBinding, long maxSteps, int maxDepth, long timeLimit) {
         lexer = new Lexer();
+        lexer.setTriviaSkipped(true);
         parser = new Parser();
         interpreter = new Interpreter(tracing, lexical);
+        interpreter.setEngine(engine);
+        interpreter.setJitEnabled(jit);
+        interpreter.setJitThreshold(jitThreshold);
+        interpreter.setStackBudget(stackBudget);
+        interpreter.setOptimizerEnabled(optimize);
+        interpreter.setShallowBinding(shallowBinding);
+        interpreter.setMaxSteps(maxSteps);
+        interpreter.setMaxDepth(maxDepth);
+        interpreter.setTimeLimit(timeLimit);
     }
 
     /**
-     * Full interpreter pipeline. String input is given to the lexer which returns a list of tokens.
+     * Full interpreter pipeline. String input is given to the lexer which returns a buffer of tokens.
      * The tokens are given to the parser who parses into some valid expression. The expression is desugared and
      * given to the interpreter for evaluation.
      *
@@ -99,10 +203,39 @@ public class Main {
      * @return Evaluated expression
      */
     public static Expression interpret(String input) {
-        List<Token> tokens = lexer.lex(input);
+        return interpreter.run(parse(lexer.lexBuffer(input)));
+    }
+
+    /**
+     * Compiles input to bytecode and disassembles it, without running it.
+     *
+     * @param input String input from source code
+     * @return Disassembly of the program
+     */
+    public static String disassemble(String input) {
+        return interpreter.disassemble(parse(lexer.lexBuffer(input)));
+    }
+
+    /**
+     * Optimizes input without running it and reports what the optimizer did.
+     *
+     * @param input String input from source code
+     * @return Optimizer report and optimized program
+     */
+    public static String dumpOptimized(String input) {
+        return interpreter.dumpOptimized(parse(lexer.lexBuffer(input)));
+    }
+
+    /**
+     * Parses tokens into some valid expression and desugars it.
+     *
+     * @param tokens Cursor over tokens of source code
+     * @return Desugared program
+     */
+    public static Expression parse(TokenCursor tokens) {
         Expression exp = parser.parse(tokens);
         desugar(exp);
-        return interpreter.evaluate(exp, interpreter.getInitialEnv());
+        return exp;
     }
 
     /**
@@ -114,8 +247,89 @@ public class Main {
         boolean tracing = false;
         boolean lexicalScope = true;
         boolean print = true;
+        Engine engine = Engine.TREE;
+        boolean jit = true;
+        int jitThreshold = 500;
+        boolean stats = false;
+        boolean disassemble = false;
+        boolean optimize = true;
+        boolean shallowBinding = true;
+        boolean dumpOptimized = false;
+        long stackBudget = Interpreter.DEFAULT_STACK_BUDGET;
+        long maxSteps = 0;
+        int maxDepth = 0;
+        long timeLimit = 0;
         //Check for any program arguments
         for (String arg : args) {
+            //engine argument
+            if (arg.startsWith(ARG_ENGINE)) {
+                try {
+                    engine = Engine.fromName(arg.substring(ARG_ENGINE.length()));
+                } catch (IllegalArgumentException e) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                continue;
+            }
+            //jit threshold argument
+            if (arg.startsWith(ARG_JIT_THRESHOLD)) {
+                try {
+                    jitThreshold = Integer.parseInt(arg.substring(ARG_JIT_THRESHOLD.length()));
+                } catch (NumberFormatException e) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                if (jitThreshold < 0) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                continue;
+            }
+            //stack budget argument
+            if (arg.startsWith(ARG_STACK_BUDGET)) {
+                try {
+                    stackBudget = Long.parseLong(arg.substring(ARG_STACK_BUDGET.length())) * 1024 * 1024;
+                } catch (NumberFormatException e) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                if (stackBudget <= 0) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                continue;
+            }
+            //max steps argument
+            if (arg.startsWith(ARG_MAX_STEPS)) {
+                try {
+                    maxSteps = Long.parseLong(arg.substring(ARG_MAX_STEPS.length()));
+                } catch (NumberFormatException e) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                if (maxSteps < 0) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                continue;
+            }
+            //max depth argument
+            if (arg.startsWith(ARG_MAX_DEPTH)) {
+                try {
+                    maxDepth = Integer.parseInt(arg.substring(ARG_MAX_DEPTH.length()));
+                } catch (NumberFormatException e) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                if (maxDepth < 0) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                continue;
+            }
+            //timeout argument
+            if (arg.startsWith(ARG_TIMEOUT)) {
+                try {
+                    timeLimit = Long.parseLong(arg.substring(ARG_TIMEOUT.length()));
+                } catch (NumberFormatException e) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                if (timeLimit < 0) {
+                    fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
+                }
+                continue;
+            }
             //help argument
             switch (arg) {
                 case ARG_HELP -> {
@@ -133,29 +347,52 @@ public class Main {
                 case ARG_DYNAMIC -> lexicalScope = false;
                 //no print argument
                 case ARG_NO_PRINT -> print = false;
+                //no jit argument
+                case ARG_NO_JIT -> jit = false;
+                //statistics argument
+                case ARG_STATS -> stats = true;
+                //disassemble argument
+                case ARG_DISASSEMBLE -> disassemble = true;
+                //no optimize argument
+                case ARG_NO_OPTIMIZE -> optimize = false;
+                //dump optimized argument
+                case ARG_DUMP_OPTIMIZED -> dumpOptimized = true;
+                //deep binding argument
+                case ARG_DEEP_BINDING -> shallowBinding = false;
                 //otherwise invalid argument
                 default -> fail("Invalid argument \"" + arg + "\"\n" + HELP_MSG);
             }
         }
 
-        //Get input from standard in
-        String input = null;
+        //Lex input from standard in as it is read
+        StreamingLexer input = new StreamingLexer(new InputStreamReader(System.in));
+        input.setTriviaSkipped(true);
         try {
-            input = getInput();
-        } catch (IOException e) {
+            if (input.isBlank()) {
+                fail("IOException: No input detected.");
+            }
+        } catch (UncheckedIOException e) {
             fail("IOException: Failure while reading program input.");
         }
-        if (input == null || input.isBlank()) {
-            fail("IOException: No input detected.");
-        }
 
         // Try to interpret;
         Expression eval = null;
         try {
-            init(tracing, lexicalScope);
-            eval = interpret(input);
+            init(tracing, lexicalScope, engine, jit, jitThreshold, stackBudget, optimize, shallowBinding, maxSteps, maxDepth, timeLimit);
+            Expression program = desugar(parser.parse(input));
+            if (disassemble) {
+                System.out.print(interpreter.disassemble(program));
+                System.exit(0);
+            }
+            if (dumpOptimized) {
+                System.out.print(interpreter.dumpOptimized(program));
+                System.exit(0);
+            }
+            eval = interpreter.run(program);
         } catch (StackOverflowError e) {
             fail("Stack over flow error. Is there infinite recursion in your program?");
+        } catch (UncheckedIOException e) {
+            fail("IOException: Failure while reading program input.");
         } catch (Exception e) {
             fail(e.getMessage());
         }
@@ -168,6 +405,10 @@ public class Main {
         } else {
             fail("Something went wrong... expression evaluated as null.");
         }
+        //if printing statistics, keep them off stdout so program output is unchanged
+        if (stats) {
+            System.err.println(interpreter.getStatistics());
+        }
 
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package main;
+
+import lexer.Lexer;
+import lexer.Token;
+
+import java.io.IOException;
+import java.util.List;
+
+import static main.Util.fail;
+import static main.Util.getInputFromFile;
+
+/**
+ * Benchmark of the memory tokens take. Lexes a program into a list of token objects, with
+ * and without their values read, and into a token buffer, and reports the heap each keeps
+ * per token.
+ *
+ * @author Heath Dyer
+ */
+public abstract class TokenBenchmark {
+    /**
+     * Times each way of keeping tokens is measured, keeping the least
+     */
+    private static final int ROUNDS = 3;
+    /**
+     * Tokens being measured, kept in a field so they stay reachable while they are
+     */
+    private static Object kept;
+
+    /**
+     * Measures heap kept by the tokens of a program
+     *
+     * @param args Program file to lex
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            fail("Usage: java -cp bin main.TokenBenchmark <program.417>");
+        }
+        String source = null;
+        try {
+            source = getInputFromFile(args[0]);
+        } catch (IOException e) {
+            fail("IOException: Failure while reading " + args[0] + ".");
+        }
+        int count = lexer().lexBuffer(source).size();
+        long objects = Long.MAX_VALUE;
+        long values = Long.MAX_VALUE;
+        long buffer = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long before = usedHeap();
+            List<Token> tokens = lexer().lex(source);
+            kept = tokens;
+            objects = Math.min(objects, usedHeap() - before);
+            for (Token token : tokens) {
+                token.getValue();
+            }
+            values = Math.min(values, usedHeap() - before);
+            tokens = null;
+            kept = null;
+            before = usedHeap();
+            kept = lexer().lexBuffer(source);
+            buffer = Math.min(buffer, usedHeap() - before);
+            kept = null;
+        }
+        System.out.printf("%d tokens in %d characters%n", count, source.length());
+        System.out.printf("%-32s %8.1f bytes per token%n", "token objects, values read", (double) values / count);
+        System.out.printf("%-32s %8.1f bytes per token%n", "token objects", (double) objects / count);
+        System.out.printf("%-32s %8.1f bytes per token%n", "token buffer", (double) buffer / count);
+    }
+
+    /**
+     * Makes a lexer leaving whitespace and comments out, as the interpreter lexes. Every
+     * measurement gets its own, since a lexer keeps what it last lexed.
+     *
+     * @return New lexer
+     */
+    private static Lexer lexer() {
+        Lexer lexer = new Lexer();
+        lexer.setTriviaSkipped(true);
+        return lexer;
+    }
+
+    /**
+     * Collects garbage and measures the heap in use
+     *
+     * @return Bytes of heap in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,9 +1,7 @@
 package main;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 
 /**
  * Utilities for our application.
@@ -34,36 +32,6 @@ public abstract class Util {
         System.exit(1);
     }
 
-    /**
-     * Reads all input in standard input and returns the string
-     *
-     * @return Returns string of all input from standard in
-     * @throws IOException Failure while reading standard input
-     */
-    public static String getInput() throws IOException {
-        // Get all input from standard in
-        BufferedReader inputReader = null;
-        StringBuilder input = new StringBuilder();
-        try {
-            inputReader = new BufferedReader(new InputStreamReader(System.in));
-            String line;
-            while ((line = inputReader.readLine()) != null) {
-                input.append(line).append("\n");  // Add newline after each line
-            }
-        }
-        // Catch IO errors
-        catch (IOException e) {
-            throw new IOException(e.getMessage());
-        }
-        // Close input stream if not closed
-        finally {
-            if (inputReader != null) {
-                inputReader.close();
-            }
-        }
-        return input.toString();
-    }
-
     /**
      * Reads all input from a file
      *
@@ -1,7 +1,9 @@
 package parser;
 
 import expressions.*;
+import interpreter.Prelude;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -13,7 +15,18 @@ import java.util.List;
 public abstract class Desugar {
 
     /**
-     * Recursively desugar an expression for each of its subcomponents
+     * Built in procedure testing the counter of a for loop, used directly so the loop
+     * does not depend on what the program binds lessThan? to
+     */
+    private static final Expression LESS_THAN = Prelude.get(new IdentifierExpression("lessThan?"));
+    /**
+     * Built in procedure counting a for loop
+     */
+    private static final Expression ADD = Prelude.get(new IdentifierExpression("add"));
+
+    /**
+     * Recursively desugar an expression for each of its subcomponents. Sugar nested in the
+     * expression is replaced in place, so only the returned expression may differ from it.
      *
      * @param exp Expression to desugar
      * @return Returns desugared expression
@@ -31,13 +44,13 @@ public abstract class Desugar {
             // form types -> must examine components
             case ASSIGNMENT:
                 AssignmentExpression assign = (AssignmentExpression) exp;
-                desugar(assign.getExpression());
+                assign.setExpression(desugar(assign.getExpression()));
                 return assign;
             case APPLICATION:
                 ApplicationExpression app = (ApplicationExpression) exp;
                 List<Expression> args = app.getArguments();
-                for (Expression arg : args) {
-                    desugar(arg);
+                for (int i = 0; i < args.size(); i++) {
+                    args.set(i, desugar(args.get(i)));
                 }
                 return app;
             case LAMBDA:
@@ -69,29 +82,42 @@ public abstract class Desugar {
                                 letContents.addAll(contents.subList(i + 1, contents.size()));
                                 contents.removeAll(contents.subList(i + 1, contents.size()));
                             }
-                            // now desugar the new block
+                            // now desugar the bound expression and the new block
+                            let.setExpression(desugar(let.getExpression()));
                             desugar(let.getBlock());
+                            block.findDefinitions();
                             return block; //no need to continue at this point
                         }
+                        // let with its own block
+                        desugar(let);
                     } else {
-                        desugar(e);
+                        contents.set(i, desugar(e));
                     }
                 }
+                block.findDefinitions();
                 return block;
             case LET:
                 LetExpression let = (LetExpression) exp;
-                desugar(let.getExpression());
+                let.setExpression(desugar(let.getExpression()));
                 desugar(let.getBlock());
                 return let;
             case DEFINITION:
                 DefinitionExpression def = (DefinitionExpression) exp;
-                desugar(def.getExpression());
+                def.setExpression(desugar(def.getExpression()));
                 return def;
             case CLAUSE:
                 ClauseExpression clause = (ClauseExpression) exp;
-                desugar(clause.getTest());
-                desugar(clause.getConsequent());
+                clause.setTest(desugar(clause.getTest()));
+                clause.setConsequent(desugar(clause.getConsequent()));
                 return clause;
+            case WHILE:
+                WhileExpression loop = (WhileExpression) exp;
+                loop.setTest(desugar(loop.getTest()));
+                desugar(loop.getBlock());
+                return loop;
+            // here is where we desugar for
+            case FOR:
+                return desugar(desugarFor((ForExpression) exp));
             // Types that should never be reached
             case LIST:
             case ARGLIST:
@@ -100,4 +126,24 @@ public abstract class Desugar {
                 throw new RuntimeException("Tried desugaring unhandled type: " + exp.getType().toString());
         }
     }
+
+    /**
+     * Desugars counted for loop into a let binding the counter around a while loop. The
+     * block of the while loop evaluates the block of the for loop and then counts.
+     *
+     * @param loop For loop to desugar
+     * @return Returns let expression running the loop
+     */
+    private static LetExpression desugarFor(ForExpression loop) {
+        String counter = loop.getIdentifier().getName();
+        //every reference is its own identifier so each can be given its own lexical address
+        Expression test = new ApplicationExpression(new ArrayList<>(List.of(LESS_THAN,
+                new IdentifierExpression(counter), loop.getEnd())));
+        Expression count = new AssignmentExpression(new IdentifierExpression(counter),
+                new ApplicationExpression(new ArrayList<>(List.of(ADD,
+                        new IdentifierExpression(counter), new IntegerExpression(1)))));
+        BlockExpression body = new BlockExpression(new ArrayList<>(List.of(loop.getBlock(), count)));
+        BlockExpression block = new BlockExpression(new ArrayList<>(List.of(new WhileExpression(test, body))));
+        return new LetExpression(loop.getIdentifier(), loop.getStart(), block);
+    }
 }
@@ -2,10 +2,15 @@ package parser;
 
 import expressions.*;
 import lexer.Token;
+import lexer.TokenCursor;
 import lexer.TokenType;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Parser class for interpreter. Takes a list of tokens produced by
@@ -14,10 +19,14 @@ import java.util.List;
  * @author Heath Dyer
  */
 public class Parser {
-    /** List of tokens for parser methods */
-    private List<Token> tokens;
-    /** Index of current token in list */
-    private int current;
+    /** Cursor over the tokens left to parse */
+    private TokenCursor tokens;
+    /**
+     * First identifier parsed with every name, by the name string interned by the lexer.
+     * Later identifiers with the same name are copied from it, so the name is checked
+     * against the reserved keywords once.
+     */
+    private Map<String, IdentifierExpression> identifiers;
 
     /**
      * Constructs new parser class
@@ -31,54 +40,31 @@ public class Parser {
      * @return Returned expression to evaluate.
      */
     public Expression parse(List<Token> tokens) {
-        this.tokens = tokens;
-        current = 0;
-        return parseExpression();
+        return parse(tokens.iterator());
     }
 
     /**
-     * Peeks to the next token without consuming. If the token is whitespace or comment,
-     * it will be consumed and the next token will be consumed.
-     *
-     * @return Returns next non-whitespace/non-comment token without consuming
+     * Parses tokens against the grammar as they are taken from an iterator and returns
+     * nested expressions. Tokens are only taken as they are needed, so tokens can be
+     * lexed from a stream while they are parsed.
+     * @param tokens Iterator of tokens to parse
+     * @return Returned expression to evaluate.
      */
-    private Token peekToken() {
-        //make sure there is token to peek
-        if (current >= tokens.size()) {
-            return null;
-        }
-        Token token = tokens.get(current);
-        // skip the
-        while (token.getType() == TokenType.WS || token.getType() == TokenType.COMMENT) {
-            current++;
-            if (current >= tokens.size()) {
-                return null;
-            }
-            token = tokens.get(current);
-        }
-        return token;
+    public Expression parse(Iterator<Token> tokens) {
+        return parse(new IteratorCursor(tokens));
     }
 
     /**
-     * Peaks ahead to the next token. If the token is whitespace or comment,
-     * it will be consumed and the next token will be consumed.
-     * @return Returns the next token ahead
+     * Parses tokens against the grammar as they are read through a cursor and returns
+     * nested expressions. A token buffer from the lexer is read this way without making
+     * token objects.
+     * @param tokens Cursor over tokens to parse
+     * @return Returned expression to evaluate.
      */
-    private Token peekAhead() {
-        int i = current + 1;
-        //make sure there is token to peek
-        if (i >= tokens.size()) {
-            return null;
-        }
-        Token token = tokens.get(i);
-        // skip the
-        while (token.getType() == TokenType.WS || token.getType() == TokenType.COMMENT) {
-            if (++i >= tokens.size()) {
-                return null;
-            }
-            token = tokens.get(i);
-        }
-        return token;
+    public Expression parse(TokenCursor tokens) {
+        this.tokens = tokens;
+        this.identifiers = new IdentityHashMap<>();
+        return parseExpression();
     }
 
     /**
@@ -96,19 +82,32 @@ public class Parser {
                 expected.append(" or ");
             }
         }
-        //Get token
-        Token token = peekToken();
+        //Get token type
+        TokenType next = tokens.type();
         // No token given
-        if (token == null) {
+        if (next == null) {
             throw new RuntimeException("Expected " + expected + " but there were no more tokens");
         }
         for (TokenType type : types) {
-            if (token.getType() == type) {
-                current++;
+            if (next == type) {
+                tokens.advance();
                 return;
             }
         }
-        throw new RuntimeException("Expected " + expected + " but was " + token.getType() + " at line " + token.getLine());
+        throw new RuntimeException("Expected " + expected + " but was " + next + " at line " + tokens.line());
+    }
+
+    /**
+     * Matches the next token's type against the token type given and returns its contents.
+     * Throws error if there is no match.
+     *
+     * @param type Token type to check
+     * @return Returns contents of the matched token
+     */
+    private String matchValue(TokenType type) {
+        String value = tokens.type() == type ? tokens.value() : null;
+        match(type);
+        return value;
     }
 
     /**
@@ -117,11 +116,11 @@ public class Parser {
      * @return Returns parsed expression
      */
     private Expression parseExpression() {
-        Token token = peekToken();
-        if (token == null) {
+        TokenType type = tokens.type();
+        if (type == null) {
             throw new RuntimeException("Bad input. No tokens to parse.");
         }
-        Expression exp = switch (token.getType()) {
+        Expression exp = switch (type) {
             // Start of parameters
             case OPENPAREN:
                 yield parseParameters();
@@ -138,9 +137,12 @@ public class Parser {
                 yield parseDefinition();
             case LET:
                 yield parseLet();
+            case WHILE:
+                yield parseWhile();
+            case FOR:
+                yield parseFor();
             case IDENTIFIER:
-                Token p = peekAhead();
-                if (p != null && p.getType() == TokenType.EQUALS) {
+                if (tokens.typeAhead() == TokenType.EQUALS) {
                     yield parseAssignment();
                 }
                 yield parseIdentifier();
@@ -150,24 +152,23 @@ public class Parser {
                 yield parseInteger();
                 // Unexpected Syntax Encountered
             case EQUALS:
-                throw new RuntimeException("Spurious equals sign encountered at line " + token.getLine());
+                throw new RuntimeException("Spurious equals sign encountered at line " + tokens.line());
             case ARROW:
-                throw new RuntimeException("Spurious arrow encountered at line " + token.getLine());
+                throw new RuntimeException("Spurious arrow encountered at line " + tokens.line());
             case CLOSEBRACE:
-                throw new RuntimeException("Spurious closing brace encountered at line " + token.getLine());
+                throw new RuntimeException("Spurious closing brace encountered at line " + tokens.line());
             case CLOSEPAREN:
-                throw new RuntimeException("Spurious closing parenthesis encountered at line " + token.getLine());
+                throw new RuntimeException("Spurious closing parenthesis encountered at line " + tokens.line());
             case COMMA:
-                throw new RuntimeException("Spurious comma encountered at line " + token.getLine());
+                throw new RuntimeException("Spurious comma encountered at line " + tokens.line());
             case SEMICOLON:
-                throw new RuntimeException("Spurious semicolon encountered at line " + token.getLine());
+                throw new RuntimeException("Spurious semicolon encountered at line " + tokens.line());
                 // If we reach this some token went unhandled
             default:
-                throw new RuntimeException("Error while parsing expression... some unhandled token type: " + token.getType().toString());
+                throw new RuntimeException("Error while parsing expression... some unhandled token type: " + type);
         };
         // check if expression is an application
-        token = peekToken();
-        if (token != null && token.getType() == TokenType.OPENPAREN) {
+        if (tokens.type() == TokenType.OPENPAREN) {
             //parse application
             exp = parseApplication(exp);
         }
@@ -200,22 +201,18 @@ public class Parser {
      */
     private List<Expression> parseArguments() {
         List<Expression> args = new ArrayList<>();
-        Token token = peekToken();
         // We are already at end of arguments list, empty args list
-        if (token != null && token.getType() == TokenType.CLOSEPAREN) {
+        if (tokens.type() == TokenType.CLOSEPAREN) {
             return args;
         }
         // We have at least one token
         Expression exp = parseExpression();
         args.add(exp);
-        token = peekToken();
-        while (token != null && token.getType() != TokenType.CLOSEPAREN) {
+        while (tokens.type() != null && tokens.type() != TokenType.CLOSEPAREN) {
             // should be comma separating
             match(TokenType.COMMA);
             // now we parse next expression
             args.add(parseExpression());
-            // move to next token
-            token = peekToken();
         }
         return args;
     }
@@ -231,10 +228,9 @@ public class Parser {
         // Check for Open paren
         match(TokenType.OPENPAREN);
         // if close paren
-        Token token = peekToken();
         ParametersExpression params;
         // Check for param list
-        if (token != null && token.getType() != TokenType.CLOSEPAREN) {
+        if (tokens.type() != null && tokens.type() != TokenType.CLOSEPAREN) {
             params = parseParameters();
         }
         // otherwise empty
@@ -256,10 +252,8 @@ public class Parser {
         ConditionalExpression cond = new ConditionalExpression();
         cond.addClause(parseClause());
         // get all clauses
-        Token token = peekToken();
-        while (token != null && token.getType() == TokenType.OPENPAREN) {
+        while (tokens.type() == TokenType.OPENPAREN) {
             cond.addClause(parseClause());
-            token = peekToken();
         }
         return cond;
     }
@@ -273,19 +267,16 @@ public class Parser {
         match(TokenType.OPENBRACE);
         // Match expressions until close brace
         BlockExpression block = new BlockExpression();
-        Token token = peekToken();
         //Maybe empty block?
-        if (token != null && token.getType() == TokenType.CLOSEBRACE) {
+        if (tokens.type() == TokenType.CLOSEBRACE) {
             match(TokenType.CLOSEBRACE);
             return block;
         }
         // at least one expression in block
         block.addToBlock(parseExpression());
-        token = peekToken();
-        while (token != null && token.getType() == TokenType.SEMICOLON) {
+        while (tokens.type() == TokenType.SEMICOLON) {
             match(TokenType.SEMICOLON);
             block.addToBlock(parseExpression());
-            token = peekToken();
         }
         // Consume close brace
         match(TokenType.CLOSEBRACE);
@@ -332,13 +323,11 @@ public class Parser {
         ParametersExpression params = new ParametersExpression();
         params.addParameter(parseIdentifier());
         //Check for more ids?
-        Token token = peekToken();
-        while (token != null && token.getType() == TokenType.COMMA) {
+        while (tokens.type() == TokenType.COMMA) {
             //consume comma
             match(TokenType.COMMA);
             // consume id
             params.addParameter(parseIdentifier());
-            token = peekToken();
         }
         return params;
     }
@@ -379,8 +368,7 @@ public class Parser {
         // get final exp
         Expression exp = parseExpression();
         // is there a block?
-        Token token = peekToken();
-        if (token != null && token.getType() == TokenType.OPENBRACE) {
+        if (tokens.type() == TokenType.OPENBRACE) {
             return new LetExpression(id, exp, parseBlock());
         }
         // if not create a new block with dummy expression so we know to desugar
@@ -390,14 +378,53 @@ public class Parser {
     }
 
     /**
-     * Matches identifier and returns expression assuming valid.
+     * Parses while loop: the keyword, the test, and the block to repeat.
+     * @return Returns WhileExpression
+     */
+    private WhileExpression parseWhile() {
+        // Check for while keyword
+        match(TokenType.WHILE);
+        // get test
+        Expression test = parseExpression();
+        // get block to repeat
+        return new WhileExpression(test, parseBlock());
+    }
+
+    /**
+     * Parses counted for loop: the keyword, the counter, its start and end separated by
+     * a comma, and the block to repeat. It is desugared into a while loop.
+     * @return Returns ForExpression
+     */
+    private ForExpression parseFor() {
+        // Check for for keyword
+        match(TokenType.FOR);
+        // get counter
+        IdentifierExpression id = parseIdentifier();
+        // parse equals
+        match(TokenType.EQUALS);
+        // get start and end
+        Expression start = parseExpression();
+        match(TokenType.COMMA);
+        Expression end = parseExpression();
+        // get block to repeat
+        return new ForExpression(id, start, end, parseBlock());
+    }
+
+    /**
+     * Matches identifier and returns expression assuming valid. Every identifier gets its
+     * own expression, since each is resolved to its own address, but identifiers with the
+     * same name share the name string interned by the lexer.
      * @return Returns new identifier expression
      */
     private IdentifierExpression parseIdentifier() {
-        Token token = peekToken();
-        match(TokenType.IDENTIFIER);
-        assert token != null;
-        return new IdentifierExpression(token.getValue());
+        String name = matchValue(TokenType.IDENTIFIER);
+        IdentifierExpression first = identifiers.get(name);
+        if (first == null) {
+            first = new IdentifierExpression(name);
+            identifiers.put(name, first);
+            return first;
+        }
+        return new IdentifierExpression(first);
     }
 
     /**
@@ -406,13 +433,12 @@ public class Parser {
      * @return Returns current integer token as expression
      */
     private IntegerExpression parseInteger() {
-        Token token = peekToken();
-        match(TokenType.INTEGER);
+        int line = tokens.type() == TokenType.INTEGER ? tokens.line() : 0;
+        String value = matchValue(TokenType.INTEGER);
         try {
-            assert token != null;
-            return new IntegerExpression(Long.parseLong(token.getValue()));
+            return new IntegerExpression(Long.parseLong(value));
         } catch (Exception e) {
-            throw new Error("Error converting TOKEN_INTEGER to number at line " + token.getLine());
+            throw new Error("Error converting TOKEN_INTEGER to number at line " + line);
         }
     }
 
@@ -422,13 +448,106 @@ public class Parser {
      * @return Returns current string token as expression
      */
     private StringExpression parseString() {
-        Token token = peekToken();
-        match(TokenType.STRING);
-        assert token != null;
-        String value = token.getValue();
+        String value = matchValue(TokenType.STRING);
         if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
             throw new RuntimeException("Parsed String where token was not surrounded by quotations");
         }
-        return new StringExpression(token.getValue().substring(1, value.length() - 1));
+        return new StringExpression(value.substring(1, value.length() - 1));
+    }
+
+    /**
+     * Cursor over tokens taken from an iterator as they are needed. Whitespace and comments
+     * are skipped, since lexers only leave them out of the tokens when asked to.
+     */
+    private static final class IteratorCursor implements TokenCursor {
+        /** Tokens left to take */
+        private final Iterator<Token> tokens;
+        /** Token the cursor is on, null until it is taken */
+        private Token next;
+        /** Token after the one the cursor is on, null until it is taken */
+        private Token ahead;
+
+        /**
+         * Constructs new cursor over the tokens of an iterator
+         * @param tokens Iterator of tokens
+         */
+        private IteratorCursor(Iterator<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        /**
+         * Takes tokens until one is not whitespace or a comment
+         *
+         * @return Returns next non-whitespace/non-comment token, null if there are no more tokens
+         */
+        private Token pull() {
+            while (tokens.hasNext()) {
+                Token token = tokens.next();
+                if (token.getType() != TokenType.WS && token.getType() != TokenType.COMMENT) {
+                    return token;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gets the token the cursor is on, taking it if it is not taken yet
+         *
+         * @return Returns the token, null if there are no more tokens
+         */
+        private Token peek() {
+            if (next == null) {
+                next = pull();
+            }
+            return next;
+        }
+
+        @Override
+        public TokenType type() {
+            Token token = peek();
+            return token == null ? null : token.getType();
+        }
+
+        @Override
+        public TokenType typeAhead() {
+            if (peek() == null) {
+                return null;
+            }
+            if (ahead == null) {
+                ahead = pull();
+            }
+            return ahead == null ? null : ahead.getType();
+        }
+
+        @Override
+        public int line() {
+            return current().getLine();
+        }
+
+        @Override
+        public String value() {
+            return current().getValue();
+        }
+
+        @Override
+        public void advance() {
+            peek();
+            next = ahead;
+            ahead = null;
+        }
+
+        /**
+         * Gets the token the cursor is on
+         *
+         * @return Returns the token
+         * @throws NoSuchElementException Throws if there are no more tokens
+         */
+        private Token current() {
+            Token token = peek();
+            if (token == null) {
+                throw new NoSuchElementException("No more tokens to parse.");
+            }
+            return token;
+        }
     }
 }
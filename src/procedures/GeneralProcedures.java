@@ -1,6 +1,10 @@
 package procedures;
 
 import expressions.Expression;
+import expressions.ExpressionType;
+import expressions.IntegerExpression;
+import expressions.LambdaExpression;
+import expressions.MemoExpression;
 import expressions.StringExpression;
 
 import java.util.List;
@@ -26,4 +30,30 @@ public abstract class GeneralProcedures {
         }
         return new StringExpression(arguments.get(0).getTypeName());
     }
+
+    /**
+     * Memoizes lambda, caching the results of its calls by the value of their arguments
+     *
+     * @param arguments List of arguments (lambda and optional integer capacity of the cache)
+     * @return Returns memoized lambda
+     * @throws IllegalArgumentException Throws if not given a lambda and positive integer capacity
+     */
+    public static Expression memo(List<Expression> arguments) {
+        // Check for one or two arguments
+        if (arguments.isEmpty() || arguments.size() > 2) {
+            throw new IllegalArgumentException("Procedure memo must have 1 or 2 arguments.");
+        }
+        if (arguments.get(0).getType() != ExpressionType.LAMBDA) {
+            throw new IllegalArgumentException("Procedure memo expects a lambda as its first argument.");
+        }
+        int capacity = MemoExpression.DEFAULT_CAPACITY;
+        if (arguments.size() == 2) {
+            if (!(arguments.get(1) instanceof IntegerExpression size) || size.getValue() <= 0
+                    || size.getValue() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Procedure memo expects a positive integer capacity.");
+            }
+            capacity = (int) size.getValue();
+        }
+        return new MemoExpression((LambdaExpression) arguments.get(0), capacity);
+    }
 }
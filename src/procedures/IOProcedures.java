@@ -73,6 +73,14 @@ public abstract class IOProcedures {
         if (!arguments.isEmpty()) {
             throw new IllegalArgumentException("Procedure input does not take any arguments.");
         }
+        return readInput();
+    }
+
+    /**
+     * Gets all input from terminal (for piping a file mainly)
+     * @return returns input from terminal as string
+     */
+    public static Expression readInput() {
         //Get all input from standard in
         BufferedReader inputReader;
         StringBuilder input = new StringBuilder();
@@ -102,6 +110,14 @@ public abstract class IOProcedures {
         if (!arguments.isEmpty()) {
             throw new IllegalArgumentException("Procedure readLine does not take any arguments.");
         }
+        return readLine();
+    }
+
+    /**
+     * Reads a single line of input from the terminal.
+     * @return Returns the line of input as a StringExpression
+     */
+    public static Expression readLine() {
         // Get a single line of input from standard in
         BufferedReader inputReader = new BufferedReader(new InputStreamReader(System.in));
         String input;
@@ -9,7 +9,8 @@ import java.util.List;
  * @author Heath Dyer
  * <p>
  * Built in list procedures for the interpreter. Each procedure must take List<Expressions>
- * as its parameter and return an Expression as its result.
+ * as its parameter and return an Expression as its result. Procedures with a fixed number
+ * of arguments also have a form taking the arguments directly.
  */
 public abstract class ListProcedures {
 
@@ -28,13 +29,24 @@ public abstract class ListProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure cons must have exactly 2 arguments.");
         }
+        return cons(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Adds element to front of list
+     *
+     * @param element Element to add
+     * @param list    List to add to
+     * @return Returns new list
+     */
+    public static Expression cons(Expression element, Expression list) {
         //check that second param is list
-        if (arguments.get(1).getType() != ExpressionType.LIST) {
+        if (list.getType() != ExpressionType.LIST) {
             throw new IllegalArgumentException("Procedure cons takes 1 expression and 1 list.");
         }
-        ListExpression list = new ListExpression(((ListExpression) arguments.get(1)).getExpressions());
-        list.getExpressions().add(0, arguments.get(0));
-        return list;
+        ListExpression result = new ListExpression(((ListExpression) list).getExpressions());
+        result.getExpressions().add(0, element);
+        return result;
     }
 
     /**
@@ -48,10 +60,20 @@ public abstract class ListProcedures {
         if (arguments.size() != 1) {
             throw new IllegalArgumentException("Procedure head must have exactly 1 argument.");
         }
-        if (arguments.get(0).getType() != ExpressionType.LIST) {
+        return head(arguments.get(0));
+    }
+
+    /**
+     * Returns head of list
+     *
+     * @param list List to get head of
+     * @return Returns expression at head of list
+     */
+    public static Expression head(Expression list) {
+        if (list.getType() != ExpressionType.LIST) {
             throw new IllegalArgumentException("Expected a list for head operation.");
         }
-        return ((ListExpression) arguments.get(0)).getExpressions().get(0);
+        return ((ListExpression) list).getExpressions().get(0);
     }
 
     /**
@@ -65,10 +87,20 @@ public abstract class ListProcedures {
         if (arguments.size() != 1) {
             throw new IllegalArgumentException("Procedure tail must have exactly 1 argument.");
         }
-        if (arguments.get(0).getType() != ExpressionType.LIST) {
+        return tail(arguments.get(0));
+    }
+
+    /**
+     * Returns tail of list (list with everything but first element)
+     *
+     * @param list List to get tail of
+     * @return Returns tail of list as list expression
+     */
+    public static Expression tail(Expression list) {
+        if (list.getType() != ExpressionType.LIST) {
             throw new IllegalArgumentException("Expected a list for tail operation.");
         }
-        List<Expression> elements = ((ListExpression) arguments.get(0)).getExpressions();
+        List<Expression> elements = ((ListExpression) list).getExpressions();
         if (elements.isEmpty()) {
             throw new IllegalArgumentException("Cannot get tail of an empty list.");
         }
@@ -86,10 +118,20 @@ public abstract class ListProcedures {
         if (arguments.size() != 1) {
             throw new IllegalArgumentException("Procedure isEmpty? must have exactly 1 argument.");
         }
-        if (arguments.get(0).getType() != ExpressionType.LIST) {
+        return isEmpty(arguments.get(0));
+    }
+
+    /**
+     * Checks for empty list
+     *
+     * @param list List to check
+     * @return Returns BooleanExpression with value true if the list is empty and value false if not
+     */
+    public static Expression isEmpty(Expression list) {
+        if (list.getType() != ExpressionType.LIST) {
             throw new IllegalArgumentException("Expected a list for isEmpty? operation.");
         }
-        return new BooleanExpression(((ListExpression) arguments.get(0)).getExpressions().isEmpty());
+        return BooleanExpression.valueOf(((ListExpression) list).getExpressions().isEmpty());
     }
 
     /**
@@ -152,12 +194,9 @@ public abstract class ListProcedures {
         if (arguments.get(0).getType() != ExpressionType.LIST && arguments.get(1).getType() != ExpressionType.LIST) {
             throw new IllegalArgumentException("Expected 2 arguments of type list for append.");
         }
-        List<Expression> add = ((ListExpression) arguments.get(0)).getExpressions();
+        //copy both lists so neither argument is changed
         ListExpression appendedList = new ListExpression(((ListExpression) arguments.get(1)).getExpressions());
-        Collections.reverse(add);
-        for (Expression e : add) {
-            appendedList.getExpressions().add(0, e);
-        }
+        appendedList.getExpressions().addAll(0, ((ListExpression) arguments.get(0)).getExpressions());
         return appendedList;
     }
 
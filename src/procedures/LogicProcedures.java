@@ -12,7 +12,8 @@ import java.util.List;
  * @author Heath Dyer
  * <p>
  * Built in IO procedures for the interpreter. Each procedure must take List<Expressions>
- * as its parameter and return an Expression as its result.
+ * as its parameter and return an Expression as its result. Procedures with a fixed number
+ * of arguments also have a form taking the arguments directly.
  */
 public abstract class LogicProcedures {
 
@@ -28,11 +29,22 @@ public abstract class LogicProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure equals? must have exactly 2 arguments.");
         }
+        return eq(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Checks equality of two expressions.
+     *
+     * @param first  First expression
+     * @param second Second expression
+     * @return Returns BooleanExpression with values true if equal or false if not
+     */
+    public static Expression eq(Expression first, Expression second) {
         //check if equal and return boolean operator
-        if (arguments.get(0).equals(arguments.get(1))) {
-            return new BooleanExpression(true);
+        if (first.equals(second)) {
+            return BooleanExpression.TRUE;
         }
-        return new BooleanExpression(false);
+        return BooleanExpression.FALSE;
     }
 
     /**
@@ -47,13 +59,21 @@ public abstract class LogicProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure lessThan? must have exactly 2 arguments.");
         }
+        return lessThan(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Checks if the first integer argument is less than the second integer argument
+     *
+     * @param first  First integer
+     * @param second Second integer
+     * @return Returns true or false BooleanExpression
+     * @throws IllegalArgumentException Throws if arguments not integers
+     */
+    public static Expression lessThan(Expression first, Expression second) {
         //check that both arguments are integers
-        for (Expression exp : arguments) {
-            if (!(exp.getType() == ExpressionType.INTEGER)) {
-                throw new IllegalArgumentException("Procedure lessThan? arguments must be of type integer.");
-            }
-        }
-        return ((IntegerExpression) arguments.get(0)).getValue() < ((IntegerExpression) arguments.get(1)).getValue() ? new BooleanExpression(true) : new BooleanExpression(false);
+        MathProcedures.checkIntegers(first, second, "Procedure lessThan? arguments must be of type integer.");
+        return ((IntegerExpression) first).getValue() < ((IntegerExpression) second).getValue() ? BooleanExpression.TRUE : BooleanExpression.FALSE;
     }
 
     /**
@@ -68,13 +88,21 @@ public abstract class LogicProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure greaterThan? must have exactly 2 arguments.");
         }
+        return greaterThan(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Checks if the first integer argument is greater than the second integer argument
+     *
+     * @param first  First integer
+     * @param second Second integer
+     * @return Returns true or false BooleanExpression
+     * @throws IllegalArgumentException Throws if arguments not integers
+     */
+    public static Expression greaterThan(Expression first, Expression second) {
         //check that both arguments are integers
-        for (Expression exp : arguments) {
-            if (!(exp.getType() == ExpressionType.INTEGER)) {
-                throw new IllegalArgumentException("Procedure greaterThan? arguments must be of type integer.");
-            }
-        }
-        return ((IntegerExpression) arguments.get(0)).getValue() > ((IntegerExpression) arguments.get(1)).getValue() ? new BooleanExpression(true) : new BooleanExpression(false);
+        MathProcedures.checkIntegers(first, second, "Procedure greaterThan? arguments must be of type integer.");
+        return ((IntegerExpression) first).getValue() > ((IntegerExpression) second).getValue() ? BooleanExpression.TRUE : BooleanExpression.FALSE;
     }
 
     /**
@@ -89,12 +117,23 @@ public abstract class LogicProcedures {
         if (arguments.size() != 1) {
             throw new IllegalArgumentException("Procedure zero? must have exactly 1 argument.");
         }
+        return isZero(arguments.get(0));
+    }
+
+    /**
+     * Checks if an expression is equal to zero. Returns true if zero, otherwise false
+     *
+     * @param argument Integer to check
+     * @return Returns BooleanExpression with values true if zero and false if not
+     * @throws IllegalArgumentException Throws if argument is not an integer
+     */
+    public static Expression isZero(Expression argument) {
         //check if argumnet is integer type
-        if (arguments.get(0).getType() != ExpressionType.INTEGER) {
+        if (argument.getType() != ExpressionType.INTEGER) {
             throw new IllegalArgumentException("Procedure zero? argument must evalaute as integer type.");
         }
-        IntegerExpression integer = (IntegerExpression) arguments.get(0);
-        return new BooleanExpression(integer.getValue() == 0);
+        IntegerExpression integer = (IntegerExpression) argument;
+        return BooleanExpression.valueOf(integer.getValue() == 0);
     }
 
     /**
@@ -116,10 +155,10 @@ public abstract class LogicProcedures {
             }
             //check if true
             if (((BooleanExpression) argument).getValue()) {
-                return new BooleanExpression(true);
+                return BooleanExpression.TRUE;
             }
         }
-        return new BooleanExpression(false);
+        return BooleanExpression.FALSE;
     }
 
     /**
@@ -141,10 +180,10 @@ public abstract class LogicProcedures {
             }
             //check if true
             if (!((BooleanExpression) argument).getValue()) {
-                return new BooleanExpression(false);
+                return BooleanExpression.FALSE;
             }
         }
-        return new BooleanExpression(true);
+        return BooleanExpression.TRUE;
     }
 
     /**
@@ -159,15 +198,26 @@ public abstract class LogicProcedures {
         if (arguments.size() != 1) {
             throw new IllegalArgumentException("Procedure not? must have exactly 1 argument.");
         }
+        return not(arguments.get(0));
+    }
+
+    /**
+     * Negates a boolean expression
+     *
+     * @param argument Boolean to negate
+     * @return Returns BooleanExpression with value true if argument is false or false if not
+     * @throws IllegalArgumentException Throws if argument is not a boolean
+     */
+    public static Expression not(Expression argument) {
         //check if argumnet is integer type
-        if (arguments.get(0).getType() != ExpressionType.BOOLEAN) {
+        if (argument.getType() != ExpressionType.BOOLEAN) {
             throw new IllegalArgumentException("Procedure not? argument must evalaute as boolean type.");
         }
         //check if true
-        if (((BooleanExpression) arguments.get(0)).getValue()) {
-            return new BooleanExpression(false);
+        if (((BooleanExpression) argument).getValue()) {
+            return BooleanExpression.FALSE;
         }
-        return new BooleanExpression(true);
+        return BooleanExpression.TRUE;
     }
 
 }
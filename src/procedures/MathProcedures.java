@@ -12,7 +12,8 @@ import java.util.List;
 /**
  * @author Heath Dyer
  * Built in math procedures for the interpreter. Each procedure must take List<Expressions>
- * as its parameter and return an Expression as its result.
+ * as its parameter and return an Expression as its result. Each procedure also has a form
+ * taking its two arguments directly, used when a call has exactly two arguments.
  */
 public abstract class MathProcedures {
 
@@ -27,20 +28,27 @@ public abstract class MathProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure add must have exactly 2 arguments.");
         }
+        return add(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Adds two Integer expressions together
+     * @param first First integer
+     * @param second Second integer
+     * @return Returns resulting added result as expression
+     * @throws IllegalArgumentException Add arguments must be of expression type integer
+     */
+    public static Expression add(Expression first, Expression second) {
         // Check that all arguments are IntegerExpressions
-        long val = 0;
-        for (Expression exp : arguments) {
-            if (!(exp.getType() == ExpressionType.INTEGER)) {
-                throw new IllegalArgumentException("Procedure add arguments must be of type integer.");
-            }
-            try {
-                val = Math.addExact(val, ((IntegerExpression) exp).getValue());
-            } catch (ArithmeticException e) {
-                throw new ArithmeticException("Detected integer overflow in function add.");
-            }
+        checkIntegers(first, second, "Procedure add arguments must be of type integer.");
+        long val;
+        try {
+            val = Math.addExact(((IntegerExpression) first).getValue(), ((IntegerExpression) second).getValue());
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Detected integer overflow in function add.");
         }
         // Return integer expression with value
-        return new IntegerExpression(val);
+        return IntegerExpression.valueOf(val);
     }
 
     /**
@@ -54,20 +62,27 @@ public abstract class MathProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure sub must have exactly 2 arguments.");
         }
+        return sub(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Subtracts second integer expression from the first integer expression
+     * @param first Integer to subtract from
+     * @param second Integer to subtract
+     * @return Returns resulting subtracted result as expression
+     * @throws IllegalArgumentException Sub arguments must be of expression type integer
+     */
+    public static Expression sub(Expression first, Expression second) {
         // Check that all arguments are IntegerExpressions
-        for (Expression exp : arguments) {
-            if (!(exp.getType() == ExpressionType.INTEGER)) {
-                throw new IllegalArgumentException("Procedure sub arguments must be of type integer.");
-            }
-        }
+        checkIntegers(first, second, "Procedure sub arguments must be of type integer.");
         long val;
         try {
-            val = Math.subtractExact(((IntegerExpression) arguments.get(0)).getValue(), ((IntegerExpression) arguments.get(1)).getValue());
+            val = Math.subtractExact(((IntegerExpression) first).getValue(), ((IntegerExpression) second).getValue());
         } catch (ArithmeticException e) {
             throw new ArithmeticException("Detected integer overflow in procedure sub.");
         }
         // Return integer expression with value
-        return new IntegerExpression(val);
+        return IntegerExpression.valueOf(val);
     }
 
     /**
@@ -81,20 +96,27 @@ public abstract class MathProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure mul must have exactly 2 arguments.");
         }
+        return mul(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Multiplies together two integers
+     * @param first First integer
+     * @param second Second integer
+     * @return Returns resulting multiplied result as expression
+     * @throws IllegalArgumentException Mul arguments must be of expression type integer
+     */
+    public static Expression mul(Expression first, Expression second) {
         // Check that all arguments are IntegerExpressions
-        for (Expression exp : arguments) {
-            if (!(exp.getType() == ExpressionType.INTEGER)) {
-                throw new IllegalArgumentException("Procedure mul arguments must be of type Integer.");
-            }
-        }
+        checkIntegers(first, second, "Procedure mul arguments must be of type Integer.");
         long val;
         try {
-            val = Math.multiplyExact(((IntegerExpression) arguments.get(0)).getValue(), ((IntegerExpression) arguments.get(1)).getValue());
+            val = Math.multiplyExact(((IntegerExpression) first).getValue(), ((IntegerExpression) second).getValue());
         } catch (ArithmeticException e) {
             throw new ArithmeticException("Detected integer overflow in procedure mul.");
         }
         // Return integer expression with value
-        return new IntegerExpression(val);
+        return IntegerExpression.valueOf(val);
     }
 
     /**
@@ -108,14 +130,21 @@ public abstract class MathProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure div must have exactly 2 arguments.");
         }
+        return div(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Divides second integer arg from the first integer arg
+     * @param first Integer to divide
+     * @param second Integer to divide by
+     * @return Returns resultant integer expression
+     * @throws IllegalArgumentException if the arguments are not integers
+     */
+    public static Expression div(Expression first, Expression second) {
         // Check that all arguments are IntegerExpressions
-        for (Expression exp : arguments) {
-            if (!(exp.getType() == ExpressionType.INTEGER)) {
-                throw new IllegalArgumentException("Procedure div arguments must be of type Integer.");
-            }
-        }
+        checkIntegers(first, second, "Procedure div arguments must be of type Integer.");
         //divide and return
-        return new IntegerExpression(((IntegerExpression) arguments.get(0)).getValue() / ((IntegerExpression) arguments.get(1)).getValue());
+        return IntegerExpression.valueOf(((IntegerExpression) first).getValue() / ((IntegerExpression) second).getValue());
     }
 
     /**
@@ -129,14 +158,34 @@ public abstract class MathProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure mod must have exactly 2 arguments.");
         }
+        return mod(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Performs modulo (remainder of devision of second arg from first)
+     * @param first Integer to divide
+     * @param second Integer to divide by
+     * @return Returns resultant integer expression
+     * @throws IllegalArgumentException if the arguments are not integers
+     */
+    public static Expression mod(Expression first, Expression second) {
         // Check that all arguments are IntegerExpressions
-        for (Expression exp : arguments) {
-            if (!(exp.getType() == ExpressionType.INTEGER)) {
-                throw new IllegalArgumentException("Procedure mod arguments must be of type Integer.");
-            }
-        }
+        checkIntegers(first, second, "Procedure mod arguments must be of type Integer.");
         //modulo and return
-        return new IntegerExpression(((IntegerExpression) arguments.get(0)).getValue() % ((IntegerExpression) arguments.get(1)).getValue());
+        return IntegerExpression.valueOf(((IntegerExpression) first).getValue() % ((IntegerExpression) second).getValue());
+    }
+
+    /**
+     * Checks both arguments of a procedure are integers
+     * @param first First argument
+     * @param second Second argument
+     * @param message Message of the exception
+     * @throws IllegalArgumentException if either argument is not an integer
+     */
+    static void checkIntegers(Expression first, Expression second, String message) {
+        if (first.getType() != ExpressionType.INTEGER || second.getType() != ExpressionType.INTEGER) {
+            throw new IllegalArgumentException(message);
+        }
     }
 
 
@@ -8,7 +8,8 @@ import java.util.List;
  * @author Heath Dyer
  * <p>
  * Built in string procedures for the interpreter. Each procedure must take List<Expressions>
- * as its parameter and return an Expression as its result.
+ * as its parameter and return an Expression as its result. Procedures with a fixed number
+ * of arguments also have a form taking the arguments directly.
  */
 public abstract class StringProcedures {
 
@@ -46,15 +47,26 @@ public abstract class StringProcedures {
         if (arguments.size() != 2) {
             throw new IllegalArgumentException("Procedure charAt requires two arguments.");
         }
+        return charAt(arguments.get(0), arguments.get(1));
+    }
+
+    /**
+     * Returns 1 character string of character in string at specified index.
+     *
+     * @param string String to get character of
+     * @param index  Integer index of the character
+     * @return Returns resultant 1 char string expression
+     */
+    public static Expression charAt(Expression string, Expression index) {
         //check for correct types
-        if (arguments.get(0).getType() != ExpressionType.STRING || arguments.get(1).getType() != ExpressionType.INTEGER) {
+        if (string.getType() != ExpressionType.STRING || index.getType() != ExpressionType.INTEGER) {
             throw new IllegalArgumentException("Procedure charAt takes 1 string argument and 1 integer argument.");
         }
         //check for out of bounds
         try {
-            return new StringExpression(Character.toString(((StringExpression) arguments.get(0)).getValue().charAt((int) ((IntegerExpression) arguments.get(1)).getValue())));
+            return new StringExpression(Character.toString(((StringExpression) string).getValue().charAt((int) ((IntegerExpression) index).getValue())));
         } catch (IndexOutOfBoundsException e) {
-            throw new IllegalArgumentException("Index " + ((IntegerExpression) arguments.get(1)).getValue() + " out of bounds for string " + ((StringExpression) arguments.get(0)).getValue() + ".");
+            throw new IllegalArgumentException("Index " + ((IntegerExpression) index).getValue() + " out of bounds for string " + ((StringExpression) string).getValue() + ".");
         }
     }
 
@@ -94,11 +106,21 @@ public abstract class StringProcedures {
         if (arguments.size() != 1) {
             throw new IllegalArgumentException("Procedure length requires two arguments.");
         }
+        return length(arguments.get(0));
+    }
+
+    /**
+     * Returns length of string expression
+     *
+     * @param string string expression
+     * @return Integer expression of length of string expression
+     */
+    public static Expression length(Expression string) {
         //check for correct types
-        if (arguments.get(0).getType() != ExpressionType.STRING) {
+        if (string.getType() != ExpressionType.STRING) {
             throw new IllegalArgumentException("Procedure length takes 1 string argument.");
         }
-        return new IntegerExpression(((StringExpression) arguments.get(0)).getValue().length());
+        return IntegerExpression.valueOf(((StringExpression) string).getValue().length());
     }
 
     /**
@@ -121,7 +143,7 @@ public abstract class StringProcedures {
         if (val.length() != 1) {
             throw new IllegalArgumentException("String " + val + " is not 1 character.");
         }
-        return new BooleanExpression(Character.isDigit(val.charAt(0)));
+        return BooleanExpression.valueOf(Character.isDigit(val.charAt(0)));
 
     }
 
@@ -145,7 +167,7 @@ public abstract class StringProcedures {
         if (val.length() != 1) {
             throw new IllegalArgumentException("String " + val + " is not 1 character.");
         }
-        return new BooleanExpression(Character.isLetter(val.charAt(0)));
+        return BooleanExpression.valueOf(Character.isLetter(val.charAt(0)));
     }
 
     /**
@@ -165,11 +187,11 @@ public abstract class StringProcedures {
         }
         //parse to integer
         try {
-            return new IntegerExpression(Integer.parseInt(((StringExpression) arguments.get(0)).getValue()));
+            return IntegerExpression.valueOf(Integer.parseInt(((StringExpression) arguments.get(0)).getValue()));
         }
         // false if can't be parsed
         catch (NumberFormatException e) {
-            return new BooleanExpression(false);
+            return BooleanExpression.FALSE;
         }
     }
 }
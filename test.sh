@@ -113,6 +113,22 @@ ok_file './test-files/cp6ex3.417' 5040
 ok_file './test-files/cp6ex4.417' "x is 333\ny is 333\nz is 333\n" '-np'
 # ok_file './test-files/cp6ex4.417'
 
+# Closure engine tests
+ok_file './test-files/cp3ex4.417' 3628800 '--engine=closure'
+ok_file './test-files/cp5ex2.417' 105 '-d' '--engine=closure'
+ok_file './test-files/cp6ex3.417' 5040 '--engine=closure'
+ok_file './test-files/cp6ex4.417' "x is 333\ny is 333\nz is 333\n" '-np' '--engine=closure'
+
+# Bytecode VM tests
+ok_file './test-files/cp3ex4.417' 3628800 '--engine=vm'
+ok_file './test-files/cp5ex2.417' 105 '-d' '--engine=vm'
+ok_file './test-files/cp6ex3.417' 5040 '--engine=vm'
+ok_file './test-files/cp6ex4.417' "x is 333\ny is 333\nz is 333\n" '-np' '--engine=vm'
+
+# Optimizer tests
+ok_file './test-files/cp3ex4.417' 3628800 '--no-optimize'
+ok_file './test-files/cp6ex3.417' 5040 '--no-optimize' '--engine=vm'
+
 echo "All tests passed!"
 
 $SHELL
@@ -1,15 +1,13 @@
 package interpreter;
 
-import expressions.Expression;
-import expressions.ExpressionType;
-import expressions.IntegerExpression;
-import expressions.StringExpression;
+import expressions.*;
 import lexer.Lexer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import parser.Parser;
 
 import java.io.IOException;
+import java.util.List;
 
 import static main.Util.getInputFromFile;
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,6 +17,12 @@ public class InterpreterTest {
     private static Lexer lexer;
     private static Parser parser;
     private static Interpreter interpreter;
+    /**
+     * Test files every engine is compared on
+     */
+    private static final String[] ALL_FILES = {"cp3ex1", "cp3ex2", "cp3ex3", "cp3ex4", "cp3ex5", "cp3-factorial",
+            "cp4ex1", "cp4ex2", "cp4ex3", "cp4ex4", "cp5ex1", "cp5ex2", "cp5ex4", "cp6ex1", "cp6ex2", "cp6ex3",
+            "cp6ex4", "def"};
 
     @BeforeEach
     public void init() {
@@ -31,6 +35,44 @@ public class InterpreterTest {
         return interpreter.evaluate(desugar(parser.parse(lexer.lex(input))), interpreter.getInitialEnv());
     }
 
+    /**
+     * Tests an engine gives the same results as the tree walker without the JIT tier on test
+     * files, with lexical and dynamic scope
+     *
+     * @param engine Engine to compare with the tree walker
+     * @param jit    True to compile every lambda with the JIT tier on its first call, false to
+     *               leave the JIT tier at its defaults
+     * @param files  Names of the test files
+     */
+    private static void assertSameAsTree(Engine engine, boolean jit, String... files) {
+        for (String file : files) {
+            String input = null;
+            try {
+                input = getInputFromFile("./test-files/" + file + ".417");
+            } catch (IOException e) {
+                fail("Failed to load test file " + file);
+            }
+            for (boolean lexical : new boolean[]{true, false}) {
+                Interpreter tree = new Interpreter(false, lexical);
+                tree.setJitEnabled(false);
+                Interpreter other = new Interpreter(false, lexical);
+                other.setEngine(engine);
+                if (jit) {
+                    other.setJitThreshold(0);
+                    //keep lambda calls the optimizer would inline for the JIT tier to compile
+                    other.setOptimizerEnabled(false);
+                }
+                Expression expected = tree.run(desugar(parser.parse(lexer.lex(input))));
+                Expression actual = other.run(desugar(parser.parse(lexer.lex(input))));
+                assertEquals(expected.toString(), actual.toString(), file);
+                assertEquals(0, tree.getJitCompiledCount());
+                if (jit) {
+                    assertTrue(other.getJitCompiledCount() > 0, file);
+                }
+            }
+        }
+    }
+
     @Test
     public void testCP2() {
         Expression exp = interpret("123");
@@ -222,4 +264,586 @@ public class InterpreterTest {
         assertEquals("x is 333\ny is 333\nz is 333\n", ((StringExpression) exp).getValue());
     }
 
+    @Test
+    public void testClosureEngine() {
+        assertSameAsTree(Engine.CLOSURE, false, ALL_FILES);
+
+        interpreter.setEngine(Engine.CLOSURE);
+        Expression exp = interpreter.run(desugar(parser.parse(lexer.lex("{ let f = lambda(n) { mul(n, 2) }; f(21) }"))));
+        assertEquals(42, ((IntegerExpression) exp).getValue());
+
+        assertThrows(Exception.class, () -> {
+            interpreter.run(desugar(parser.parse(lexer.lex("add(add, 1)"))));
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            Engine.fromName("bogus");
+        });
+    }
+
+    /**
+     * Tests JIT tier gives same results as interpreting lambdas
+     */
+    @Test
+    public void testJit() {
+        assertSameAsTree(Engine.TREE, true, "cp3ex4", "cp3ex5", "cp3-factorial", "cp5ex2", "cp6ex1", "cp6ex3", "def");
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            interpreter.setJitThreshold(-1);
+        });
+    }
+
+    /**
+     * Tests call site inline caches count hits, go megamorphic, and see assignments
+     */
+    @Test
+    public void testInlineCache() {
+        String input = """
+                {
+                  let f = lambda(n) { add(n, 1) };
+                  let a = f(1);
+                  add = sub;
+                  let g = lambda(h) { h(10, 3) };
+                  g(add); g(mul); g(div); g(mod); g(lambda(p, q) { p });
+                  cons(a, cons(f(1), cons(g(mul), cons())))
+                }
+                """;
+        for (Engine engine : Engine.values()) {
+            Interpreter cached = new Interpreter();
+            cached.setEngine(engine);
+            Expression exp = cached.run(desugar(parser.parse(lexer.lex(input))));
+            assertEquals("{\"List\":[2,0,30]}", exp.toString(), engine.toString());
+            int megamorphic = 0;
+            long hits = 0;
+            for (CallSite site : cached.getCallSites()) {
+                hits += site.getHits();
+                if (site.isMegamorphic()) {
+                    megamorphic++;
+                    assertEquals(CallSite.MAX_CALLEES, site.getSize());
+                }
+            }
+            assertEquals(1, megamorphic, engine.toString());
+            assertTrue(hits > 0, engine.toString());
+        }
+    }
+
+    /**
+     * Tests bytecode virtual machine gives same results as the tree walker
+     */
+    @Test
+    public void testVirtualMachine() {
+        assertSameAsTree(Engine.VM, false, ALL_FILES);
+
+        //calls do not use the java stack
+        interpreter.setEngine(Engine.VM);
+        Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(
+                "{ let f = lambda(n) { cond (zero?(n) => 0) (true => f(sub(n, 1))) }; f(100000) }"))));
+        assertEquals(0, ((IntegerExpression) exp).getValue());
+
+        assertThrows(Exception.class, () -> {
+            interpreter.run(desugar(parser.parse(lexer.lex("add(add, 1)"))));
+        });
+
+        String bytecode = interpreter.disassemble(desugar(parser.parse(lexer.lex("{ let f = lambda(n) { add(n, 1) }; f(1) }"))));
+        assertTrue(bytecode.contains("== lambda#1(n) =="), bytecode);
+        assertTrue(bytecode.contains("CALL"), bytecode);
+        assertTrue(bytecode.contains("RETURN"), bytecode);
+    }
+
+    /**
+     * Tests tail calls run in constant Java stack, interpreted and compiled
+     */
+    @Test
+    public void testTailCalls() {
+        String input = "{ let loop = lambda(i, acc) { cond (zero?(i) => acc) (true => loop(sub(i, 1), add(acc, 2))) }; loop(200000, 0) }";
+        for (int threshold : new int[]{-1, 0, 500}) {
+            Interpreter tail = new Interpreter();
+            if (threshold < 0) {
+                tail.setJitEnabled(false);
+            } else {
+                tail.setJitThreshold(threshold);
+            }
+            Expression exp = tail.run(desugar(parser.parse(lexer.lex(input))));
+            assertEquals(400000, ((IntegerExpression) exp).getValue());
+        }
+
+        //let bodies and block ends are tail positions too
+        Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(
+                "{ let count = lambda(n) { let m = sub(n, 1); cond (zero?(m) => \"done\") (true => { count(m) }) }; count(100000) }"))));
+        assertEquals("done", ((StringExpression) exp).getValue());
+    }
+
+    /**
+     * Tests recursion depth of the vm engine is limited by the stack budget
+     */
+    @Test
+    public void testStackBudget() {
+        String input = "{ let f = lambda(n) { cond (zero?(n) => 0) (true => add(1, f(sub(n, 1)))) }; f(50000) }";
+        interpreter.setEngine(Engine.VM);
+        Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(input))));
+        assertEquals(50000, ((IntegerExpression) exp).getValue());
+
+        interpreter.setStackBudget(64 * 1024);
+        Exception e = assertThrows(RuntimeException.class, () -> {
+            interpreter.run(desugar(parser.parse(lexer.lex(input))));
+        });
+        assertTrue(e.getMessage().startsWith("Evaluation stack exceeded its budget"), e.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            interpreter.setStackBudget(0);
+        });
+    }
+
+    /**
+     * Tests identifiers resolved to lexical addresses read the right bindings in every engine
+     */
+    @Test
+    public void testLexicalAddressing() {
+        String input = "{ let f = lambda(n) { cond (zero?(n) => 0) (true => add(f(sub(n, 1)), n)) };"
+                + " let h = lambda(x) { let y = mul(x, 2); def z = add(y, 1); z = add(z, x); z };"
+                + " add(f(10), h(3)) }";
+        for (Engine engine : Engine.values()) {
+            Interpreter lexical = new Interpreter();
+            lexical.setEngine(engine);
+            Expression exp = lexical.run(desugar(parser.parse(lexer.lex(input))));
+            assertEquals(65, ((IntegerExpression) exp).getValue(), engine.toString());
+        }
+
+        //parameters are in the frame of the call, identifiers free in a lambda are searched for by name,
+        //and blocks without defs have no frame of their own
+        BlockExpression program = (BlockExpression) desugar(parser.parse(lexer.lex("{ let a = 1; lambda(b) { add(a, b) } }")));
+        Resolver.resolve(program);
+        LetExpression let = (LetExpression) program.getBlock().get(0);
+        LambdaExpression lambda = (LambdaExpression) let.getBlock().getBlock().get(0);
+        List<Expression> arguments = ((ApplicationExpression) lambda.getBlock().getBlock().get(0)).getArguments();
+        IdentifierExpression a = (IdentifierExpression) arguments.get(1);
+        IdentifierExpression b = (IdentifierExpression) arguments.get(2);
+        assertEquals(1, a.getDepth());
+        assertEquals(-1, a.getSlot());
+        assertEquals(0, b.getDepth());
+        assertEquals(0, b.getSlot());
+        assertFalse(lambda.getBlock().needsFrame());
+    }
+
+    /**
+     * Tests defs in a block can call each other while blocks without defs share the frame around them
+     */
+    @Test
+    public void testBlockFrames() {
+        String input = "{ def even = lambda(n) { cond (zero?(n) => true) (true => odd(sub(n, 1))) };"
+                + " def odd = lambda(n) { cond (zero?(n) => false) (true => even(sub(n, 1))) };"
+                + " { let a = 4; { even(a) } } }";
+        BlockExpression program = (BlockExpression) desugar(parser.parse(lexer.lex(input)));
+        assertEquals(2, program.getDefinitions().size());
+        assertTrue(program.needsFrame());
+        for (Engine engine : Engine.values()) {
+            for (boolean lexicalScope : new boolean[] {true, false}) {
+                Interpreter scoped = new Interpreter(false, lexicalScope);
+                scoped.setEngine(engine);
+                Expression exp = scoped.run(desugar(parser.parse(lexer.lex(input))));
+                assertTrue(((BooleanExpression) exp).getValue(), engine.toString());
+            }
+        }
+    }
+
+    /**
+     * Tests a chain of lets shares one frame unless a closure made before a let could see its binding
+     */
+    @Test
+    public void testLetChains() {
+        String input = "{ let a = 1; let b = add(a, 1); let f = lambda() { c }; let c = 10; { let g = lambda() { d };"
+                + " let d = 100; add(add(a, b), add(f(), g())) } }";
+        LetExpression chain = (LetExpression) ((BlockExpression) LetFlattener.flatten(
+                desugar(parser.parse(lexer.lex(input))))).getBlock().get(0);
+        assertEquals(List.of("a", "b", "f"), chain.getFrame().stream().map(IdentifierExpression::getName).toList());
+        for (Engine engine : Engine.values()) {
+            for (boolean lexicalScope : new boolean[] {true, false}) {
+                Interpreter scoped = new Interpreter(false, lexicalScope);
+                scoped.setEngine(engine);
+                Expression program = desugar(parser.parse(lexer.lex(input)));
+                //closures still only see the lets bound before they were made
+                if (lexicalScope) {
+                    assertThrows(RuntimeException.class, () -> scoped.run(program), engine.toString());
+                } else {
+                    assertEquals(113, ((IntegerExpression) scoped.run(program)).getValue(), engine.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests every binding of a lambda makes its own closure and leaves the parsed program unchanged
+     */
+    @Test
+    public void testClosures() {
+        String input = "{ let make = lambda(k) { let g = lambda(y) { add(y, k) }; g };"
+                + " let one = make(1); let two = make(2); add(one(10), two(10)) }";
+        Expression program = desugar(parser.parse(lexer.lex(input)));
+        String parsed = describe(program);
+        for (Engine engine : Engine.values()) {
+            //run the same program twice
+            for (int i = 0; i < 2; i++) {
+                interpreter.setEngine(engine);
+                Expression exp = interpreter.run(program);
+                assertEquals(23, ((IntegerExpression) exp).getValue(), engine.toString());
+                assertEquals(parsed, describe(program), engine.toString());
+            }
+        }
+        LambdaExpression make = (LambdaExpression) ((LetExpression) ((BlockExpression) program).getBlock().get(0)).getExpression();
+        assertNull(make.getEnvironment());
+        assertSame(make, make.getCode());
+
+        //what each run resolves, flattens, and optimizes depends on its scoping and engine
+        program = desugar(parser.parse(lexer.lex("{ let amt = 1; let incr = lambda(n) { add(amt, n) }; let amt = 100; incr(5) }")));
+        parsed = describe(program);
+        for (Engine engine : Engine.values()) {
+            for (boolean lexical : new boolean[]{true, false, true}) {
+                Interpreter scoped = new Interpreter(false, lexical);
+                scoped.setEngine(engine);
+                Expression exp = scoped.run(program);
+                assertEquals(lexical ? 6 : 105, ((IntegerExpression) exp).getValue(), engine.toString());
+                assertEquals(parsed, describe(program), engine.toString());
+            }
+        }
+    }
+
+    /**
+     * Tests the optimizer leaves a parsed program unchanged, so what it folds for one
+     * scoping mode is not seen by a run in the other
+     */
+    @Test
+    public void testOptimizerCopiesProgram() {
+        String input = null;
+        try {
+            input = getInputFromFile("./test-files/cp5ex2.417");
+        } catch (IOException e) {
+            fail("Failed to load test file cp5ex2");
+        }
+        for (boolean lexicalFirst : new boolean[]{true, false}) {
+            Expression program = desugar(parser.parse(lexer.lex(input)));
+            String parsed = program.toString();
+            for (boolean lexical : new boolean[]{lexicalFirst, !lexicalFirst}) {
+                Expression exp = new Interpreter(false, lexical).run(program);
+                assertEquals(lexical ? 6 : 105, ((IntegerExpression) exp).getValue());
+            }
+            Optimizer optimizer = new Optimizer(false);
+            assertNotSame(program, optimizer.optimize(program));
+            assertTrue(optimizer.getFolded() + optimizer.getPropagated() > 0);
+            assertEquals(parsed, program.toString());
+            //calls are inlined into the copy, not spliced into the program
+            Expression calls = desugar(parser.parse(lexer.lex("{ let f = lambda(n) { add(n, 1) }; f(f(1)) }")));
+            String called = calls.toString();
+            optimizer = new Optimizer(true);
+            assertNotEquals(called, optimizer.optimize(calls).toString());
+            assertEquals(2, optimizer.getInlined());
+            assertEquals(called, calls.toString());
+        }
+    }
+
+    /**
+     * Describes a program along with what preparing a run could write into it: the address
+     * of every identifier and the frame of every let
+     *
+     * @param program Program to describe
+     * @return Returns description
+     */
+    private static String describe(Expression program) {
+        StringBuilder out = new StringBuilder(program.toString());
+        describe(program, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the addresses and frames in an expression to a description
+     *
+     * @param exp Expression to describe
+     * @param out Description to append to
+     */
+    private static void describe(Expression exp, StringBuilder out) {
+        switch (exp.getType()) {
+            case IDENTIFIER -> {
+                IdentifierExpression id = (IdentifierExpression) exp;
+                out.append(' ').append(id.getName()).append('@').append(id.getDepth()).append(':').append(id.getSlot());
+            }
+            case LET -> {
+                LetExpression let = (LetExpression) exp;
+                out.append(" let").append(let.getFrame()).append(':').append(let.getSlot());
+                describe(let.getIdentifier(), out);
+                describe(let.getExpression(), out);
+                describe(let.getBlock(), out);
+            }
+            case LAMBDA -> {
+                LambdaExpression lambda = (LambdaExpression) exp;
+                lambda.getParameters().getParameters().forEach(parameter -> describe(parameter, out));
+                describe(lambda.getBlock(), out);
+            }
+            case BLOCK -> ((BlockExpression) exp).getBlock().forEach(e -> describe(e, out));
+            case APPLICATION -> ((ApplicationExpression) exp).getArguments().forEach(e -> describe(e, out));
+            case COND -> ((ConditionalExpression) exp).getClauses().forEach(clause -> {
+                describe(clause.getTest(), out);
+                describe(clause.getConsequent(), out);
+            });
+            case DEFINITION -> {
+                describe(((DefinitionExpression) exp).getIdentifier(), out);
+                describe(((DefinitionExpression) exp).getExpression(), out);
+            }
+            case ASSIGNMENT -> {
+                describe(((AssignmentExpression) exp).getIdentifier(), out);
+                describe(((AssignmentExpression) exp).getExpression(), out);
+            }
+            case WHILE -> {
+                describe(((WhileExpression) exp).getTest(), out);
+                describe(((WhileExpression) exp).getBlock(), out);
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Tests procedures taking a fixed number of arguments give the same result with and without a list
+     */
+    @Test
+    public void testFixedArityProcedures() {
+        ProcedureExpression add = (ProcedureExpression) Prelude.get(new IdentifierExpression("add"));
+        assertEquals(2, add.getArity());
+        assertEquals(5, ((IntegerExpression) add.apply(new IntegerExpression(2), new IntegerExpression(3))).getValue());
+        assertEquals(5, ((IntegerExpression) add.apply(List.of(new IntegerExpression(2), new IntegerExpression(3)))).getValue());
+        //wrong number of arguments falls back to the list form and its error
+        Exception e = assertThrows(IllegalArgumentException.class, () -> add.apply(new IntegerExpression(2)));
+        assertEquals("Procedure add must have exactly 2 arguments.", e.getMessage());
+        assertEquals(-1, ((ProcedureExpression) Prelude.get(new IdentifierExpression("concat"))).getArity());
+        for (Engine engine : Engine.values()) {
+            interpreter.setEngine(engine);
+            Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(
+                    "{ let f = lambda(n, a) { cond (lessThan?(n, 1) => a) (true => f(sub(n, 1), add(a, n))) }; f(100, 0) }"))));
+            assertEquals(5050, ((IntegerExpression) exp).getValue(), engine.toString());
+        }
+    }
+
+    /**
+     * Tests small integers and booleans are shared and cannot be changed, while other values still compare by value
+     */
+    @Test
+    public void testCachedValues() {
+        assertSame(IntegerExpression.valueOf(7), IntegerExpression.valueOf(7));
+        assertNotSame(IntegerExpression.valueOf(100000), IntegerExpression.valueOf(100000));
+        assertEquals(IntegerExpression.valueOf(100000), IntegerExpression.valueOf(100000));
+        assertSame(BooleanExpression.TRUE, BooleanExpression.valueOf(true));
+        assertThrows(IllegalStateException.class, () -> IntegerExpression.valueOf(7).setValue(8));
+        assertThrows(IllegalStateException.class, () -> BooleanExpression.FALSE.setValue(true));
+        IntegerExpression integer = new IntegerExpression(7);
+        integer.setValue(8);
+        assertEquals(8, integer.getValue());
+        Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(
+                "{ let a = mul(1000, 1000); and?(equals?(add(3, 4), 7), equals?(a, mul(1000, 1000))) }"))));
+        assertSame(BooleanExpression.TRUE, exp);
+        //default bindings are the shared values, also once the optimizer propagates them
+        for (Engine engine : Engine.values()) {
+            interpreter.setEngine(engine);
+            assertSame(BooleanExpression.TRUE, interpreter.run(desugar(parser.parse(lexer.lex("true")))), engine.toString());
+            assertSame(BooleanExpression.FALSE, interpreter.run(desugar(parser.parse(lexer.lex("{ let t = false; t }")))),
+                    engine.toString());
+            assertSame(IntegerExpression.valueOf(10), interpreter.run(desugar(parser.parse(lexer.lex("x")))), engine.toString());
+        }
+    }
+
+    /**
+     * Tests call sites specialize to integer operations and deoptimize when a call breaks the speculation
+     */
+    @Test
+    public void testSpeculation() {
+        String input = "{ let g = lambda(op, n) { op(n, 1) };"
+                + " let loop = lambda(k, acc) { cond (zero?(k) => acc) (true => loop(sub(k, 1), add(acc, g(add, k)))) };"
+                + " sub(loop(20, 0), g(sub, 5)) }";
+        String overflow = "{ let f = lambda(a) { mul(a, a) };"
+                + " let loop = lambda(k) { cond (zero?(k) => f(10000000000)) (true => { f(k); loop(sub(k, 1)) }) }; loop(20) }";
+        for (Engine engine : Engine.values()) {
+            interpreter.setEngine(engine);
+            Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(input))));
+            assertEquals(226, ((IntegerExpression) exp).getValue(), engine.toString());
+            assertTrue(interpreter.getSpecializedCount() >= 2, engine.toString());
+            //g's site speculated on add before it was called with sub
+            assertEquals(1, interpreter.getDeoptimizedCount(), engine.toString());
+            //overflow is still reported once the site is specialized
+            Exception e = assertThrows(ArithmeticException.class, () -> interpreter.run(desugar(parser.parse(lexer.lex(overflow)))));
+            assertEquals("Detected integer overflow in procedure mul.", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests memoized lambdas cache calls by argument value and evict the least recently used call
+     */
+    @Test
+    public void testMemo() {
+        String fib = "{ def fib = memo(lambda(n) { cond (lessThan?(n, 2) => n) (true => add(fib(sub(n, 1)), fib(sub(n, 2)))) });"
+                + " fib(60) }";
+        String lru = "{ def len = memo(lambda(l) { cond (isEmpty?(l) => 0) (true => add(1, len(tail(l)))) }, 2);"
+                + " len(cons(1, cons(2, cons()))); len(cons(1, cons(2, cons()))) }";
+        String append = "{ let l = cons(1, cons(2, cons())); def first = memo(lambda(k) { head(k) }); let a = first(l);"
+                + " let b = append(l, cons(3, cons())); cons(first(l), cons(first(cons(1, cons(2, cons()))), cons(b, cons()))) }";
+        for (Engine engine : Engine.values()) {
+            interpreter.setEngine(engine);
+            Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(fib))));
+            assertEquals(1548008755920L, ((IntegerExpression) exp).getValue(), engine.toString());
+            assertEquals(61, interpreter.getMemoMisses(), engine.toString());
+            assertEquals(58, interpreter.getMemoHits(), engine.toString());
+            //three lists are cached in a cache of two, the outer list is looked up again by value
+            exp = interpreter.run(desugar(parser.parse(lexer.lex(lru))));
+            assertEquals(2, ((IntegerExpression) exp).getValue(), engine.toString());
+            assertEquals(1, interpreter.getMemoEvictions(), engine.toString());
+            assertEquals(1, interpreter.getMemoHits(), engine.toString());
+            //appending to a list neither changes it nor the cached call made with it
+            exp = interpreter.run(desugar(parser.parse(lexer.lex(append))));
+            assertEquals("{\"List\":[1,1,{\"List\":[1,2,3]}]}", exp.toString(), engine.toString());
+            assertEquals(2, interpreter.getMemoHits(), engine.toString());
+        }
+        assertEquals(new ListExpression(List.of(new IntegerExpression(1))), new ListExpression(List.of(new IntegerExpression(1))));
+    }
+
+    /**
+     * Tests while and for loops run without recursion, and for loops count with the built in
+     * procedures even if the program rebinds them
+     */
+    @Test
+    public void testLoops() {
+        String input = "{ let sum = 0; let k = 0; while lessThan?(k, 100000) { k = add(k, 1); sum = add(sum, k) };"
+                + " let add = sub; for i = 0, 10 { def d = i; sum = add(sum, d) }; sum }";
+        for (Engine engine : Engine.values()) {
+            interpreter.setEngine(engine);
+            Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(input))));
+            assertEquals(5000050000L - 45, ((IntegerExpression) exp).getValue(), engine.toString());
+            exp = interpreter.run(desugar(parser.parse(lexer.lex("while false { 1 }"))));
+            assertEquals(BooleanExpression.FALSE, exp, engine.toString());
+        }
+    }
+
+    /**
+     * Tests shallow binding finds the same dynamic bindings as searching the frames, through
+     * shadowing, assignment, and deep recursion
+     */
+    @Test
+    public void testShallowBinding() {
+        String input = "{ let x = 1; def g = lambda() { x }; def f = lambda(x) { g() };"
+                + " def count = lambda(n) { cond (equals?(n, 0) => { x = add(x, 1); x }) (true => count(sub(n, 1))) };"
+                + " let first = f(10); add(first, count(500)) }";
+        for (Engine engine : Engine.values()) {
+            for (boolean shallow : new boolean[]{true, false}) {
+                Interpreter dynamic = new Interpreter(false, false);
+                dynamic.setEngine(engine);
+                dynamic.setShallowBinding(shallow);
+                Expression exp = dynamic.run(desugar(parser.parse(lexer.lex(input))));
+                assertEquals(12, ((IntegerExpression) exp).getValue(), engine + " " + shallow);
+            }
+        }
+    }
+
+    /**
+     * Tests assigning a default binding only changes the environment of the run that assigned it
+     */
+    @Test
+    public void testPrelude() {
+        for (Engine engine : Engine.values()) {
+            interpreter.setEngine(engine);
+            Expression exp = interpreter.run(desugar(parser.parse(lexer.lex(
+                    "{ let f = lambda(a, b) { add(a, b) }; add = sub; f(5, 3) }"))));
+            assertEquals(2, ((IntegerExpression) exp).getValue(), engine.toString());
+            exp = interpreter.run(desugar(parser.parse(lexer.lex("add(5, 3)"))));
+            assertEquals(8, ((IntegerExpression) exp).getValue(), engine.toString());
+        }
+        assertNotSame(interpreter.getInitialEnv(), interpreter.getInitialEnv());
+    }
+
+    /**
+     * Tests optimizer folds constant calls, propagates constants, and prunes clauses
+     * without changing results
+     */
+    @Test
+    public void testOptimizer() {
+        String input = "{ let a = 2; let b = mul(a, 3); cond (false => 1) (equals?(b, 6) => concat(\"x\", \"y\")) (true => 3) }";
+        Optimizer optimizer = new Optimizer(true);
+        Expression optimized = optimizer.optimize(desugar(parser.parse(lexer.lex(input))));
+        assertEquals(3, optimizer.getFolded());
+        assertEquals(3, optimizer.getPropagated());
+        assertEquals(2, optimizer.getPruned());
+        assertEquals("xy", ((StringExpression) interpreter.run(optimized)).getValue());
+
+        //assigned, rebound, and failing calls are left alone
+        input = "{ let a = 2; a = 3; let f = lambda(add) { add(1, 2) }; print(div(a, 0)); f(sub) }";
+        optimizer = new Optimizer(true);
+        optimizer.optimize(desugar(parser.parse(lexer.lex(input))));
+        assertEquals(0, optimizer.getFolded());
+        assertEquals(0, optimizer.getPropagated());
+    }
+
+    /**
+     * Tests small non recursive lambdas are inlined without changing results
+     */
+    @Test
+    public void testInliner() {
+        String input = "{ let second = lambda(l) { head(tail(l)) }; let twice = lambda(x) { add(x, x) };"
+                + " let x = 7; add(twice(second(cons(1, cons(x, cons())))), x) }";
+        for (boolean lexical : new boolean[]{true, false}) {
+            Optimizer optimizer = new Optimizer(lexical);
+            Expression optimized = optimizer.optimize(desugar(parser.parse(lexer.lex(input))));
+            assertEquals(2, optimizer.getInlined());
+            assertEquals(21, ((IntegerExpression) new Interpreter(false, lexical).run(optimized)).getValue());
+        }
+
+        //recursive, escaping, and assigned lambdas are not inlined
+        input = "{ let f = lambda(n) { cond (zero?(n) => 0) (true => f(sub(n, 1))) }; let g = lambda(n) { n };"
+                + " let h = lambda(n) { n }; h = g; print(f(3)); print(map(g, cons())); h(1) }";
+        Optimizer optimizer = new Optimizer(true);
+        optimizer.optimize(desugar(parser.parse(lexer.lex(input))));
+        assertEquals(0, optimizer.getInlined());
+
+        //free identifiers must mean the same at the call site
+        input = "{ let f = lambda() { x }; let x = 5; f() }";
+        optimizer = new Optimizer(true);
+        Expression optimized = optimizer.optimize(desugar(parser.parse(lexer.lex(input))));
+        assertEquals(0, optimizer.getInlined());
+        assertEquals(10, ((IntegerExpression) interpreter.run(optimized)).getValue());
+    }
+
+    /**
+     * Tests runs stop once they exceed their step, depth, or time budget, or are cancelled
+     */
+    @Test
+    public void testBudget() {
+        Expression spin = desugar(parser.parse(lexer.lex("{ let i = 0; while true { i = add(i, 1) } }")));
+        Expression loop = desugar(parser.parse(lexer.lex("{ let f = lambda(n) { f(add(n, 1)) }; f(0) }")));
+        Expression deep = desugar(parser.parse(lexer.lex(
+                "{ let f = lambda(n) { cond (equals?(n, 0) => 0) (true => add(1, f(sub(n, 1)))) }; f(200) }")));
+        Expression count = desugar(parser.parse(lexer.lex(
+                "{ let i = 0; while not?(equals?(i, 20000)) { i = add(i, 1) }; i }")));
+        for (Engine engine : Engine.values()) {
+            Interpreter limited = new Interpreter(false, true);
+            limited.setEngine(engine);
+            limited.setMaxSteps(10000);
+            Exception e = assertThrows(RuntimeException.class, () -> limited.run(spin), engine.toString());
+            assertEquals("Evaluation exceeded its budget of 10000 steps.", e.getMessage());
+            assertEquals(200, ((IntegerExpression) limited.run(deep)).getValue(), engine.toString());
+
+            limited.setMaxSteps(0);
+            limited.setMaxDepth(100);
+            e = assertThrows(RuntimeException.class, () -> limited.run(deep), engine.toString());
+            assertEquals("Evaluation exceeded its depth limit of 100 calls.", e.getMessage());
+
+            limited.setMaxDepth(0);
+            limited.setTimeLimit(50);
+            Expression program = engine == Engine.TREE ? loop : spin;
+            e = assertThrows(RuntimeException.class, () -> limited.run(program), engine.toString());
+            assertEquals("Evaluation exceeded its time limit of 50 ms.", e.getMessage());
+            limited.setTimeLimit(Long.MAX_VALUE);
+            assertEquals(20000, ((IntegerExpression) limited.run(count)).getValue(), engine.toString());
+
+            limited.setTimeLimit(0);
+            Thread.currentThread().interrupt();
+            e = assertThrows(RuntimeException.class, () -> limited.run(spin), engine.toString());
+            assertTrue(Thread.interrupted());
+            assertEquals("Evaluation was cancelled.", e.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class, () -> interpreter.setMaxSteps(-1));
+    }
+
 }
@@ -2,10 +2,22 @@ package parser;
 
 import expressions.*;
 import lexer.Lexer;
+import lexer.StreamingLexer;
+import lexer.Token;
+import lexer.TokenBuffer;
+import lexer.Trivia;
+import lexer.TokenType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 
@@ -85,5 +97,154 @@ public class ParserTest {
         assertEquals(ExpressionType.APPLICATION, exp.getType());
     }
 
+    /**
+     * Test lexing tokens by their position, with values read from the source
+     */
+    @Test
+    public void lexTokens() {
+        List<Token> tokens = lexer.lex("λ(x){ cond (x=>\"a\\\"b\") } // c\n-12 + letter let");
+        TokenType[] types = {TokenType.LAMBDA_ALT, TokenType.OPENPAREN, TokenType.IDENTIFIER, TokenType.CLOSEPAREN,
+                TokenType.OPENBRACE, TokenType.WS, TokenType.COND, TokenType.WS, TokenType.OPENPAREN,
+                TokenType.IDENTIFIER, TokenType.ARROW, TokenType.STRING, TokenType.CLOSEPAREN, TokenType.WS,
+                TokenType.CLOSEBRACE, TokenType.WS, TokenType.COMMENT, TokenType.WS, TokenType.INTEGER, TokenType.WS,
+                TokenType.BAD_INTCHAR, TokenType.WS, TokenType.IDENTIFIER, TokenType.WS, TokenType.LET};
+        assertEquals(types.length, tokens.size());
+        for (int i = 0; i < types.length; i++) {
+            assertEquals(types[i], tokens.get(i).getType(), "token " + i);
+        }
+        assertEquals("\"a\"b\"", tokens.get(11).getValue());
+        assertEquals(6, tokens.get(11).getLength());
+        assertEquals("// c", tokens.get(16).getValue());
+        assertEquals("-12", tokens.get(18).getValue());
+        assertEquals(2, tokens.get(18).getLine());
+        assertEquals("letter", tokens.get(22).getValue());
+    }
 
+    /**
+     * Test lexing tokens from a stream gives the same tokens as lexing the whole source,
+     * even when tokens are longer than the buffer
+     */
+    @Test
+    public void lexStream() {
+        String source = "{ let s = \"a\\\"b\"; // comment\n def x" + "y".repeat(StreamingLexer.BUFFER_SIZE)
+                + " = 1;\n cond (equals?(s, \"x\") => -2) (true => +3) }";
+        String unterminated = "{ \"abc\0 x }";
+        for (String text : List.of(source, unterminated)) {
+            List<Token> expected = lexer.lex(text);
+            StreamingLexer stream = new StreamingLexer(new StringReader(text));
+            for (Token token : expected) {
+                Token streamed = stream.next();
+                assertEquals(token.getType(), streamed.getType());
+                assertEquals(token.getPosition(), streamed.getPosition());
+                assertEquals(token.getLength(), streamed.getLength());
+                assertEquals(token.getLine(), streamed.getLine());
+                assertEquals(token.getValue(), streamed.getValue());
+            }
+            assertFalse(stream.hasNext());
+        }
+
+        Expression exp = parser.parse(new StreamingLexer(new StringReader("add(1, 2)")));
+        assertEquals(ExpressionType.APPLICATION, exp.getType());
+    }
+
+    /**
+     * Test whitespace and comments can be left out of the tokens and recorded in a side table
+     */
+    @Test
+    public void lexWithoutTrivia() {
+        String source = "// add\n{ let x = 1; // one\n\n add(x,  2) }\n";
+        List<Token> significant = new ArrayList<>();
+        List<Token> trivia = new ArrayList<>();
+        for (Token token : lexer.lex(source)) {
+            boolean skipped = token.getType() == TokenType.WS || token.getType() == TokenType.COMMENT;
+            (skipped ? trivia : significant).add(token);
+        }
+        lexer.setTriviaSkipped(true);
+        lexer.setTriviaRecorded(true);
+        List<Token> tokens = lexer.lex(source);
+        StreamingLexer stream = new StreamingLexer(new StringReader(source));
+        stream.setTriviaSkipped(true);
+        stream.setTriviaRecorded(true);
+        assertEquals(significant.size(), tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(significant.get(i).getType(), tokens.get(i).getType());
+            assertEquals(significant.get(i).getPosition(), tokens.get(i).getPosition());
+            assertEquals(significant.get(i).getValue(), stream.next().getValue());
+        }
+        assertFalse(stream.hasNext());
+        for (Trivia table : new Trivia[]{lexer.getTrivia(), stream.getTrivia()}) {
+            assertEquals(trivia.size(), table.size());
+            for (int i = 0; i < table.size(); i++) {
+                assertEquals(trivia.get(i).getType(), table.getType(i));
+                assertEquals(trivia.get(i).getLine(), table.getLine(i));
+                assertEquals(trivia.get(i).getValue(), table.getToken(i, source).getValue());
+            }
+        }
+        assertEquals(TokenType.COMMENT, lexer.getTrivia().getType(lexer.getTrivia().indexAfter(20)));
+        assertEquals(ExpressionType.BLOCK, parser.parse(tokens).getType());
+    }
+
+    /**
+     * Test lexing into a token buffer keeps the same tokens, and the parser reads the buffer
+     * the same as the list of tokens
+     */
+    @Test
+    public void lexBuffer() {
+        String source = "{ def f = λ(n) { cond (equals?(n, 0) => \"z\\n\") (true => f(-1)) }; // call\n x = f(3) }";
+        List<Token> tokens = lexer.lex(source);
+        TokenBuffer buffer = lexer.lexBuffer(source);
+        assertEquals(tokens.size(), buffer.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.get(i).getType(), buffer.getType(i));
+            assertEquals(tokens.get(i).getPosition(), buffer.getPosition(i));
+            assertEquals(tokens.get(i).getLength(), buffer.getLength(i));
+            assertEquals(tokens.get(i).getLine(), buffer.getLine(i));
+            assertEquals(tokens.get(i).getValue(), buffer.getValue(i));
+        }
+        assertEquals(parser.parse(tokens).toString(), parser.parse(buffer).toString());
+        assertEquals(null, buffer.type());
+
+        lexer.setTriviaSkipped(true);
+        buffer = lexer.lexBuffer(source);
+        assertEquals(TokenType.OPENBRACE, buffer.type());
+        assertEquals(TokenType.DEFINITION, buffer.typeAhead());
+        assertEquals(parser.parse(tokens).toString(), parser.parse(buffer).toString());
+        assertThrows(Exception.class, () -> parser.parse(lexer.lexBuffer("{ x = }")));
+    }
+
+    /**
+     * Test keywords are found by their hash without taking identifiers that only share it,
+     * and every occurrence of an identifier name shares one string
+     */
+    @Test
+    public void lexSymbols() {
+        String source = "lambda λ def cond let while for lambdas λλ le fot whilf Let x x x";
+        TokenType[] types = {TokenType.LAMBDA, TokenType.LAMBDA_ALT, TokenType.DEFINITION, TokenType.COND,
+                TokenType.LET, TokenType.WHILE, TokenType.FOR};
+        lexer.setTriviaSkipped(true);
+        List<Token> tokens = lexer.lex(source);
+        TokenBuffer buffer = lexer.lexBuffer(source);
+        StreamingLexer stream = new StreamingLexer(new StringReader(source));
+        stream.setTriviaSkipped(true);
+        List<Token> streamed = new ArrayList<>();
+        stream.forEachRemaining(streamed::add);
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenType type = i < types.length ? types[i] : TokenType.IDENTIFIER;
+            assertEquals(type, tokens.get(i).getType());
+            assertEquals(type, buffer.getType(i));
+            assertEquals(type, streamed.get(i).getType());
+            assertEquals(tokens.get(i).getLength(), buffer.getLength(i));
+        }
+        int last = tokens.size() - 1;
+        assertSame(tokens.get(last - 1).getValue(), tokens.get(last).getValue());
+        assertSame(buffer.getValue(last - 1), buffer.getValue(last));
+        assertSame(streamed.get(last - 1).getValue(), streamed.get(last).getValue());
+
+        ApplicationExpression exp = (ApplicationExpression) parser.parse(lexer.lexBuffer("add(x, x)"));
+        IdentifierExpression first = (IdentifierExpression) exp.getArguments().get(1);
+        IdentifierExpression second = (IdentifierExpression) exp.getArguments().get(2);
+        assertNotSame(first, second);
+        assertSame(first.getName(), second.getName());
+        assertThrows(Exception.class, () -> parser.parse(lexer.lexBuffer("add(x, =>)")));
+    }
 }